@@ -0,0 +1,75 @@
+/*
+ * Title: ApplicationWindow
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * Headless stand-in for the api library's ApplicationWindow, used only by the benchmark build.
+ * It is a lightweight internal frame rather than a top-level window, so it can be created without a display, but it builds its contents
+ * with the module's drawing handler and rebuilds them from scratch on every reDrawGUI() just as the real window does. Benchmarks of code
+ * that redraws therefore pay the real cost of rebuilding the components.
+ */
+
+package api.gui.swing;
+
+import java.awt.AWTEvent;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowListener;
+
+import javax.swing.JInternalFrame;
+
+import api.util.EventHandler;
+
+public class ApplicationWindow extends JInternalFrame implements ActionListener
+{
+    private final static long     serialVersionUID = 1L;
+    private final EventHandler<?> actionPerformed;
+    private final EventHandler<?> drawGUI;
+    private final boolean         isDebugging;
+    
+    public ApplicationWindow(final Component parent,
+        final String title,
+        final Dimension size,
+        final boolean isDebugging,
+        final boolean isExitOnClose,
+        final EventHandler<?> actionPerformed,
+        final EventHandler<?> drawGUI)
+    {
+        super(title);
+        this.isDebugging = isDebugging;
+        this.actionPerformed = actionPerformed;
+        this.drawGUI = drawGUI;
+        this.setSize(size);
+        this.reDrawGUI();
+    }
+    
+    @Override
+    public final void actionPerformed(final ActionEvent event)
+    {
+        this.actionPerformed.run((AWTEvent)event);
+    }
+    
+    // The real window is a frame. This one is never shown or disposed, so its window listeners are never called.
+    public final void addWindowListener(final WindowListener listener)
+    {
+    }
+    
+    public final boolean isDebugging()
+    {
+        return this.isDebugging;
+    }
+    
+    public final void reDrawGUI()
+    {
+        this.getContentPane().removeAll();
+        this.setJMenuBar(null);
+        this.drawGUI.run(this);
+        this.revalidate();
+    }
+    
+    public final void setIconImageByResourceName(final String resourceName)
+    {
+    }
+}
\ No newline at end of file
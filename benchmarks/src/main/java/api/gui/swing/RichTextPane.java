@@ -0,0 +1,72 @@
+/*
+ * Title: RichTextPane
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * Headless stand-in for the api library's RichTextPane, used only by the benchmark build.
+ * append() takes the same segments as the real pane (a foreground colour, a background colour and the text, repeated) and inserts them
+ * into the styled document.
+ */
+
+package api.gui.swing;
+
+import java.awt.Color;
+import java.awt.Component;
+
+import javax.swing.JTextPane;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.SimpleAttributeSet;
+import javax.swing.text.StyleConstants;
+import javax.swing.text.StyledDocument;
+
+public class RichTextPane extends JTextPane
+{
+    private final static long serialVersionUID = 1L;
+    
+    public RichTextPane(final Component parent, final boolean isReadOnly, final boolean isDebugging)
+    {
+        this.setEditable(!isReadOnly);
+    }
+    
+    public final void append(final Object... segments)
+    {
+        final StyledDocument document = this.getStyledDocument();
+        final SimpleAttributeSet attributes = new SimpleAttributeSet();
+        int colors = 0;
+        
+        try
+        {
+            for (final Object segment : segments)
+            {
+                if (segment instanceof Color)
+                {
+                    if ((colors++ % 2) == 0)
+                    {
+                        StyleConstants.setForeground(attributes, (Color)segment);
+                    }
+                    else
+                    {
+                        StyleConstants.setBackground(attributes, (Color)segment);
+                    }
+                }
+                else
+                {
+                    document.insertString(document.getLength(), String.valueOf(segment), attributes);
+                }
+            }
+        }
+        catch (final BadLocationException exception)
+        {
+            throw new IllegalStateException(exception);
+        }
+    }
+    
+    public final void clear()
+    {
+        this.setText("");
+    }
+    
+    public final void openOrSaveFile(final boolean isOpen)
+    {
+    }
+}
\ No newline at end of file
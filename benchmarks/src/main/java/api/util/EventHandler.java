@@ -0,0 +1,39 @@
+/*
+ * Title: EventHandler
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * Headless stand-in for the api library's EventHandler, used only by the benchmark build.
+ * It keeps the parent object and lets the GUI modules override whichever callback they need, exactly as the real class does.
+ */
+
+package api.util;
+
+import java.awt.AWTEvent;
+import java.io.Serializable;
+
+import api.gui.swing.ApplicationWindow;
+
+public abstract class EventHandler<T> implements Serializable
+{
+    private final static long serialVersionUID = 1L;
+    private final T           parent;
+    
+    public EventHandler(final T parent)
+    {
+        this.parent = parent;
+    }
+    
+    public final T getParent()
+    {
+        return this.parent;
+    }
+    
+    public void run(final ApplicationWindow window)
+    {
+    }
+    
+    public void run(final AWTEvent event)
+    {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,17 @@
+/*
+ * Title: Mathematics
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * Headless stand-in for the api library's Mathematics class, used only by the benchmark build.
+ */
+
+package api.util;
+
+public final class Mathematics
+{
+    public final static double logarithm(final double x, final double base)
+    {
+        return (Math.log(x) / Math.log(base));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,95 @@
+/*
+ * Title: Support
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * Headless stand-in for the api library's Support class, used only by the benchmark build.
+ * Instead of showing dialogs, every prompt takes the next answer from a script queued with answer(), so that code which asks the user for
+ * input (such as a combat reset) can be driven without a display. A prompt with no scripted answer, or any exception that would have been
+ * displayed, fails the benchmark rather than letting it measure the wrong thing.
+ */
+
+package api.util;
+
+import java.awt.Component;
+import java.awt.Font;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.Date;
+
+public final class Support
+{
+    public final static Font                DEFAULT_TEXT_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+    private final static ArrayDeque<Object> SCRIPT            = new ArrayDeque<Object>();
+    
+    // Queues answers for the prompts that follow, in the order they will be asked.
+    public final static void answer(final Object... answers)
+    {
+        for (final Object answer : answers)
+        {
+            Support.SCRIPT.add(answer);
+        }
+    }
+    
+    public final static void displayDebugMessage(final Component parent, final String message)
+    {
+    }
+    
+    public final static void displayException(final Component parent, final Exception exception, final boolean isFatal)
+    {
+        throw new IllegalStateException(exception);
+    }
+    
+    public final static boolean getChoiceInput(final Component parent, final String message, final String title)
+    {
+        return (Boolean)Support.nextAnswer(message);
+    }
+    
+    public final static String getDateTimeStamp()
+    {
+        return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
+    }
+    
+    public final static String getFilePath(final Component parent, final boolean isOpen, final boolean isDebugging)
+    {
+        return null;
+    }
+    
+    public final static String getInputString(final Component parent, final String message, final String title)
+    {
+        return (String)Support.nextAnswer(message);
+    }
+    
+    public final static int getIntegerInputString(final Component parent, final String message, final String title)
+    {
+        return (Integer)Support.nextAnswer(message);
+    }
+    
+    public final static boolean isStringParsedAsDouble(final String s)
+    {
+        try
+        {
+            Double.parseDouble(s);
+            return true;
+        }
+        catch (final NumberFormatException exception)
+        {
+            return false;
+        }
+    }
+    
+    private final static Object nextAnswer(final String message)
+    {
+        if (Support.SCRIPT.isEmpty())
+        {
+            throw new IllegalStateException("No scripted answer for the prompt: " + message);
+        }
+        
+        return Support.SCRIPT.poll();
+    }
+    
+    public final static boolean promptDebugMode(final Component parent)
+    {
+        return false;
+    }
+}
\ No newline at end of file
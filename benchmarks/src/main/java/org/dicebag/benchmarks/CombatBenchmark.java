@@ -0,0 +1,61 @@
+/*
+ * Title: CombatBenchmark
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * Measures the Combat Tracker by encounter size: advancing to the next combatant (including the log entry and redraw it triggers), and
+ * resetting the monsters, which rebuilds them, rolls their initiative and sorts the roster.
+ */
+
+package org.dicebag.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.dicebag.modules.CombatTracker;
+import org.dicebag.objects.Creature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class CombatBenchmark
+{
+    private CombatTracker combatTracker;
+    @Param({
+        "10", "100", "1000"
+    })
+    public int            rosterSize;
+    
+    @Benchmark
+    public Creature nextCombatant()
+    {
+        return this.combatTracker.nextCombatant();
+    }
+    
+    @Benchmark
+    public Creature reset()
+    {
+        Fixtures.scriptMonsters(this.rosterSize);
+        this.combatTracker.reset(3);
+        return this.combatTracker.getCurrentCreature();
+    }
+    
+    @Setup
+    public void setUp()
+    {
+        this.combatTracker = Fixtures.combatTracker(Fixtures.diceBag(1), this.rosterSize);
+    }
+}
\ No newline at end of file
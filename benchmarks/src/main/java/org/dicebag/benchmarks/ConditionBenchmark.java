@@ -0,0 +1,97 @@
+/*
+ * Title: ConditionBenchmark
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * Measures roster-wide condition queries by encounter size, with one creature in ten frightened: finding every frightened creature
+ * from the condition index, finding those within thirty feet of a square, and the scan of the whole roster that the index replaces.
+ * Also measures giving a creature a condition and taking it away again, which should not grow with the encounter.
+ */
+
+package org.dicebag.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.dicebag.objects.BattleGrid;
+import org.dicebag.objects.CombatEngine;
+import org.dicebag.objects.Constants35E;
+import org.dicebag.objects.Creature;
+import org.dicebag.objects.StatBlock35E;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class ConditionBenchmark
+{
+    private final static int CENTER = BattleGrid.parse("10:10");
+    
+    private CombatEngine     engine;
+    @Param({
+        "10", "100", "1000"
+    })
+    public int               rosterSize;
+    
+    @Benchmark
+    public List<Creature> scanRoster()
+    {
+        final List<Creature> found = new ArrayList<Creature>();
+        
+        for (final Creature creature : this.engine.getCreatureList())
+        {
+            if (((StatBlock35E)creature.getStatBlock()).hasEffect(Constants35E.Effects.FRIGHTENED))
+            {
+                found.add(creature);
+            }
+        }
+        
+        return found;
+    }
+    
+    @Setup
+    public void setUp()
+    {
+        this.engine = Fixtures.engine(this.rosterSize, "2d8");
+        
+        for (int i = 0; i < this.rosterSize; i += 10)
+        {
+            this.engine.setEffect(this.engine.getCreatureList().get(i), Constants35E.Effects.FRIGHTENED, true);
+        }
+    }
+    
+    @Benchmark
+    public boolean toggle()
+    {
+        final Creature creature = this.engine.getCreatureList().get(0);
+        
+        this.engine.setEffect(creature, Constants35E.Effects.PRONE, true);
+        return this.engine.setEffect(creature, Constants35E.Effects.PRONE, false);
+    }
+    
+    @Benchmark
+    public List<Creature> withEffect()
+    {
+        return this.engine.withEffect(Constants35E.Effects.FRIGHTENED);
+    }
+    
+    @Benchmark
+    public List<Creature> withEffectNear()
+    {
+        return this.engine.withEffect(Constants35E.Effects.FRIGHTENED, ConditionBenchmark.CENTER, 30);
+    }
+}
\ No newline at end of file
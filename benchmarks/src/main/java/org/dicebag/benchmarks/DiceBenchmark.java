@@ -0,0 +1,74 @@
+/*
+ * Title: DiceBenchmark
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * Measures the cost of one throw by pool size: the bare dice engine (the total alone, and a full result), and DiceBag.processInput, which
+ * adds logging, the journal window and the input history on top of the throw.
+ */
+
+package org.dicebag.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.dicebag.modules.DiceBag;
+import org.dicebag.objects.DiceExpression;
+import org.dicebag.objects.DiceResult;
+import org.dicebag.objects.ParallelRoller;
+import org.dicebag.objects.RandomSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class DiceBenchmark
+{
+    private DiceBag        diceBag;
+    private DiceExpression expression;
+    private String         input;
+    @Param({
+        "1", "100", "10000", "1000000", "10000000"
+    })
+    public int             poolSize;
+    private RandomSource   source;
+    
+    @Benchmark
+    public long processInput()
+    {
+        return this.diceBag.processInput(this.input);
+    }
+    
+    @Benchmark
+    public DiceResult roll()
+    {
+        return ParallelRoller.getDefault().roll(this.expression, this.source);
+    }
+    
+    @Benchmark
+    public long rollTotal()
+    {
+        return ParallelRoller.getDefault().rollTotal(this.expression, this.source);
+    }
+    
+    @Setup
+    public void setUp()
+    {
+        this.input = (this.poolSize + "d6");
+        this.expression = DiceExpression.compile(this.input);
+        this.source = RandomSource.splittable(1);
+        this.diceBag = Fixtures.diceBag(1);
+    }
+}
\ No newline at end of file
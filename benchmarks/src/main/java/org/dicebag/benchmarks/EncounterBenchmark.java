@@ -0,0 +1,78 @@
+/*
+ * Title: EncounterBenchmark
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * Measures the encounter maths over the whole table of party levels and challenge ratings: experience awards, treasure values, and the
+ * challenge rating to power level conversions used to total up a group of monsters.
+ * It extends EncounterCalculator only to reach its protected helpers.
+ */
+
+package org.dicebag.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.dicebag.modules.EncounterCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@BenchmarkMode(Mode.AverageTime)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class EncounterBenchmark extends EncounterCalculator
+{
+    private final static long serialVersionUID = 1L;
+    
+    public EncounterBenchmark()
+    {
+        super(null, false);
+    }
+    
+    // Totals the power of every group of one to twenty monsters of each challenge rating, and converts it back to an encounter level.
+    @Benchmark
+    public void encounterLevel(final Blackhole blackhole)
+    {
+        for (int cr = 1; cr <= 30; cr++)
+        {
+            double power = 0.0;
+            
+            for (int n = 1; n <= 20; n++)
+            {
+                power += EncounterCalculator.CRtoPL(cr);
+                blackhole.consume(EncounterCalculator.PLtoCR(power));
+            }
+        }
+    }
+    
+    @Benchmark
+    public void experience(final Blackhole blackhole)
+    {
+        for (int level = 1; level <= 20; level++)
+        {
+            for (int cr = 1; cr <= 30; cr++)
+            {
+                blackhole.consume(EncounterCalculator.experience(level, cr));
+            }
+        }
+    }
+    
+    @Benchmark
+    public void treasure(final Blackhole blackhole)
+    {
+        for (double level = 0.5; level <= 40.0; level += 0.5)
+        {
+            blackhole.consume(EncounterCalculator.treasure(level));
+        }
+    }
+}
\ No newline at end of file
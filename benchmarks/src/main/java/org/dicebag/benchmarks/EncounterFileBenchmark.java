@@ -0,0 +1,89 @@
+/*
+ * Title: EncounterFileBenchmark
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * Measures saving and loading a whole encounter file by encounter size, against saving the same creatures one file each with Java
+ * serialization, as the Combat Tracker used to.
+ */
+
+package org.dicebag.benchmarks;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.dicebag.objects.CombatEngine;
+import org.dicebag.objects.Creature;
+import org.dicebag.objects.EncounterFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class EncounterFileBenchmark
+{
+    private CombatEngine engine;
+    private Path         path;
+    @Param({
+        "10", "100", "1000"
+    })
+    public int           rosterSize;
+    
+    @Benchmark
+    public EncounterFile.Encounter load() throws IOException
+    {
+        return EncounterFile.load(this.path);
+    }
+    
+    @Benchmark
+    public Path save() throws IOException
+    {
+        EncounterFile.save(this.engine, this.path);
+        return this.path;
+    }
+    
+    @Benchmark
+    public Path serialize() throws IOException
+    {
+        for (final Creature creature : this.engine.getCreatureList())
+        {
+            try (final ObjectOutputStream stream = new ObjectOutputStream(Files.newOutputStream(this.path)))
+            {
+                stream.writeObject(creature.getStatBlock());
+            }
+        }
+        
+        return this.path;
+    }
+    
+    @Setup
+    public void setUp() throws IOException
+    {
+        this.engine = Fixtures.engine(this.rosterSize, "2d8+10");
+        this.path = Files.createTempFile("encounter", ".dbe");
+        EncounterFile.save(this.engine, this.path);
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        Files.deleteIfExists(this.path);
+    }
+}
\ No newline at end of file
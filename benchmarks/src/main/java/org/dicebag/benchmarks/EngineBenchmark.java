@@ -0,0 +1,74 @@
+/*
+ * Title: EngineBenchmark
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * Measures the combat engine on its own, with no window and no log listening, by encounter size: passing the turn, a whole round of turns,
+ * and damaging and healing the current creature. Compare with CombatBenchmark, which drives the same rules through the Combat Tracker.
+ */
+
+package org.dicebag.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.dicebag.objects.CombatEngine;
+import org.dicebag.objects.Creature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class EngineBenchmark
+{
+    private CombatEngine engine;
+    @Param({
+        "10", "100", "1000"
+    })
+    public int           rosterSize;
+    
+    @Benchmark
+    public Creature damageAndHeal()
+    {
+        final Creature current = this.engine.getCurrentCreature();
+        
+        this.engine.damage(current, 3);
+        this.engine.heal(current, 3);
+        return current;
+    }
+    
+    @Benchmark
+    public Creature nextTurn()
+    {
+        return this.engine.nextTurn();
+    }
+    
+    @Benchmark
+    public int round()
+    {
+        for (int i = 0; i < this.rosterSize; i++)
+        {
+            this.engine.nextTurn();
+        }
+        
+        return this.engine.getNumRounds();
+    }
+    
+    @Setup
+    public void setUp()
+    {
+        this.engine = Fixtures.engine(this.rosterSize, "2d8+10");
+    }
+}
\ No newline at end of file
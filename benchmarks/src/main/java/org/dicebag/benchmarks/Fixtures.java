@@ -0,0 +1,87 @@
+/*
+ * Title: Fixtures
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * This class builds the headless DiceBag sessions and combat encounters the benchmarks run against.
+ * The prompts a DM would normally answer are scripted through the Support stand-in, so an encounter of any size can be set up without
+ * a display, and every session is seeded so that each run throws the same dice.
+ */
+
+package org.dicebag.benchmarks;
+
+import java.util.ArrayList;
+
+import org.dicebag.modules.CombatTracker;
+import org.dicebag.modules.DiceBag;
+import org.dicebag.objects.BattleGrid;
+import org.dicebag.objects.CombatEngine;
+import org.dicebag.objects.CombatHistory;
+import org.dicebag.objects.Creature;
+import org.dicebag.objects.RandomSource;
+import org.dicebag.objects.StatBlock35E;
+
+import api.util.Support;
+
+final class Fixtures
+{
+    // The monsters of an encounter are split evenly across this many types, each with its own initiative modifier, so the roster has
+    // realistic numbers of ties.
+    final static int[] INIT_BONUSES = {
+                                        -1, 0, 1, 2, 4
+                                    };
+    
+    // Returns a CombatTracker whose encounter is the given number of monsters and no characters.
+    final static CombatTracker combatTracker(final DiceBag diceBag, final int numMonsters)
+    {
+        Support.answer(0);
+        Fixtures.scriptMonsters(numMonsters);
+        return new CombatTracker(diceBag, false);
+    }
+    
+    final static DiceBag diceBag(final long seed)
+    {
+        return new DiceBag(false, new String[] {
+            "-seed", Long.toString(seed)
+        });
+    }
+    
+    // Returns a seeded CombatEngine with no window, whose encounter is the given number of monsters and no characters, spawned from one
+    // template with the given hit dice onto the free squares around 10:10.
+    final static CombatEngine engine(final int rosterSize, final String hitDice)
+    {
+        return Fixtures.engine(rosterSize, hitDice, null);
+    }
+    
+    // As above, with the history attached before the encounter starts, so that the start is recorded and can be jumped back to.
+    final static CombatEngine engine(final int rosterSize, final String hitDice, final CombatHistory history)
+    {
+        final CombatEngine engine = new CombatEngine(RandomSource.splittable(1));
+        
+        engine.setHistory(history);
+        engine.start(new ArrayList<Creature>(),
+            engine.spawn(new StatBlock35E(0, 0, "Monster", "10:10"), hitDice, rosterSize, 1, new BattleGrid()));
+        return engine;
+    }
+    
+    // Queues the answers to the prompts of CombatTracker.resetMonsters for an encounter of the given size.
+    final static void scriptMonsters(final int numMonsters)
+    {
+        final int numTypes = Math.min(numMonsters, Fixtures.INIT_BONUSES.length);
+        
+        Support.answer(numTypes);
+        
+        for (int i = 0; i < numTypes; i++)
+        {
+            final int count = ((numMonsters / numTypes) + ((i < (numMonsters % numTypes)) ? 1 : 0));
+            
+            Support.answer(count, false, "Monster " + (i + 1), "8", Fixtures.INIT_BONUSES[i], String.format("%02d:%02d", 10, (10 * i) + 10));
+            // Every type gets the default attack profile (armor class 10, no attack bonus and 1d6 damage) and no save bonuses.
+            Support.answer(10, 0, "1d6", 0, 0, 0);
+        }
+    }
+    
+    private Fixtures()
+    {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,104 @@
+/*
+ * Title: GridBenchmark
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * Measures area queries on a battle grid by the number of creatures on it: a 30 foot radius, a 60 foot cone and a 120 foot line through
+ * BattleGrid, and the same radius found by reading every creature's position, which is what the Combat Tracker would do without the index.
+ */
+
+package org.dicebag.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.dicebag.objects.BattleGrid;
+import org.dicebag.objects.Creature;
+import org.dicebag.objects.Creature35E;
+import org.dicebag.objects.RandomSource;
+import org.dicebag.objects.StatBlock35E;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class GridBenchmark
+{
+    private final static int MAP_SIZE = 200;
+    private int              center;
+    private Creature[]       creatures;
+    @Param({
+        "100", "1000", "5000"
+    })
+    public int               creatureCount;
+    private BattleGrid       grid;
+    private int              toward;
+    
+    @Benchmark
+    public List<Creature> cone()
+    {
+        return this.grid.cone(this.center, this.toward, 60);
+    }
+    
+    @Benchmark
+    public List<Creature> line()
+    {
+        return this.grid.line(this.center, this.toward, 120);
+    }
+    
+    @Benchmark
+    public List<Creature> radius()
+    {
+        return this.grid.radius(this.center, 30);
+    }
+    
+    @Benchmark
+    public List<Creature> scan()
+    {
+        final List<Creature> found = new ArrayList<Creature>();
+        
+        for (final Creature creature : this.creatures)
+        {
+            if (BattleGrid.distance(this.center, creature.getStatBlock().getCoordinates()) <= 6)
+            {
+                found.add(creature);
+            }
+        }
+        
+        return found;
+    }
+    
+    @Setup
+    public void setUp()
+    {
+        final RandomSource source = RandomSource.splittable(1);
+        
+        this.creatures = new Creature[this.creatureCount];
+        
+        for (int i = 0; i < this.creatures.length; i++)
+        {
+            this.creatures[i] = new Creature35E(null, new StatBlock35E(0, 8, "Creature " + (i + 1), "01:01"));
+            this.creatures[i].getStatBlock().setCoordinates(BattleGrid.pack(source.nextInt(GridBenchmark.MAP_SIZE),
+                source.nextInt(GridBenchmark.MAP_SIZE)));
+        }
+        
+        this.grid = new BattleGrid(Arrays.asList(this.creatures));
+        this.center = BattleGrid.pack(GridBenchmark.MAP_SIZE / 2, GridBenchmark.MAP_SIZE / 2);
+        this.toward = BattleGrid.pack(GridBenchmark.MAP_SIZE, GridBenchmark.MAP_SIZE / 2);
+    }
+}
\ No newline at end of file
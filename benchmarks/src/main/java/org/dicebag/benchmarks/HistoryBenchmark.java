@@ -0,0 +1,69 @@
+/*
+ * Title: HistoryBenchmark
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * Measures the combat history by encounter size, after a fight of fifty rounds in which every creature is damaged on every turn: undoing
+ * and redoing the last action, and going back to the first round and forward again to the last. Neither should grow with the length of
+ * the fight.
+ */
+
+package org.dicebag.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.dicebag.objects.CombatEngine;
+import org.dicebag.objects.CombatHistory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class HistoryBenchmark
+{
+    private final static int ROUNDS = 50;
+    
+    private CombatEngine     engine;
+    @Param({
+        "10", "100", "1000"
+    })
+    public int               rosterSize;
+    
+    @Benchmark
+    public boolean jumpToRound()
+    {
+        return (this.engine.jumpToRound(1) && this.engine.jumpToRound(HistoryBenchmark.ROUNDS));
+    }
+    
+    @Setup
+    public void setUp()
+    {
+        this.engine = Fixtures.engine(this.rosterSize, "2d8+1000", new CombatHistory());
+        
+        while (this.engine.getNumRounds() < HistoryBenchmark.ROUNDS)
+        {
+            this.engine.damage(this.engine.getCurrentCreature(), 1);
+            this.engine.nextTurn();
+        }
+    }
+    
+    @Benchmark
+    public CombatHistory.Event undoAndRedo()
+    {
+        this.engine.undo();
+        return this.engine.redo();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,75 @@
+/*
+ * Title: InitiativeBenchmark
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * Measures sorting a roster into initiative order by roster size, the way CombatEngine.start does it, through InitiativeOrder.sort.
+ * Creatures with the same total initiative and modifier throw their tie-breakers once per tied group, so that cost is included.
+ */
+
+package org.dicebag.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.dicebag.objects.CombatEngine;
+import org.dicebag.objects.Creature;
+import org.dicebag.objects.Creature35E;
+import org.dicebag.objects.InitiativeOrder;
+import org.dicebag.objects.RandomSource;
+import org.dicebag.objects.Roster;
+import org.dicebag.objects.StatBlock35E;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class InitiativeBenchmark
+{
+    private RandomSource random;
+    private Creature[]   roster;
+    @Param({
+        "10", "100", "1000"
+    })
+    public int           rosterSize;
+    
+    @Setup
+    public void setUp()
+    {
+        final RandomSource source = RandomSource.splittable(1);
+        final CombatEngine engine = new CombatEngine(RandomSource.splittable(3));
+        
+        this.random = RandomSource.splittable(2);
+        this.roster = new Creature[this.rosterSize];
+        
+        for (int i = 0; i < this.roster.length; i++)
+        {
+            final int initBonus = Fixtures.INIT_BONUSES[i % Fixtures.INIT_BONUSES.length];
+            
+            this.roster[i] = new Creature35E(engine, new StatBlock35E(initBonus, 8, "Creature " + (i + 1), "01:01"));
+            this.roster[i].getStatBlock().setInitBase(source.nextInt(20) + 1);
+        }
+    }
+    
+    @Benchmark
+    public Roster sort()
+    {
+        final Roster creatureList = new Roster(Arrays.asList(this.roster));
+        
+        InitiativeOrder.sort(creatureList, this.random);
+        return creatureList;
+    }
+}
\ No newline at end of file
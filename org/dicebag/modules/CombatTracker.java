@@ -7,7 +7,11 @@
  * It interfaces with the DiceBag class so that initiative die rolls are recorded in the log automatically.
  * Currently only the v3.5 d20 rules are implemented but in a future version users will be able to seamlessly switch configurations.
  * Saving and loading combatants is also an option, as is only resetting characters or monsters if desired.
- * CombatTracker can also be used to track battlefield position.
+ * A whole encounter, with its turn order, current creature and round, can be saved to one compact binary EncounterFile and opened again.
+ * CombatTracker can also be used to track battlefield position, and each creature's conditions, which can be looked up by condition.
+ * The rules themselves are applied by a CombatEngine, which needs no window; the tracker prompts the DM, passes each action on to the
+ * engine, and redraws. A CombatLog listening to the engine writes the log entries.
+ * Every action is recorded in a CombatHistory, so the DM can undo and redo mistakes or go back to the start of any round of the encounter.
  */
 
 package org.dicebag.modules;
@@ -19,50 +23,142 @@ import java.awt.Container;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.event.ActionEvent;
+import java.io.IOException;
 import java.io.Serializable;
-import java.util.Collections;
-import java.util.LinkedList;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
+import javax.swing.AbstractListModel;
+import javax.swing.ComboBoxModel;
 import javax.swing.JComboBox;
 import javax.swing.JLabel;
+import javax.swing.JList;
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JPanel;
 import javax.swing.KeyStroke;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+import javax.swing.plaf.basic.ComboPopup;
 
+import org.dicebag.objects.BattleGrid;
+import org.dicebag.objects.CombatEngine;
+import org.dicebag.objects.CombatHistory;
+import org.dicebag.objects.CombatLog;
+import org.dicebag.objects.CombatSimulator;
 import org.dicebag.objects.Constants35E;
 import org.dicebag.objects.Creature;
 import org.dicebag.objects.Creature35E;
+import org.dicebag.objects.DiceExpression;
+import org.dicebag.objects.EncounterFile;
+import org.dicebag.objects.Metrics;
+import org.dicebag.objects.RollLog;
+import org.dicebag.objects.Roster;
 import org.dicebag.objects.StatBlock35E;
 
 import api.gui.swing.ApplicationWindow;
-import api.gui.swing.RichTextPane;
 import api.util.EventHandler;
 import api.util.Support;
 
 public class CombatTracker implements Serializable
 {
-    private final static long    serialVersionUID   = 1L;
-    public final static String   WINDOW_TITLE       = "Combat Tracker" + " - " + "Round: ";
-    private JComboBox<Creature>  cboCreatureList    = null;
-    private LinkedList<Creature> characterList      = null;
-    private LinkedList<Creature> creatureList       = null;
-    private Creature             curCreature        = null;
-    private int                  curCreatureIndex   = 0;
-    private boolean              isDebugging        = false;
-    private JLabel               lblCurrentCreature = null;
-    private LinkedList<Creature> monsterList        = null;
-    private int                  numCharacters      = 0;
-    private int                  numMonsterTypes    = 0;
-    private int                  numRounds          = 0;
-    private DiceBag              parent             = null;
-    private ApplicationWindow    window             = null;
+    // Binds the target list to the turn order. The combo box reads its rows straight from the roster, and only the rows the roster reports
+    // as changed are repainted, so keeping the list current costs the same however many creatures are in the fight.
+    public final static class RosterComboBoxModel extends AbstractListModel<Creature> implements ComboBoxModel<Creature>, ListDataListener
+    {
+        private final static long serialVersionUID = 1L;
+        private final Roster      roster;
+        private Object            selectedItem     = null;
+        
+        public RosterComboBoxModel(final Roster roster)
+        {
+            this.roster = roster;
+            this.roster.addListDataListener(this);
+        }
+        
+        @Override
+        public final void contentsChanged(final ListDataEvent event)
+        {
+            this.fireContentsChanged(this, event.getIndex0(), event.getIndex1());
+        }
+        
+        @Override
+        public final Creature getElementAt(final int index)
+        {
+            return this.roster.get(index);
+        }
+        
+        public final Roster getRoster()
+        {
+            return this.roster;
+        }
+        
+        @Override
+        public final Object getSelectedItem()
+        {
+            return this.selectedItem;
+        }
+        
+        public final int getSelectedIndex()
+        {
+            return ((this.selectedItem == null) ? -1 : this.roster.indexOf(this.selectedItem));
+        }
+        
+        @Override
+        public final int getSize()
+        {
+            return this.roster.size();
+        }
+        
+        @Override
+        public final void intervalAdded(final ListDataEvent event)
+        {
+            this.fireIntervalAdded(this, event.getIndex0(), event.getIndex1());
+        }
+        
+        @Override
+        public final void intervalRemoved(final ListDataEvent event)
+        {
+            this.fireIntervalRemoved(this, event.getIndex0(), event.getIndex1());
+        }
+        
+        @Override
+        public final void setSelectedItem(final Object item)
+        {
+            if (this.selectedItem != item)
+            {
+                this.selectedItem = item;
+                this.fireContentsChanged(this, -1, -1);
+            }
+        }
+        
+        // Stops following the roster, once the combo box has been given a model for a new one.
+        public final void unbind()
+        {
+            this.roster.removeListDataListener(this);
+        }
+    }
+    
+    private final static long   serialVersionUID   = 1L;
+    public final static String  WINDOW_TITLE       = "Combat Tracker" + " - " + "Round: ";
+    private JComboBox<Creature> cboCreatureList    = null;
+    private CombatEngine        engine             = null;
+    private boolean             isDebugging        = false;
+    private JLabel              lblCurrentCreature = null;
+    private int                 numCharacters      = 0;
+    private int                 numMonsterTypes    = 0;
+    private DiceBag             parent             = null;
+    private ApplicationWindow   window             = null;
     
     public CombatTracker(final DiceBag parent, final boolean isDebugging)
     {
         this.setParent(parent);
         this.setDebugging(isDebugging);
+        this.setEngine(new CombatEngine(parent.getRandomSource()));
+        this.getEngine().addListener(new CombatLog(parent.getLog()));
+        this.getEngine().setHistory(new CombatHistory());
         this.reset(1);
         
         // Define a self-contained ActionListener event handler.
@@ -77,7 +173,7 @@ public class CombatTracker implements Serializable
                 ActionEvent actionEvent = (ActionEvent)event;
                 CombatTracker cTracker = this.getParent();
                 ApplicationWindow cWindow = cTracker.getWindow();
-                RichTextPane output = cTracker.getParent().getOutput();
+                final RollLog output = cTracker.getParent().getLog();
                 Creature current = null;
                 Creature target = null;
 
@@ -116,8 +212,8 @@ public class CombatTracker implements Serializable
 
                                 if (amount != 0)
                                 {
-                                    target.damage(amount);
-                                    cWindow.reDrawGUI();
+                                    cTracker.getEngine().damage(target, amount);
+                                    cTracker.refreshView();
                                 }
                             }
                             break;
@@ -131,8 +227,49 @@ public class CombatTracker implements Serializable
 
                                 if (amount != 0)
                                 {
-                                    target.heal(amount);
-                                    cWindow.reDrawGUI();
+                                    cTracker.getEngine().heal(target, amount);
+                                    cTracker.refreshView();
+                                }
+                            }
+                            break;
+
+                        case "Damage Area":
+
+                            final List<Creature> damaged = cTracker.selectTargets(target, current, "Damage Area");
+
+                            if ((damaged != null) && !damaged.isEmpty())
+                            {
+                                int amount = cTracker.getIntegerInputString("How much?\nEnter zero to cancel.", "Damage Area");
+
+                                if (amount > 0)
+                                {
+                                    Constants35E.Saves save = null;
+                                    int difficulty = 0;
+
+                                    if (cTracker.getChoiceInput("Can the targets save for half damage?", "Damage Area"))
+                                    {
+                                        save = cTracker.getSaveInput("Which saving throw?", "Damage Area");
+                                        difficulty = cTracker.getIntegerInputString("What is the save DC?", "Damage Area");
+                                    }
+
+                                    cTracker.getEngine().damageAll(damaged, amount, save, difficulty);
+                                    cTracker.refreshView();
+                                }
+                            }
+                            break;
+
+                        case "Heal Area":
+
+                            final List<Creature> healed = cTracker.selectTargets(target, current, "Heal Area");
+
+                            if ((healed != null) && !healed.isEmpty())
+                            {
+                                int amount = cTracker.getIntegerInputString("How much?\nEnter zero to cancel.", "Heal Area");
+
+                                if (amount > 0)
+                                {
+                                    cTracker.getEngine().healAll(healed, amount);
+                                    cTracker.refreshView();
                                 }
                             }
                             break;
@@ -146,20 +283,71 @@ public class CombatTracker implements Serializable
                                     + prevPosition
                                     + " to cancel.", "Move " + target.getStatBlock().getName());
 
-                                if (!nextPosition.equals(prevPosition))
+                                if (cTracker.getEngine().move(target, BattleGrid.parse(nextPosition)))
                                 {
-                                    target.getStatBlock().setPosition(nextPosition);
-                                    output.append(Color.BLACK,
-                                        Color.WHITE,
-                                        "[" + Support.getDateTimeStamp() + "]: ",
-                                        Color.BLUE,
-                                        Color.WHITE,
-                                        "Moving " + target.getStatBlock().getName() + " from " + prevPosition + " to " + nextPosition + ".\n\n");
-                                    cWindow.reDrawGUI();
+                                    cTracker.refreshView();
+                                }
+                            }
+                            break;
+
+                        case "Creatures Near Target":
+
+                            if ((target != null) && (target.getStatBlock().getCoordinates() != BattleGrid.NOWHERE))
+                            {
+                                int feet = cTracker.getIntegerInputString("Within how many feet?\nEnter zero to cancel.", "Creatures Near " + target
+                                    .getStatBlock().getName());
+
+                                if (feet > 0)
+                                {
+                                    cTracker.listNear(target, feet);
                                 }
                             }
                             break;
 
+                        case "Toggle Condition":
+
+                            if (target != null)
+                            {
+                                final Constants35E.Effects effect = cTracker.getEffectInput("Which condition does the target gain or lose?",
+                                    "Toggle Condition on " + target.getStatBlock().getName());
+
+                                if (effect != null)
+                                {
+                                    final boolean isOn = !((StatBlock35E)target.getStatBlock()).hasEffect(effect);
+
+                                    cTracker.getEngine().setEffect(target, effect, isOn);
+                                    cTracker.refreshView();
+                                }
+                            }
+                            break;
+
+                        case "Creatures With Condition":
+
+                            if (target != null)
+                            {
+                                final Constants35E.Effects effect = cTracker.getEffectInput("Which condition?", "Creatures With Condition");
+
+                                if (effect != null)
+                                {
+                                    int feet = ((target.getStatBlock().getCoordinates() == BattleGrid.NOWHERE) ? 0 : cTracker
+                                        .getIntegerInputString("Within how many feet of " + target.getStatBlock().getName() + "?" +
+                                            "\nEnter zero for anywhere.", "Creatures With Condition"));
+
+                                    cTracker.listCondition(effect, target, feet);
+                                }
+                            }
+                            break;
+
+                        case "Ready Target":
+
+                            // A dead creature cannot act on a readied action, and the current creature is already acting.
+                            if ((target != current) && !target.isDead())
+                            {
+                                cTracker.getEngine().ready(target);
+                                cTracker.refreshView();
+                            }
+                            break;
+
                         case "Save Current":
 
                             if (current != null)
@@ -177,8 +365,8 @@ public class CombatTracker implements Serializable
 
                                 if (amount != 0)
                                 {
-                                    current.damage(amount);
-                                    cWindow.reDrawGUI();
+                                    cTracker.getEngine().damage(current, amount);
+                                    cTracker.refreshView();
                                 }
                             }
                             break;
@@ -192,8 +380,8 @@ public class CombatTracker implements Serializable
 
                                 if (amount != 0)
                                 {
-                                    current.heal(amount);
-                                    cWindow.reDrawGUI();
+                                    cTracker.getEngine().heal(current, amount);
+                                    cTracker.refreshView();
                                 }
                             }
                             break;
@@ -206,42 +394,127 @@ public class CombatTracker implements Serializable
                                 String nextPosition = cTracker.getCoordinateInputString("Where to? Prompt expects XX:YY coordinates." + "\nEnter "
                                     + prevPosition
                                     + " to cancel.", "Move " + current.getStatBlock().getName());
-                                if (!nextPosition.equals(prevPosition))
+
+                                if (cTracker.getEngine().move(current, BattleGrid.parse(nextPosition)))
+                                {
+                                    cTracker.refreshView();
+                                }
+                            }
+                            break;
+
+                        case "Delay Current":
+
+                            if (target != current)
+                            {
+                                // The current creature's turn ends first, so the turn passes on from where it stood before it moves.
+                                cTracker.nextCombatant();
+                                cTracker.getEngine().delay(current, target);
+                                cTracker.refreshView();
+                            }
+                            break;
+
+                        case "Next Combatant":
+
+                            cTracker.nextCombatant();
+                            break;
+
+                        case "Undo":
+
+                            if (cTracker.getEngine().undo() != null)
+                            {
+                                cTracker.refreshView();
+                            }
+                            break;
+
+                        case "Redo":
+
+                            if (cTracker.getEngine().redo() != null)
+                            {
+                                cTracker.refreshView();
+                            }
+                            break;
+
+                        case "Jump to Round":
+
+                            final int round = cTracker.getIntegerInputString("Which round?\nEnter zero to cancel.", "Jump to Round");
+
+                            if (round > 0)
+                            {
+                                if (cTracker.getEngine().jumpToRound(round))
+                                {
+                                    cTracker.refreshView();
+                                }
+                                else
                                 {
-                                    current.getStatBlock().setPosition(nextPosition);
                                     output.append(Color.BLACK,
                                         Color.WHITE,
                                         "[" + Support.getDateTimeStamp() + "]: ",
                                         Color.BLUE,
                                         Color.WHITE,
-                                        "Moving " + current.getStatBlock().getName() + " from " + prevPosition + " to " + nextPosition + ".\n\n");
-                                    cWindow.reDrawGUI();
+                                        "Round " + round + " has not been reached in this encounter.\n\n");
                                 }
                             }
                             break;
 
-                        case "Next Combatant":
+                        case "Simulate Combat":
 
-                            try
+                            final int trials = cTracker.getIntegerInputString("How many combats?\nEnter zero to cancel.", "Simulate Combat");
+
+                            if (trials > 0)
                             {
-                                Creature next = cTracker.nextCombatant();
-
-                                output.append(Color.BLACK,
-                                    Color.WHITE,
-                                    "[" + Support.getDateTimeStamp() + "]: ",
-                                    Color.BLACK,
-                                    Color.WHITE,
-                                    "Next Combatant:\n",
-                                    Color.GRAY,
-                                    Color.WHITE,
-                                    "\t\t\t   " + next.toString() + "\n\n");
+                                // The roster is copied now, and the seed drawn now, so the simulation can run off the event dispatch thread
+                                // while combat goes on; its report is queued to the log when it finishes.
+                                final CombatSimulator simulator = new CombatSimulator(cTracker.getCharacterList(), cTracker.getMonsterList());
+                                final long seed = cTracker.getParent().getRandomSource().nextLong();
+                                final Thread thread = new Thread(new Runnable()
+                                {
+                                    @Override
+                                    public final void run()
+                                    {
+                                        output.append(Color.BLACK,
+                                            Color.WHITE,
+                                            "[" + Support.getDateTimeStamp() + "]: ",
+                                            Color.BLUE,
+                                            Color.WHITE,
+                                            "Simulation:\n",
+                                            Color.GRAY,
+                                            Color.WHITE,
+                                            simulator.run(trials, seed).toString() + "\n");
+                                    }
+                                }, "Combat simulation");
+
+                                thread.setDaemon(true);
+                                thread.start();
                             }
-                            catch (final Exception e)
+                            break;
+
+                        case "Spawn Monsters":
+
+                            if (!cTracker.spawnMonsters().isEmpty())
                             {
-                                break;
+                                cTracker.refreshView();
                             }
                             break;
 
+                        case "Open Encounter":
+
+                            if (cTracker.openEncounter())
+                            {
+                                cTracker.refreshView();
+                            }
+                            break;
+
+                        case "Save Encounter":
+
+                            cTracker.saveEncounter();
+                            break;
+
+                        case "Add Combatant":
+
+                            cTracker.addCombatant();
+                            cTracker.refreshView();
+                            break;
+
                         case "Reset All Creatures":
 
                             output.append(Color.BLACK,
@@ -251,7 +524,7 @@ public class CombatTracker implements Serializable
                                 Color.WHITE,
                                 "Resetting All Parameters...\n\n");
                             cTracker.reset(1);
-                            cWindow.reDrawGUI();
+                            cTracker.refreshView();
                             break;
 
                         case "Reset Characters Only":
@@ -263,7 +536,7 @@ public class CombatTracker implements Serializable
                                 Color.WHITE,
                                 "Resetting Character Parameters...\n\n");
                             cTracker.reset(2);
-                            cWindow.reDrawGUI();
+                            cTracker.refreshView();
                             break;
 
                         case "Reset Monsters Only":
@@ -275,7 +548,7 @@ public class CombatTracker implements Serializable
                                 Color.WHITE,
                                 "Resetting Monster Parameters...\n\n");
                             cTracker.reset(3);
-                            cWindow.reDrawGUI();
+                            cTracker.refreshView();
                             break;
 
                         default:
@@ -302,17 +575,34 @@ public class CombatTracker implements Serializable
                 JMenuItem optSave = new JMenuItem("Save Target");
                 JMenuItem optDamage = new JMenuItem("Damage Target");
                 JMenuItem optHeal = new JMenuItem("Heal Target");
+                JMenuItem optDamageArea = new JMenuItem("Damage Area");
+                JMenuItem optHealArea = new JMenuItem("Heal Area");
                 JMenuItem optMove = new JMenuItem("Move Target");
+                JMenuItem optReady = new JMenuItem("Ready Target");
+                JMenuItem optNear = new JMenuItem("Creatures Near Target");
+                JMenuItem optCondition = new JMenuItem("Toggle Condition");
+                JMenuItem optWith = new JMenuItem("Creatures With Condition");
                 JMenu currentMenu = new JMenu("Current Actions");
                 JMenuItem opcSave = new JMenuItem("Save Current");
                 JMenuItem opcDamage = new JMenuItem("Damage Current");
                 JMenuItem opcHeal = new JMenuItem("Heal Current");
                 JMenuItem opcMove = new JMenuItem("Move Current");
+                JMenuItem opcDelay = new JMenuItem("Delay Current");
                 JMenuItem opcNext = new JMenuItem("Next Combatant");
                 JMenu resetMenu = new JMenu("Reset Combat");
                 JMenuItem oprAll = new JMenuItem("Reset All Creatures");
                 JMenuItem oprChars = new JMenuItem("Reset Characters Only");
                 JMenuItem oprMons = new JMenuItem("Reset Monsters Only");
+                JMenuItem oprAdd = new JMenuItem("Add Combatant");
+                JMenuItem oprSpawn = new JMenuItem("Spawn Monsters");
+                JMenuItem oprOpen = new JMenuItem("Open Encounter");
+                JMenuItem oprSave = new JMenuItem("Save Encounter");
+                JMenu historyMenu = new JMenu("History");
+                JMenuItem ophUndo = new JMenuItem("Undo");
+                JMenuItem ophRedo = new JMenuItem("Redo");
+                JMenuItem ophJump = new JMenuItem("Jump to Round");
+                JMenu simulationMenu = new JMenu("Simulation");
+                JMenuItem opsSimulate = new JMenuItem("Simulate Combat");
                 JLabel curLabel = new JLabel("Current: " + cTracker.getCurrentCreature().toString());
                 JPanel curPanel = new JPanel();
                 JLabel cboLabel = new JLabel("Target: ");
@@ -326,8 +616,20 @@ public class CombatTracker implements Serializable
                 optDamage.addActionListener(cWindow);
                 optHeal.setFont(Support.DEFAULT_TEXT_FONT);
                 optHeal.addActionListener(cWindow);
+                optDamageArea.setFont(Support.DEFAULT_TEXT_FONT);
+                optDamageArea.addActionListener(cWindow);
+                optHealArea.setFont(Support.DEFAULT_TEXT_FONT);
+                optHealArea.addActionListener(cWindow);
                 optMove.setFont(Support.DEFAULT_TEXT_FONT);
                 optMove.addActionListener(cWindow);
+                optReady.setFont(Support.DEFAULT_TEXT_FONT);
+                optReady.addActionListener(cWindow);
+                optNear.setFont(Support.DEFAULT_TEXT_FONT);
+                optNear.addActionListener(cWindow);
+                optCondition.setFont(Support.DEFAULT_TEXT_FONT);
+                optCondition.addActionListener(cWindow);
+                optWith.setFont(Support.DEFAULT_TEXT_FONT);
+                optWith.addActionListener(cWindow);
                 currentMenu.setFont(Support.DEFAULT_TEXT_FONT);
                 opcSave.setFont(Support.DEFAULT_TEXT_FONT);
                 opcSave.addActionListener(cWindow);
@@ -337,6 +639,8 @@ public class CombatTracker implements Serializable
                 opcHeal.addActionListener(cWindow);
                 opcMove.setFont(Support.DEFAULT_TEXT_FONT);
                 opcMove.addActionListener(cWindow);
+                opcDelay.setFont(Support.DEFAULT_TEXT_FONT);
+                opcDelay.addActionListener(cWindow);
                 opcNext.setFont(Support.DEFAULT_TEXT_FONT);
                 opcNext.addActionListener(cWindow);
                 resetMenu.setFont(Support.DEFAULT_TEXT_FONT);
@@ -346,6 +650,24 @@ public class CombatTracker implements Serializable
                 oprChars.addActionListener(cWindow);
                 oprMons.setFont(Support.DEFAULT_TEXT_FONT);
                 oprMons.addActionListener(cWindow);
+                oprAdd.setFont(Support.DEFAULT_TEXT_FONT);
+                oprAdd.addActionListener(cWindow);
+                oprSpawn.setFont(Support.DEFAULT_TEXT_FONT);
+                oprSpawn.addActionListener(cWindow);
+                oprOpen.setFont(Support.DEFAULT_TEXT_FONT);
+                oprOpen.addActionListener(cWindow);
+                oprSave.setFont(Support.DEFAULT_TEXT_FONT);
+                oprSave.addActionListener(cWindow);
+                historyMenu.setFont(Support.DEFAULT_TEXT_FONT);
+                ophUndo.setFont(Support.DEFAULT_TEXT_FONT);
+                ophUndo.addActionListener(cWindow);
+                ophRedo.setFont(Support.DEFAULT_TEXT_FONT);
+                ophRedo.addActionListener(cWindow);
+                ophJump.setFont(Support.DEFAULT_TEXT_FONT);
+                ophJump.addActionListener(cWindow);
+                simulationMenu.setFont(Support.DEFAULT_TEXT_FONT);
+                opsSimulate.setFont(Support.DEFAULT_TEXT_FONT);
+                opsSimulate.addActionListener(cWindow);
                 targetMenu.setMnemonic('T');
                 optSave.setMnemonic('S');
                 optSave.setAccelerator(KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_S, java.awt.event.KeyEvent.ALT_DOWN_MASK));
@@ -353,8 +675,20 @@ public class CombatTracker implements Serializable
                 optDamage.setAccelerator(KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_D, java.awt.event.KeyEvent.ALT_DOWN_MASK));
                 optHeal.setMnemonic('H');
                 optHeal.setAccelerator(KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_H, java.awt.event.KeyEvent.ALT_DOWN_MASK));
+                optDamageArea.setMnemonic('A');
+                optDamageArea.setAccelerator(KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_A, java.awt.event.KeyEvent.ALT_DOWN_MASK));
+                optHealArea.setMnemonic('E');
+                optHealArea.setAccelerator(KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_E, java.awt.event.KeyEvent.ALT_DOWN_MASK));
                 optMove.setMnemonic('M');
                 optMove.setAccelerator(KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_M, java.awt.event.KeyEvent.ALT_DOWN_MASK));
+                optReady.setMnemonic('R');
+                optReady.setAccelerator(KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_R, java.awt.event.KeyEvent.ALT_DOWN_MASK));
+                optNear.setMnemonic('N');
+                optNear.setAccelerator(KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_N, java.awt.event.KeyEvent.ALT_DOWN_MASK));
+                optCondition.setMnemonic('C');
+                optCondition.setAccelerator(KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_C, java.awt.event.KeyEvent.ALT_DOWN_MASK));
+                optWith.setMnemonic('W');
+                optWith.setAccelerator(KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_W, java.awt.event.KeyEvent.ALT_DOWN_MASK));
                 currentMenu.setMnemonic('C');
                 opcSave.setMnemonic('S');
                 opcSave.setAccelerator(KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_S, java.awt.event.KeyEvent.CTRL_DOWN_MASK));
@@ -364,6 +698,8 @@ public class CombatTracker implements Serializable
                 opcHeal.setAccelerator(KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_H, java.awt.event.KeyEvent.CTRL_DOWN_MASK));
                 opcMove.setMnemonic('M');
                 opcMove.setAccelerator(KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_M, java.awt.event.KeyEvent.CTRL_DOWN_MASK));
+                opcDelay.setMnemonic('L');
+                opcDelay.setAccelerator(KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_L, java.awt.event.KeyEvent.CTRL_DOWN_MASK));
                 opcNext.setMnemonic('N');
                 opcNext.setAccelerator(KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_N, java.awt.event.KeyEvent.CTRL_DOWN_MASK));
                 resetMenu.setMnemonic('R');
@@ -373,23 +709,89 @@ public class CombatTracker implements Serializable
                 oprChars.setAccelerator(KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_C, java.awt.event.KeyEvent.SHIFT_DOWN_MASK));
                 oprMons.setMnemonic('M');
                 oprMons.setAccelerator(KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_M, java.awt.event.KeyEvent.SHIFT_DOWN_MASK));
+                oprAdd.setMnemonic('D');
+                oprAdd.setAccelerator(KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_D, java.awt.event.KeyEvent.SHIFT_DOWN_MASK));
+                oprSpawn.setMnemonic('P');
+                oprSpawn.setAccelerator(KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_P, java.awt.event.KeyEvent.SHIFT_DOWN_MASK));
+                oprOpen.setMnemonic('O');
+                oprOpen.setAccelerator(KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_O, java.awt.event.KeyEvent.SHIFT_DOWN_MASK));
+                oprSave.setMnemonic('V');
+                oprSave.setAccelerator(KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_V, java.awt.event.KeyEvent.SHIFT_DOWN_MASK));
+                historyMenu.setMnemonic('H');
+                ophUndo.setMnemonic('U');
+                ophUndo.setAccelerator(KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_Z, java.awt.event.KeyEvent.CTRL_DOWN_MASK));
+                ophRedo.setMnemonic('R');
+                ophRedo.setAccelerator(KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_Y, java.awt.event.KeyEvent.CTRL_DOWN_MASK));
+                ophJump.setMnemonic('J');
+                ophJump.setAccelerator(KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_J, java.awt.event.KeyEvent.CTRL_DOWN_MASK));
+                simulationMenu.setMnemonic('S');
+                opsSimulate.setMnemonic('S');
+                opsSimulate.setAccelerator(KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_S, java.awt.event.KeyEvent.SHIFT_DOWN_MASK));
                 targetMenu.add(optSave);
                 targetMenu.add(optDamage);
                 targetMenu.add(optHeal);
+                targetMenu.add(optDamageArea);
+                targetMenu.add(optHealArea);
                 targetMenu.add(optMove);
+                targetMenu.add(optReady);
+                targetMenu.addSeparator();
+                targetMenu.add(optCondition);
+                targetMenu.addSeparator();
+                targetMenu.add(optNear);
+                targetMenu.add(optWith);
                 currentMenu.add(opcSave);
                 currentMenu.add(opcDamage);
                 currentMenu.add(opcHeal);
                 currentMenu.add(opcMove);
+                currentMenu.add(opcDelay);
                 currentMenu.addSeparator();
                 currentMenu.add(opcNext);
                 resetMenu.add(oprAll);
                 resetMenu.add(oprChars);
                 resetMenu.add(oprMons);
+                resetMenu.addSeparator();
+                resetMenu.add(oprAdd);
+                resetMenu.add(oprSpawn);
+                resetMenu.addSeparator();
+                resetMenu.add(oprOpen);
+                resetMenu.add(oprSave);
+                historyMenu.add(ophUndo);
+                historyMenu.add(ophRedo);
+                historyMenu.addSeparator();
+                historyMenu.add(ophJump);
+                simulationMenu.add(opsSimulate);
                 menuBar.add(targetMenu);
                 menuBar.add(currentMenu);
                 menuBar.add(resetMenu);
-                cTracker.setCboCreatureList(new JComboBox<Creature>());
+                menuBar.add(historyMenu);
+                menuBar.add(simulationMenu);
+                cTracker.setCboCreatureList(new JComboBox<Creature>(new RosterComboBoxModel(cTracker.getCreatureList()))
+                {
+                    private final static long serialVersionUID = 1L;
+
+                    // The roster finds a creature's position in O(log n), where JComboBox would search the whole list for it.
+                    @Override
+                    public final int getSelectedIndex()
+                    {
+                        return ((RosterComboBoxModel)this.getModel()).getSelectedIndex();
+                    }
+                });
+
+                // Every row is formatted to the same width, so the combo box and its popup list are sized from one creature instead of
+                // measuring them all; the popup list would otherwise measure every row each time the selection is scrolled into view.
+                Object popup = cTracker.getCboCreatureList().getUI().getAccessibleChild(cTracker.getCboCreatureList(), 0);
+
+                cTracker.getCboCreatureList().setPrototypeDisplayValue(cTracker.getCurrentCreature());
+
+                if (popup instanceof ComboPopup)
+                {
+                    // The popup list is only typed as a raw JList, though it always holds the model's creatures.
+                    @SuppressWarnings("unchecked")
+                    JList<Object> popupList = ((ComboPopup)popup).getList();
+
+                    popupList.setPrototypeCellValue(cTracker.getCurrentCreature());
+                }
+
                 cTracker.getCboCreatureList().setFont(Support.DEFAULT_TEXT_FONT);
                 cTracker.getCboCreatureList().setEditable(false);
                 cboLabel.setFont(Support.DEFAULT_TEXT_FONT);
@@ -403,13 +805,7 @@ public class CombatTracker implements Serializable
                 contentPane.add(curPanel, BorderLayout.NORTH);
                 contentPane.add(cboPanel, BorderLayout.CENTER);
                 cTracker.setLblCurrentCreature(curLabel);
-
-                for (int i = 0; i < cTracker.getCreatureList().size(); i++)
-                {
-                    cTracker.getCboCreatureList().addItem(cTracker.getCreatureList().get(i));
-                }
-
-                cTracker.getCboCreatureList().setSelectedIndex(cTracker.getCreatureList().indexOf(cTracker.getCurrentCreature()));
+                cTracker.getCboCreatureList().getModel().setSelectedItem(cTracker.getCurrentCreature());
                 cWindow.setJMenuBar(menuBar);
                 cWindow.setTitle(CombatTracker.WINDOW_TITLE + cTracker.getNumRounds());
             }
@@ -428,14 +824,44 @@ public class CombatTracker implements Serializable
         // @formatter:on
     }
     
+    // Prompts for a character or monster joining the fight part way through, rolls its initiative and adds it to the encounter.
+    public final Creature addCombatant()
+    {
+        final boolean isCharacter = this.getChoiceInput("Is the new combatant a character?\nChoose no for a monster.", "Add Combatant");
+        final String name = this.getInputString("What is the name of the new combatant?", "Add Combatant");
+        final String position = this.getCoordinateInputString("What is the battle grid position of " + name +
+            "?" +
+            "\nPrompt expects XX:YY coordinates.", "Add Combatant");
+        
+        final int curHealth = this.getIntegerInputString("What is the current HP of " + name + "?", "Add Combatant");
+        final int maxHealth = this.getIntegerInputString("What is the maximum HP of " + name + "?", "Add Combatant");
+        final int initBonus = this.getIntegerInputString("What is the initiative modifier of " + name + "?", "Add Combatant");
+        final StatBlock35E statBlock = new StatBlock35E(curHealth, initBonus, maxHealth, name, position);
+        
+        this.promptAttackProfile(statBlock, name, "Add Combatant");
+        this.promptSaveBonuses(statBlock, name, "Add Combatant");
+        
+        final Creature creature = new Creature35E(this.getEngine(), statBlock);
+        
+        creature.updateStatus();
+        creature.rollInitiative(false);
+        this.getEngine().join(creature, isCharacter);
+        return creature;
+    }
+    
+    public final BattleGrid getBattleGrid()
+    {
+        return this.getEngine().getBattleGrid();
+    }
+    
     public final JComboBox<Creature> getCboCreatureList()
     {
         return this.cboCreatureList;
     }
     
-    public final LinkedList<Creature> getCharacterList()
+    public final Roster getCharacterList()
     {
-        return this.characterList;
+        return this.getEngine().getCharacterList();
     }
     
     public final boolean getChoiceInput(final String message, final String title)
@@ -471,19 +897,61 @@ public class CombatTracker implements Serializable
         return s;
     }
     
-    public final LinkedList<Creature> getCreatureList()
+    public final Roster getCreatureList()
     {
-        return this.creatureList;
+        return this.getEngine().getCreatureList();
     }
     
     public final int getCurCreatureIndex()
     {
-        return this.curCreatureIndex;
+        return this.getCreatureList().getCurrentIndex();
     }
     
     public final Creature getCurrentCreature()
     {
-        return this.curCreature;
+        return this.getEngine().getCurrentCreature();
+    }
+    
+    // Prompts until the answer is a dice expression that can be thrown, and returns it.
+    public final String getDiceInputString(final String message, final String title)
+    {
+        while (true)
+        {
+            try
+            {
+                return DiceExpression.compile(this.getInputString(message, title)).getSource();
+            }
+            catch (final IllegalArgumentException exception)
+            {
+                // Ask again.
+            }
+        }
+    }
+    
+    // Prompts for an effect by name, such as "frightened" or "flat footed", returning null if the input names none.
+    public final Constants35E.Effects getEffectInput(final String message, final String title)
+    {
+        final String input = this.getInputString(message + "\nEnter a condition such as blinded, flat footed, frightened or prone.", title);
+        
+        if (input != null)
+        {
+            final String name = input.trim().replace(' ', '_').replace('-', '_');
+            
+            for (final Constants35E.Effects effect : Constants35E.Effects.values())
+            {
+                if (effect.name().equalsIgnoreCase(name))
+                {
+                    return effect;
+                }
+            }
+        }
+        
+        return null;
+    }
+    
+    public final CombatEngine getEngine()
+    {
+        return this.engine;
     }
     
     public final String getInputString(final String message, final String title)
@@ -501,9 +969,9 @@ public class CombatTracker implements Serializable
         return this.lblCurrentCreature;
     }
     
-    public final LinkedList<Creature> getMonsterList()
+    public final Roster getMonsterList()
     {
-        return this.monsterList;
+        return this.getEngine().getMonsterList();
     }
     
     public final int getNumCharacters()
@@ -518,7 +986,7 @@ public class CombatTracker implements Serializable
     
     public final int getNumRounds()
     {
-        return this.numRounds;
+        return this.getEngine().getNumRounds();
     }
     
     public final DiceBag getParent()
@@ -526,6 +994,25 @@ public class CombatTracker implements Serializable
         return this.parent;
     }
     
+    // Prompts for a saving throw by its initial, returning null if the prompt is cancelled.
+    public final Constants35E.Saves getSaveInput(final String message, final String title)
+    {
+        final String input = this.getInputString(message + "\nEnter F for Fortitude, R for Reflex or W for Will.", title);
+        
+        if (input != null)
+        {
+            for (final Constants35E.Saves save : Constants35E.Saves.values())
+            {
+                if (input.trim().equalsIgnoreCase(save.name().substring(0, 1)))
+                {
+                    return save;
+                }
+            }
+        }
+        
+        return null;
+    }
+    
     public final ApplicationWindow getWindow()
     {
         if (this.window != null)
@@ -543,114 +1030,173 @@ public class CombatTracker implements Serializable
         return this.isDebugging;
     }
     
-    public Creature nextCombatant()
+    // Logs every creature with the effect in one block: those within the given number of feet of the creature, nearest first, or all of
+    // them in turn order if the distance is zero. Only the creatures with the effect are read.
+    public final List<Creature> listCondition(final Constants35E.Effects effect, final Creature creature, final int feet)
     {
-        int index = this.getCurCreatureIndex();
-        Creature creature = null;
+        final List<Creature> found = ((feet > 0) ? this.getEngine().withEffect(effect, creature.getStatBlock().getCoordinates(), feet)
+            : this.getEngine().withEffect(effect));
+        final String name = effect.name().toLowerCase().replace('_', ' ');
+        final RollLog log = this.getParent().getLog();
         
-        do
+        log.append(Color.BLACK,
+            Color.WHITE,
+            "[" + Support.getDateTimeStamp() + "]: ",
+            Color.BLUE,
+            Color.WHITE,
+            "Creatures that are " + name + ((feet > 0) ? (" within " + feet + " feet of " + creature.getStatBlock().getName()) : "") + ":" +
+                (found.isEmpty() ? " none.\n" : "\n"));
+        
+        for (final Creature other : found)
         {
-            index++;
+            log.append(Color.GRAY, Color.WHITE, "\t\t\t   " + other.toString() + "\n");
+        }
+        
+        log.append(Color.BLACK, Color.WHITE, "\n");
+        return found;
+    }
+    
+    // Logs every other creature within the given number of feet of the creature, nearest first, in one block.
+    public final List<Creature> listNear(final Creature creature, final int feet)
+    {
+        final int center = creature.getStatBlock().getCoordinates();
+        final List<Creature> near = this.getEngine().near(creature, feet);
+        final RollLog log = this.getParent().getLog();
+        
+        log.append(Color.BLACK,
+            Color.WHITE,
+            "[" + Support.getDateTimeStamp() + "]: ",
+            Color.BLUE,
+            Color.WHITE,
+            "Within " + feet + " feet of " + creature.getStatBlock().getName() + ":" + (near.isEmpty() ? " no one.\n" : "\n"));
+        
+        for (final Creature other : near)
+        {
+            final int squares = BattleGrid.distance(center, other.getStatBlock().getCoordinates());
             
-            if (index >= this.getCreatureList().size())
-            {
-                this.setNumRounds(this.getNumRounds() + 1);
-                index = 0;
-                
-                this.getParent()
-                    .getOutput()
-                    .append(Color.BLACK,
-                        Color.WHITE,
-                        "[" + Support.getDateTimeStamp() + "]: ",
-                        Color.MAGENTA,
-                        Color.WHITE,
-                        "- Round " + this.getNumRounds() + " -\n\n");
-            }
+            log.append(Color.GRAY, Color.WHITE, "\t\t\t   " + other.toString() + " (" + (squares * BattleGrid.FEET_PER_SQUARE) + " ft.)\n");
+        }
+        
+        log.append(Color.BLACK, Color.WHITE, "\n");
+        return near;
+    }
+    
+    // Passes the turn to the next living creature and redraws. Returns null, and leaves the turn where it is, if every creature is dead.
+    public Creature nextCombatant()
+    {
+        final long startTime = System.nanoTime();
+        final Creature next = this.getEngine().nextTurn();
+        
+        if (next != null)
+        {
+            this.refreshView();
+            Metrics.NEXT_COMBATANT_TIME.record(startTime);
+        }
+        
+        return next;
+    }
+    
+    // Prompts for an encounter file and replaces the encounter with the one saved in it, returning false if none was opened.
+    public final boolean openEncounter()
+    {
+        final String filePath = Support.getFilePath(this.getWindow(), true, this.isDebugging());
+        
+        if ((filePath == null) || filePath.isEmpty())
+        {
+            return false;
+        }
+        
+        try
+        {
+            this.getEngine().load(EncounterFile.load(Paths.get(filePath)));
+            return true;
+        }
+        catch (final IOException exception)
+        {
+            Support.displayException(this.getWindow(), exception, false);
+            return false;
+        }
+    }
+    
+    // Brings the window up to date without rebuilding it. The target list follows the turn order by itself, so it is only rebound when a
+    // reset replaces the turn order; otherwise the target goes back to the current creature and the current creature and round are shown.
+    // Prompts for the attack profile that the combat simulator plays out for a creature or a template: its armor class, the bonus it adds
+    // to attack rolls, and the dice thrown for the damage of each hit.
+    public final void promptAttackProfile(final StatBlock35E statBlock, final String subject, final String title)
+    {
+        statBlock.setArmorClass(this.getIntegerInputString("What is the armor class of " + subject + "?", title));
+        statBlock.setAttackBonus(this.getIntegerInputString("What is the attack bonus of " + subject + "?", title));
+        statBlock.setDamage(this.getDiceInputString("How much damage does a hit from " + subject + " deal?" +
+            "\nEnter a dice expression such as 1d8+2.", title));
+    }
+    
+    // Prompts for the Fortitude, Reflex and Will bonuses that a creature or a template adds to its saving throws against area effects.
+    public final void promptSaveBonuses(final StatBlock35E statBlock, final String subject, final String title)
+    {
+        for (final Constants35E.Saves save : Constants35E.Saves.values())
+        {
+            final String saveName = (save.name().charAt(0) + save.name().substring(1).toLowerCase());
             
-            creature = this.getCreatureList().get(index);
+            statBlock.setSaveBonus(save, this.getIntegerInputString("What is the " + saveName + " save bonus of " + subject + "?", title));
+        }
+    }
+    
+    public final void refreshView()
+    {
+        final long startTime = System.nanoTime();
+        
+        if ((this.getCboCreatureList() == null) || (this.getLblCurrentCreature() == null))
+        {
+            return;
         }
-        while (((Creature35E)creature).getStatBlock().getStatus() == Constants35E.Status.DEAD);
         
-        this.setCurCreatureIndex(index);
-        this.setCurrentCreature(this.getCreatureList().get(index));
-        this.getWindow().reDrawGUI();
+        final RosterComboBoxModel model = (RosterComboBoxModel)this.getCboCreatureList().getModel();
         
-        return this.getCurrentCreature();
+        if (model.getRoster() != this.getCreatureList())
+        {
+            model.unbind();
+            this.getCboCreatureList().setModel(new RosterComboBoxModel(this.getCreatureList()));
+        }
+        
+        // Selecting through the model skips the search JComboBox would make to check the creature is in the list.
+        this.getCboCreatureList().getModel().setSelectedItem(this.getCurrentCreature());
+        this.getLblCurrentCreature().setText("Current: " + this.getCurrentCreature().toString());
+        this.getWindow().setTitle(CombatTracker.WINDOW_TITLE + this.getNumRounds());
+        Metrics.REDRAW_TIME.record(startTime);
     }
     
+    // Prompts for the creatures of a new encounter and starts it. Mode 2 keeps the monsters and mode 3 keeps the characters; any other
+    // mode replaces both.
     public void reset(final int numMode)
     {
-        this.setNumRounds(1);
+        List<Creature> characterList = this.getCharacterList();
+        List<Creature> monsterList = this.getMonsterList();
         
         switch (numMode)
         {
-            case 1:
-                
-                this.resetCharacters();
-                this.resetMonsters();
-                break;
-            
             case 2:
                 
-                this.resetCharacters();
+                characterList = this.resetCharacters();
                 break;
             
             case 3:
                 
-                this.resetMonsters();
+                monsterList = this.resetMonsters(characterList);
                 break;
             
             default:
                 
-                this.resetCharacters();
-                this.resetMonsters();
+                characterList = this.resetCharacters();
+                monsterList = this.resetMonsters(characterList);
                 break;
         }
         
-        this.setCreatureList(new LinkedList<Creature>());
-        this.getCreatureList().addAll(this.getCharacterList());
-        this.getCreatureList().addAll(this.getMonsterList());
-        
-        Collections.sort(this.getCreatureList());
-        this.setCurrentCreature(this.getCreatureList().getFirst());
-        this.setCurCreatureIndex(this.getCreatureList().indexOf(this.getCurrentCreature()));
-        
-        this.getParent()
-            .getOutput()
-            .append(Color.BLACK, Color.WHITE, "[" + Support.getDateTimeStamp() + "]: ", Color.BLACK, Color.WHITE, "Initial Combatants:\n");
-        
-        for (int i = 0; i < this.getCreatureList().size(); i++)
-        {
-            this.getParent().getOutput().append(Color.GRAY, Color.WHITE, "\t\t\t   " + this.getCreatureList().get(i).toString() + "\n");
-        }
-        
-        this.getParent().getOutput().append(Color.BLACK, Color.WHITE, "\n");
-        
-        this.getParent()
-            .getOutput()
-            .append(Color.BLACK,
-                Color.WHITE,
-                "[" + Support.getDateTimeStamp() + "]: ",
-                Color.MAGENTA,
-                Color.WHITE,
-                "- Round " + this.getNumRounds() + " -\n\n");
-        
-        this.getParent()
-            .getOutput()
-            .append(Color.BLACK,
-                Color.WHITE,
-                "[" + Support.getDateTimeStamp() + "]: ",
-                Color.BLACK,
-                Color.WHITE,
-                "First Combatant:\n",
-                Color.GRAY,
-                Color.WHITE,
-                "\t\t\t   " + this.getCurrentCreature().toString() + "\n\n");
+        this.getEngine().start(characterList, monsterList);
     }
     
-    public void resetCharacters()
+    public List<Creature> resetCharacters()
     {
-        LinkedList<Creature> characterList = new LinkedList<Creature>();
+        Roster characterList = new Roster();
         this.setNumCharacters(this.getIntegerInputString("How many characters?", "Characters Setup"));
         
         for (int i = 1; i <= this.getNumCharacters(); i++)
@@ -659,7 +1205,7 @@ public class CombatTracker implements Serializable
             
             if (this.getChoiceInput("Would you like to load a previously saved character?", "Load Previously Saved Character?"))
             {
-                character = new Creature35E(this.getParent(), this, new StatBlock35E());
+                character = new Creature35E(this.getEngine(), new StatBlock35E());
                 character.openOrSaveFile(this.getWindow(), true, this.isDebugging());
                 
                 if (this.getChoiceInput("Would you like to change this character's current HP?", "Change HP?"))
@@ -683,6 +1229,18 @@ public class CombatTracker implements Serializable
                 {
                     character.rollInitiative(false);
                 }
+                
+                if (this.getChoiceInput("Would you like to change this character's attack profile?", "Change Attack Profile?"))
+                {
+                    this.promptAttackProfile((StatBlock35E)character.getStatBlock(),
+                        character.getStatBlock().getName(),
+                        "Characters Setup");
+                }
+                
+                if (this.getChoiceInput("Would you like to change this character's saving throws?", "Change Saving Throws?"))
+                {
+                    this.promptSaveBonuses((StatBlock35E)character.getStatBlock(), character.getStatBlock().getName(), "Characters Setup");
+                }
             }
             else
             {
@@ -695,7 +1253,11 @@ public class CombatTracker implements Serializable
                 final int maxHealth = this.getIntegerInputString("What is the maximum HP of " + name + "?", "Characters Setup");
                 final int initBonus = this.getIntegerInputString("What is the initiative modifier of " + name + "?", "Characters Setup");
                 
-                character = new Creature35E(this.getParent(), this, new StatBlock35E(curHealth, initBonus, maxHealth, name, position));
+                final StatBlock35E statBlock = new StatBlock35E(curHealth, initBonus, maxHealth, name, position);
+                
+                this.promptAttackProfile(statBlock, name, "Characters Setup");
+                this.promptSaveBonuses(statBlock, name, "Characters Setup");
+                character = new Creature35E(this.getEngine(), statBlock);
                 character.updateStatus();
                 character.rollInitiative(false);
             }
@@ -706,12 +1268,16 @@ public class CombatTracker implements Serializable
             }
         }
         
-        this.setCharacterList(characterList);
+        return characterList;
     }
     
-    public void resetMonsters()
+    // Prompts for the monsters of a new encounter with the given characters.
+    public List<Creature> resetMonsters(final List<Creature> characterList)
     {
-        LinkedList<Creature> monsterList = new LinkedList<Creature>();
+        Roster monsterList = new Roster();
+        // Spawned monsters are kept off the squares of the characters and of each other.
+        final BattleGrid grid = new BattleGrid(characterList);
+        
         this.setNumMonsterTypes(this.getIntegerInputString("How many types of monsters?", "Monsters Setup"));
         
         for (int i = 1; i <= this.getNumMonsterTypes(); i++)
@@ -726,7 +1292,7 @@ public class CombatTracker implements Serializable
                 {
                     for (int j = 1; j <= numMonsters; j++)
                     {
-                        monster = new Creature35E(this.getParent(), this, new StatBlock35E());
+                        monster = new Creature35E(this.getEngine(), new StatBlock35E());
                         monster.openOrSaveFile(this.getWindow(), true, this.isDebugging());
                         
                         if (this.getChoiceInput("Would you like to rename this loaded monster in sequential order?", "Rename Loaded Monster?"))
@@ -757,71 +1323,153 @@ public class CombatTracker implements Serializable
                             monster.rollInitiative(false);
                         }
                         
-                        if (monster != null)
+                        if (this.getChoiceInput("Would you like to change this monster's attack profile?", "Change Attack Profile?"))
                         {
-                            monsterList.add(monster);
+                            this.promptAttackProfile((StatBlock35E)monster.getStatBlock(),
+                                monster.getStatBlock().getName(),
+                                "Monsters Setup");
                         }
-                    }
-                }
-                else
-                {
-                    final String name = this.getInputString("What is the name of monster type " + i + "?", "Monsters Setup");
-                    final int maxHealth = this.getIntegerInputString("What is the maximum HP of monster type " + i + "?", "Monsters Setup");
-                    final int initBonus = this.getIntegerInputString("What is the initiative modifier of monster type " + i + "?", "Monsters Setup");
-                    
-                    for (int j = 1; j <= numMonsters; j++)
-                    {
-                        final String sequencedName = (name + " " + j);
-                        final String position = this.getCoordinateInputString("What is the battle grid position of " + sequencedName +
-                            "?\nPrompt expects XX:YY coordinates.", "Monsters Setup");
-                        
-                        monster = new Creature35E(this.getParent(), this, new StatBlock35E(initBonus, maxHealth, sequencedName, position));
                         
-                        if (this.getChoiceInput("Would you like to change this monster's current HP?", "Change HP?"))
+                        if (this.getChoiceInput("Would you like to change this monster's saving throws?", "Change Saving Throws?"))
                         {
-                            final int curHealth = this.getIntegerInputString("What is the current HP of " + monster.getStatBlock().getName() + "?",
+                            this.promptSaveBonuses((StatBlock35E)monster.getStatBlock(),
+                                monster.getStatBlock().getName(),
                                 "Monsters Setup");
-                            monster.getStatBlock().setCurHealth(curHealth);
                         }
                         
-                        monster.updateStatus();
-                        monster.rollInitiative(false);
-                        
                         if (monster != null)
                         {
                             monsterList.add(monster);
                         }
                     }
                 }
+                else
+                {
+                    // The whole group is set up from one template: a handful of prompts however many monsters there are.
+                    final String name = this.getInputString("What is the name of monster type " + i + "?", "Monsters Setup");
+                    final String hitDice = this.getDiceInputString("What are the hit dice of monster type " + i + "?" +
+                        "\nEnter a dice expression such as 2d8+4 to roll each monster's HP, or a number for the same HP for all.", "Monsters Setup");
+                    final int initBonus = this.getIntegerInputString("What is the initiative modifier of monster type " + i + "?", "Monsters Setup");
+                    final String position = this.getCoordinateInputString("Where on the battle grid does monster type " + i + " stand?" +
+                        "\nPrompt expects XX:YY coordinates." +
+                        "\nEach monster takes the nearest free square.", "Monsters Setup");
+                    final StatBlock35E template = new StatBlock35E(initBonus, 0, name, position);
+                    
+                    this.promptAttackProfile(template, "monster type " + i, "Monsters Setup");
+                    this.promptSaveBonuses(template, "monster type " + i, "Monsters Setup");
+                    monsterList.addAll(this.getEngine().spawn(template, hitDice, numMonsters, 1, grid));
+                }
             }
         }
         
-        this.setMonsterList(monsterList);
+        return monsterList;
     }
     
-    public final void setCboCreatureList(final JComboBox<Creature> cboCreatureList)
-    {
-        this.cboCreatureList = cboCreatureList;
-    }
-    
-    public final void setCharacterList(final LinkedList<Creature> characterList)
-    {
-        this.characterList = characterList;
-    }
-    
-    public final void setCreatureList(final LinkedList<Creature> creatureList)
+    // Prompts for a file and saves the whole encounter to it: every creature in turn order, whose turn it is, and the round.
+    public final void saveEncounter()
     {
-        this.creatureList = creatureList;
+        final String filePath = Support.getFilePath(this.getWindow(), false, this.isDebugging());
+        
+        if ((filePath == null) || filePath.isEmpty())
+        {
+            return;
+        }
+        
+        try
+        {
+            EncounterFile.save(this.getEngine(), Paths.get(filePath));
+            this.getParent().getLog().append(Color.BLACK,
+                Color.WHITE,
+                "[" + Support.getDateTimeStamp() + "]: ",
+                Color.BLUE,
+                Color.WHITE,
+                "Saved " + this.getCreatureList().size() + " creature(s) in round " + this.getNumRounds() + " to " + filePath + ".\n\n");
+        }
+        catch (final IOException exception)
+        {
+            Support.displayException(this.getWindow(), exception, false);
+        }
     }
     
-    public final void setCurCreatureIndex(final int curCreatureIndex)
+    // Prompts for the creatures an area effect covers: those within a radius of the target, in a cone or a line from the current creature
+    // toward the target, every character or every monster. Returns null if the prompt is cancelled, and an empty list if the creatures
+    // the area is measured from are not on the grid.
+    public final List<Creature> selectTargets(final Creature target, final Creature current, final String title)
     {
-        this.curCreatureIndex = curCreatureIndex;
+        final String shape = this.getInputString("Which creatures are affected?" +
+            "\nR: within a radius of the target" +
+            "\nC: in a cone from the current creature toward the target" +
+            "\nL: in a line from the current creature toward the target" +
+            "\nP: every character" +
+            "\nM: every monster" +
+            "\nF: every creature with a condition" +
+            "\nEnter nothing to cancel.", title);
+        
+        if (shape == null)
+        {
+            return null;
+        }
+        
+        switch (shape.trim().toUpperCase())
+        {
+            case "P":
+                
+                return new ArrayList<Creature>(this.getCharacterList());
+            
+            case "M":
+                
+                return new ArrayList<Creature>(this.getMonsterList());
+            
+            case "F":
+                
+                final Constants35E.Effects effect = this.getEffectInput("Which condition?", title);
+                
+                return ((effect == null) ? null : this.getEngine().withEffect(effect));
+            
+            case "R":
+            case "C":
+            case "L":
+                
+                break;
+            
+            default:
+                
+                return null;
+        }
+        
+        final int feet = this.getIntegerInputString("How far does it reach, in feet?\nEnter zero to cancel.", title);
+        final int center = target.getStatBlock().getCoordinates();
+        final int origin = current.getStatBlock().getCoordinates();
+        
+        if (feet <= 0)
+        {
+            return null;
+        }
+        
+        if ((center == BattleGrid.NOWHERE) || (!shape.trim().equalsIgnoreCase("R") && ((origin == BattleGrid.NOWHERE) || (origin == center))))
+        {
+            return new ArrayList<Creature>();
+        }
+        
+        switch (shape.trim().toUpperCase())
+        {
+            case "R":
+                
+                return this.getBattleGrid().radius(center, feet);
+            
+            case "C":
+                
+                return this.getBattleGrid().cone(origin, center, feet);
+            
+            default:
+                
+                return this.getBattleGrid().line(origin, center, feet);
+        }
     }
     
-    public final void setCurrentCreature(final Creature creature)
+    public final void setCboCreatureList(final JComboBox<Creature> cboCreatureList)
     {
-        this.curCreature = creature;
+        this.cboCreatureList = cboCreatureList;
     }
     
     public final void setDebugging(final boolean isDebugging)
@@ -829,14 +1477,14 @@ public class CombatTracker implements Serializable
         this.isDebugging = isDebugging;
     }
     
-    public final void setLblCurrentCreature(final JLabel lblCurrentCreature)
+    public final void setEngine(final CombatEngine engine)
     {
-        this.lblCurrentCreature = lblCurrentCreature;
+        this.engine = engine;
     }
     
-    public final void setMonsterList(final LinkedList<Creature> monsterList)
+    public final void setLblCurrentCreature(final JLabel lblCurrentCreature)
     {
-        this.monsterList = monsterList;
+        this.lblCurrentCreature = lblCurrentCreature;
     }
     
     public final void setNumCharacters(final int numCharacters)
@@ -849,11 +1497,6 @@ public class CombatTracker implements Serializable
         this.numMonsterTypes = numMonsterTypes;
     }
     
-    public final void setNumRounds(final int numRounds)
-    {
-        this.numRounds = numRounds;
-    }
-    
     public final void setParent(final DiceBag parent)
     {
         this.parent = parent;
@@ -863,4 +1506,28 @@ public class CombatTracker implements Serializable
     {
         this.window = window;
     }
+    
+    // Prompts for a group of monsters joining the fight part way through and spawns them into the encounter from one template.
+    public final List<Creature> spawnMonsters()
+    {
+        final String name = this.getInputString("What is the name of the new monsters?", "Spawn Monsters");
+        final int count = this.getIntegerInputString("How many are there?\nEnter zero to cancel.", "Spawn Monsters");
+        
+        if (count < 1)
+        {
+            return new ArrayList<Creature>();
+        }
+        
+        final String hitDice = this.getDiceInputString("What are their hit dice?" +
+            "\nEnter a dice expression such as 2d8+4 to roll each monster's HP, or a number for the same HP for all.", "Spawn Monsters");
+        final int initBonus = this.getIntegerInputString("What is their initiative modifier?", "Spawn Monsters");
+        final String position = this.getCoordinateInputString("Where on the battle grid do they arrive?" +
+            "\nPrompt expects XX:YY coordinates." +
+            "\nEach monster takes the nearest free square.", "Spawn Monsters");
+        final StatBlock35E template = new StatBlock35E(initBonus, 0, name, position);
+        
+        this.promptAttackProfile(template, "the new monsters", "Spawn Monsters");
+        this.promptSaveBonuses(template, "the new monsters", "Spawn Monsters");
+        return this.getEngine().spawnMonsters(template, hitDice, count);
+    }
 }
\ No newline at end of file
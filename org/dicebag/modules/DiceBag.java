@@ -5,9 +5,11 @@
  * 
  * This application simulates dice rolls for table top games like Dungeons & Dragons. It accepts input in the form of a string.
  * The string should be formatted such that it contains two positive integers separated by the character 'd'. The 'd' is not case sensitive.
+ * Several dice terms and integer modifiers may be joined with '+' or '-', and each dice term may be followed by keep (kh/kl), drop (dh/dl),
+ * explode (!) and reroll (r/ro) modifiers.
  * Additionally, it has a new combat tracking system built into it that allows it to keep track of initiative, HP, the number of rounds, etc.
  * 
- * Examples: 3d6, 2d8, 1d20, 15D6, 10D10, 4D4, etc.
+ * Examples: 3d6, 2d8+4, 1d20, 4d6kh3, 2d20kl1, 3d6!, 2d6r1, 15D6, 10D10, 4D4, etc.
  */
 
 package org.dicebag.modules;
@@ -19,9 +21,16 @@ import java.awt.Container;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.event.ActionEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
 
-import javax.swing.DefaultComboBoxModel;
+import javax.management.JMException;
+import javax.swing.AbstractListModel;
 import javax.swing.JButton;
 import javax.swing.JComboBox;
 import javax.swing.JMenu;
@@ -30,47 +39,301 @@ import javax.swing.JMenuItem;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.KeyStroke;
+import javax.swing.MutableComboBoxModel;
+
+import org.dicebag.objects.DiceDistribution;
+import org.dicebag.objects.DiceExpression;
+import org.dicebag.objects.DiceResult;
+import org.dicebag.objects.Metrics;
+import org.dicebag.objects.ParallelRoller;
+import org.dicebag.objects.RandomSource;
+import org.dicebag.objects.RollJournal;
+import org.dicebag.objects.RollLog;
 
 import api.gui.swing.ApplicationWindow;
 import api.gui.swing.RichTextPane;
 import api.util.EventHandler;
-import api.util.Games;
 import api.util.Support;
 
 public class DiceBag implements Serializable
 {
-    public final static class UniqueComboBoxModel extends DefaultComboBoxModel<String>
+    // The input history. Entries are kept in most-recently-used order, duplicates are found through a hash index instead of a scan of the list,
+    // and once the history is full the least recently used entry is evicted.
+    public final static class HistoryComboBoxModel extends AbstractListModel<String> implements MutableComboBoxModel<String>
     {
-        private final static long serialVersionUID = 1L;
+        // A node of the doubly linked recency list; the hash index maps each entry to its node.
+        private final static class Node implements Serializable
+        {
+            private final static long serialVersionUID = 1L;
+            private Node              next             = null;
+            private Node              previous         = null;
+            private final String      value;
+            
+            private Node(final String value)
+            {
+                this.value = value;
+            }
+        }
         
+        private final static long           serialVersionUID = 1L;
+        private final int                   capacity;
+        private Node                        first            = null;
+        private final HashMap<String, Node> index            = new HashMap<String, Node>();
+        private Node                        last             = null;
+        private transient String[]          order            = null;
+        private Object                      selectedItem     = null;
+        
+        public HistoryComboBoxModel(final int capacity)
+        {
+            if (capacity < 1)
+            {
+                throw new IllegalArgumentException("The history must be able to hold at least one entry.");
+            }
+            
+            this.capacity = capacity;
+        }
+        
+        // Moves an entry that is already in the history to the top, or adds a new one there, evicting the least recently used entry if the
+        // history is full.
         @Override
-        public final void addElement(final String s)
+        public final void addElement(final String item)
         {
-            if (this.getIndexOf(s) == -1)
+            if (item == null)
+            {
+                return;
+            }
+            
+            Node node = this.index.get(item);
+            
+            if (node == null)
+            {
+                node = new Node(item);
+                this.index.put(item, node);
+            }
+            else if (node == this.first)
+            {
+                return;
+            }
+            else
             {
-                super.addElement(s);
+                this.unlink(node);
             }
+            
+            node.next = this.first;
+            
+            if (this.first != null)
+            {
+                this.first.previous = node;
+            }
+            
+            this.first = node;
+            
+            if (this.last == null)
+            {
+                this.last = node;
+            }
+            
+            while (this.index.size() > this.capacity)
+            {
+                this.index.remove(this.last.value);
+                this.unlink(this.last);
+            }
+            
+            this.order = null;
+            this.fireContentsChanged(this, 0, this.getSize() - 1);
+        }
+        
+        public final int getCapacity()
+        {
+            return this.capacity;
+        }
+        
+        // The list is only copied into an array when the combo box asks for an element after the history has changed, so rendering the popup
+        // reads each row in constant time.
+        @Override
+        public final String getElementAt(final int position)
+        {
+            if (this.order == null)
+            {
+                this.order = new String[this.index.size()];
+                int i = 0;
+                
+                for (Node node = this.first; node != null; node = node.next)
+                {
+                    this.order[i++] = node.value;
+                }
+            }
+            
+            return this.order[position];
+        }
+        
+        @Override
+        public final Object getSelectedItem()
+        {
+            return this.selectedItem;
+        }
+        
+        @Override
+        public final int getSize()
+        {
+            return this.index.size();
+        }
+        
+        // The history is always ordered by recency, so an insertion at a given position is treated as a use of the entry.
+        @Override
+        public final void insertElementAt(final String item, final int position)
+        {
+            this.addElement(item);
+        }
+        
+        // Views are told only that the one row went away, so they need not redraw the rest of the history.
+        @Override
+        public final void removeElement(final Object item)
+        {
+            final Node node = this.index.remove(item);
+            
+            if (node != null)
+            {
+                int position = 0;
+                
+                // The position must be found before the node is unlinked. The history is short, so walking it is cheap.
+                for (Node previous = node.previous; previous != null; previous = previous.previous)
+                {
+                    position++;
+                }
+                
+                this.unlink(node);
+                this.order = null;
+                this.fireIntervalRemoved(this, position, position);
+            }
+        }
+        
+        @Override
+        public final void removeElementAt(final int position)
+        {
+            this.removeElement(this.getElementAt(position));
+        }
+        
+        @Override
+        public final void setSelectedItem(final Object item)
+        {
+            if ((this.selectedItem == null) ? (item != null) : !this.selectedItem.equals(item))
+            {
+                this.selectedItem = item;
+                this.fireContentsChanged(this, -1, -1);
+            }
+        }
+        
+        private final void unlink(final Node node)
+        {
+            if (node.previous == null)
+            {
+                this.first = node.next;
+            }
+            else
+            {
+                node.previous.next = node.next;
+            }
+            
+            if (node.next == null)
+            {
+                this.last = node.previous;
+            }
+            else
+            {
+                node.next.previous = node.previous;
+            }
+            
+            node.next = null;
+            node.previous = null;
         }
     }
     
-    public final static String INPUT_EXCEPTION_STRING = "Incorrect input format!" + "Provide two non-negative integers separated by the character 'd'."
+    // The number of distinct inputs remembered by the input box.
+    public final static int    HISTORY_CAPACITY       = 100;
+    public final static String INPUT_EXCEPTION_STRING = "Incorrect input format!" + "Provide one or more dice terms or integers joined by '+' or '-'."
+                                                          + "\nA dice term is two non-negative integers separated by the character 'd'."
+                                                          + "\nDice terms accept the modifiers kh/kl (keep), dh/dl (drop), ! (explode), r/ro (reroll)."
                                                           + "\nThe 'd' is not case sensitve."
-                                                          + "\nExamples: 3d6, 2d8, 1d20, 15D6, 10D10, 4D4, etc.";
+                                                          + "\nExamples: 3d6, 2d8+4, 1d20, 4d6kh3, 2d20kl1, 3d6!, 2d6r1, 10D10, 4D4, etc.";
     
+    // Larger pools only list this many individual dice; the sum is always exact and the rest can be regenerated from the throw's seed.
+    public final static long   MAX_DISPLAYED_DICE     = 1000;
     private final static long  serialVersionUID       = 1L;
     
     public final static void main(final String[] args)
     {
+        // Batch mode is handed off before any window is built so that no AWT resources are ever initialised.
+        if ((args.length > 0) && args[0].equals("-batch"))
+        {
+            DiceBatch.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        
         new DiceBag(true, args);
     }
     
-    private JComboBox<String> input       = null;
-    private boolean           isDebugging = false;
-    private RichTextPane      output      = null;
-    private ApplicationWindow window      = null;
+    private JComboBox<String>      input        = null;
+    private boolean                isDebugging  = false;
+    private transient RollJournal  journal      = null;
+    private transient RollLog      log          = null;
+    private RichTextPane           output       = null;
+    private transient RandomSource randomSource = RandomSource.perThread();
+    private ApplicationWindow      window       = null;
     
     public DiceBag(final boolean showWindow, final String[] args)
     {
+        // Passing "-seed N" starts a reproducible session: the same inputs in the same order throw exactly the same dice.
+        // Passing "-journal path" records every throw in a roll journal, which DiceBatch can replay with "-replay path".
+        // Passing "-metrics N" prints a report of the throw and combat metrics to standard output every N seconds.
+        for (int i = 0; (args != null) && ((i + 1) < args.length); i++)
+        {
+            if (args[i].equals("-seed"))
+            {
+                try
+                {
+                    this.setRandomSource(RandomSource.splittable(Long.parseLong(args[i + 1])));
+                }
+                catch (final NumberFormatException exception)
+                {
+                    Support.displayException(null, exception, false);
+                }
+            }
+            else if (args[i].equals("-journal"))
+            {
+                try
+                {
+                    this.setJournal(new RollJournal(new File(args[i + 1])));
+                }
+                catch (final IOException exception)
+                {
+                    Support.displayException(null, exception, false);
+                }
+            }
+            else if (args[i].equals("-metrics"))
+            {
+                try
+                {
+                    Metrics.startDump(System.out, Long.parseLong(args[i + 1]));
+                }
+                catch (final IllegalArgumentException exception)
+                {
+                    // Covers both a period that is not a number and one that is not positive.
+                    Support.displayException(null, exception, false);
+                }
+            }
+        }
+        
+        try
+        {
+            // The metrics are always recorded; publishing them lets any JMX client such as JConsole watch a running session.
+            Metrics.register();
+        }
+        catch (final JMException exception)
+        {
+            Support.displayException(null, exception, false);
+        }
+        
         this.setDebugging(Support.promptDebugMode(this.getWindow()));
         
         // Define a self-contained ActionListener event handler.
@@ -93,9 +356,20 @@ public class DiceBag implements Serializable
                      */
                     switch (actionEvent.getActionCommand())
                     {
+                        case "Analyze":
+                            
+                            Object selected = parent.getInput().getSelectedItem();
+                            
+                            if ((selected != null) && (((String)selected).isEmpty() == false))
+                            {
+                                parent.getLog().follow();
+                                parent.analyzeInput(((String)selected).toLowerCase());
+                            }
+                            break;
+                            
                         case "Clear":
                             
-                            parent.getOutput().clear();
+                            parent.getLog().clear();
                             parent.getInput().grabFocus();
                             break;
                             
@@ -106,7 +380,9 @@ public class DiceBag implements Serializable
                             
                         case "Open":
                             
+                            parent.getLog().flush();
                             parent.getOutput().openOrSaveFile(true);
+                            parent.getLog().reset();
                             parent.getInput().grabFocus();
                             break;
                             
@@ -122,6 +398,8 @@ public class DiceBag implements Serializable
                             
                         case "Save":
                             
+                            // Anything still queued is written out first. Only the entries currently in the window are saved.
+                            parent.getLog().flush();
                             parent.getOutput().openOrSaveFile(false);
                             parent.getInput().grabFocus();
                             break;
@@ -132,6 +410,8 @@ public class DiceBag implements Serializable
                             
                             if ((obj != null) && (((String)obj).isEmpty() == false))
                             {
+                                // A throw the user asked for should be seen, even if they were reading back through older entries.
+                                parent.getLog().follow();
                                 parent.processInput(((String)parent.getInput().getSelectedItem()).toLowerCase());
                             }
                             break;
@@ -167,6 +447,7 @@ public class DiceBag implements Serializable
                 JScrollPane outputPanel = new JScrollPane(outputBox);
                 JComboBox<String> inputBox = new JComboBox<String>();
                 JButton inputBtn = new JButton("Throw");
+                JButton analyzeBtn = new JButton("Analyze");
                 JPanel inputPanel = new JPanel();
                 
                 clearOption.setFont(Support.DEFAULT_TEXT_FONT);
@@ -209,22 +490,39 @@ public class DiceBag implements Serializable
                 window.setJMenuBar(menuBar);
                 inputBox.setEditable(true);
                 inputBox.setFont(Support.DEFAULT_TEXT_FONT);
-                inputBox.setModel(new UniqueComboBoxModel());
+                inputBox.setModel(new HistoryComboBoxModel(DiceBag.HISTORY_CAPACITY));
                 inputBtn.setFont(Support.DEFAULT_TEXT_FONT);
                 inputBtn.addActionListener(window);
                 inputPanel.setLayout(new FlowLayout());
                 inputPanel.add(inputBox);
+                analyzeBtn.setFont(Support.DEFAULT_TEXT_FONT);
+                analyzeBtn.addActionListener(window);
                 inputPanel.add(inputBtn);
+                inputPanel.add(analyzeBtn);
                 contentPane.add(outputPanel, BorderLayout.CENTER);
                 contentPane.add(inputPanel, BorderLayout.SOUTH);
                 parent.setInput(inputBox);
                 parent.setOutput(outputBox);
+                parent.setLog(new RollLog(outputBox));
                 window.getRootPane().setDefaultButton(inputBtn);
             }
         };
         
         this.setWindow(new ApplicationWindow(null, "Dice Bag", new Dimension(1100, 600), this.isDebugging(), true, myActionPerformed, myDrawGUI));
         this.getWindow().setIconImageByResourceName("icon.png");
+        // Disposing of the window closes and deletes the log's journal, instead of leaving both until the JVM exits.
+        this.getWindow().addWindowListener(new WindowAdapter()
+        {
+            @Override
+            public final void windowClosed(final WindowEvent event)
+            {
+                // The log stays usable without a journal, in case anything still writes to it.
+                if (DiceBag.this.getLog() != null)
+                {
+                    DiceBag.this.getLog().close();
+                }
+            }
+        });
         
         if (!showWindow)
         {
@@ -234,16 +532,97 @@ public class DiceBag implements Serializable
         // @formatter:on
     }
     
+    public DiceDistribution analyzeInput(final String inputString)
+    {
+        DiceDistribution retVal = null;
+        
+        try
+        {
+            retVal = DiceExpression.compile(inputString).getDistribution();
+        }
+        catch (final IllegalArgumentException exception)
+        {
+            Support.displayException(this.getWindow(), exception, false);
+        }
+        
+        if (retVal != null)
+        {
+            // The whole summary is one event: it is stamped once and queued with a single call.
+            final String timeStamp = "[" + Support.getDateTimeStamp() + "]: ";
+            
+            this.getLog().append(Color.BLACK,
+                Color.WHITE,
+                timeStamp,
+                Color.RED,
+                Color.WHITE,
+                "Analyze\t\t",
+                Color.GRAY,
+                Color.WHITE,
+                inputString + "\n",
+                Color.BLACK,
+                Color.WHITE,
+                timeStamp,
+                Color.GREEN,
+                Color.WHITE,
+                "Mean\t\t",
+                Color.GRAY,
+                Color.WHITE,
+                String.format("%.3f (SD %.3f, Range %d to %d)\n", retVal.getMean(), retVal.getStandardDeviation(), retVal.getMinimum(), retVal
+                    .getMaximum()),
+                Color.BLACK,
+                Color.WHITE,
+                timeStamp,
+                Color.BLUE,
+                Color.WHITE,
+                "Percentiles\t",
+                Color.GRAY,
+                Color.WHITE,
+                String.format("5%%: %d, 25%%: %d, 50%%: %d, 75%%: %d, 95%%: %d\n\n",
+                    retVal.getPercentile(0.05),
+                    retVal.getPercentile(0.25),
+                    retVal.getPercentile(0.5),
+                    retVal.getPercentile(0.75),
+                    retVal.getPercentile(0.95)));
+            
+            this.getInput().addItem(inputString);
+        }
+        
+        this.getInput().setSelectedIndex(-1);
+        this.getInput().grabFocus();
+        return retVal;
+    }
+    
     public final JComboBox<String> getInput()
     {
         return this.input;
     }
     
+    public final RollJournal getJournal()
+    {
+        return this.journal;
+    }
+    
+    public final RollLog getLog()
+    {
+        return this.log;
+    }
+    
     public final RichTextPane getOutput()
     {
         return this.output;
     }
     
+    public final RandomSource getRandomSource()
+    {
+        // The source is not serialized, so a deserialized DiceBag falls back to the unseeded per-thread source.
+        if (this.randomSource == null)
+        {
+            this.randomSource = RandomSource.perThread();
+        }
+        
+        return this.randomSource;
+    }
+    
     public final ApplicationWindow getWindow()
     {
         return this.window;
@@ -256,62 +635,89 @@ public class DiceBag implements Serializable
     
     public long processInput(final String inputString)
     {
+        final long startTime = System.nanoTime();
         boolean isInputBad = true;
         long retVal = -1;
         
         if ((inputString != null) && (inputString.isEmpty() == false))
         {
-            if (inputString.matches("[0-9]+d[0-9]+"))
+            DiceExpression expression = null;
+            
+            try
+            {
+                // Compiled expressions are cached, so only the first throw of a given string pays for parsing.
+                expression = DiceExpression.compile(inputString);
+            }
+            catch (final IllegalArgumentException exception)
             {
                 if (this.getWindow().isDebugging())
                 {
-                    Support.displayDebugMessage(this.getWindow(), "Input: " + inputString + "\n");
+                    Support.displayDebugMessage(this.getWindow(), exception.getMessage() + "\n");
                 }
+            }
+            
+            if (expression != null)
+            {
+                // Very large pools are spread across every core; smaller ones are thrown on this thread as before.
+                DiceResult result = ParallelRoller.getDefault().roll(expression, this.getRandomSource());
                 
-                String[] paramArray = inputString.split("d");
-                int[] resultsArray = Games.throwDice(Integer.parseInt(paramArray[0]), Integer.parseInt(paramArray[1]));
-                int upperBound = (resultsArray.length - 1);
-                
-                StringBuilder outputStringBuilder = new StringBuilder();
-                
-                for (int i = 0; i < upperBound; i++)
+                if (this.getWindow().isDebugging())
                 {
-                    outputStringBuilder.append(resultsArray[i] + " ");
+                    // The seed alone is enough to regenerate every die of this throw if the result is ever disputed.
+                    Support.displayDebugMessage(this.getWindow(), "Input: " + inputString + " (seed " + result.getSeed() + ")\n");
                 }
                 
-                this.getOutput().append(Color.BLACK,
+                // One throw is one event: a single timestamp shared by its three lines, and a single call that queues them without waiting for
+                // the styled document to be updated.
+                final String timeStamp = "[" + Support.getDateTimeStamp() + "]: ";
+                
+                this.getLog().append(Color.BLACK,
                     Color.WHITE,
-                    "[" + Support.getDateTimeStamp() + "]: ",
+                    timeStamp,
                     Color.RED,
                     Color.WHITE,
                     "Input\t\t",
                     Color.GRAY,
                     Color.WHITE,
-                    inputString + "\n");
-                
-                this.getOutput().append(Color.BLACK,
+                    inputString + "\n",
+                    Color.BLACK,
                     Color.WHITE,
-                    "[" + Support.getDateTimeStamp() + "]: ",
+                    timeStamp,
                     Color.GREEN,
                     Color.WHITE,
                     "Sum\t\t",
                     Color.GRAY,
                     Color.WHITE,
-                    resultsArray[upperBound] + "\n");
-                
-                this.getOutput().append(Color.BLACK,
+                    result.getTotal() + "\n",
+                    Color.BLACK,
                     Color.WHITE,
-                    "[" + Support.getDateTimeStamp() + "]: ",
+                    timeStamp,
                     Color.BLUE,
                     Color.WHITE,
                     "Results\t",
                     Color.GRAY,
                     Color.WHITE,
-                    outputStringBuilder.toString() + "\n\n");
+                    result.getResultsString(DiceBag.MAX_DISPLAYED_DICE) + "\n\n");
+                
+                if (this.getJournal() != null)
+                {
+                    try
+                    {
+                        this.getJournal().append(result);
+                    }
+                    catch (final IOException exception)
+                    {
+                        // Report the failure once and stop recording, rather than interrupting every throw that follows.
+                        this.setJournal(null);
+                        Support.displayException(this.getWindow(), exception, false);
+                    }
+                }
                 
                 isInputBad = false;
-                retVal = resultsArray[upperBound];
+                retVal = result.getTotal();
                 this.getInput().addItem(inputString);
+                Metrics.THROWS.increment();
+                Metrics.DICE_THROWN.add(expression.getDiceCount());
             }
         }
         
@@ -322,6 +728,7 @@ public class DiceBag implements Serializable
         
         this.getInput().setSelectedIndex(-1);
         this.getInput().grabFocus();
+        Metrics.PROCESS_INPUT_TIME.record(startTime);
         return retVal;
     }
     
@@ -335,11 +742,33 @@ public class DiceBag implements Serializable
         this.input = input;
     }
     
+    public final void setJournal(final RollJournal journal)
+    {
+        this.journal = journal;
+    }
+    
+    // A log that is replaced is closed, so its journal does not outlive it.
+    public final void setLog(final RollLog log)
+    {
+        if ((this.log != null) && (this.log != log))
+        {
+            this.log.close();
+        }
+        
+        this.log = log;
+    }
+    
     public final void setOutput(final RichTextPane output)
     {
         this.output = output;
     }
     
+    // Swapping the source takes effect from the next throw; a seeded source makes every later throw reproducible.
+    public final void setRandomSource(final RandomSource randomSource)
+    {
+        this.randomSource = ((randomSource == null) ? RandomSource.perThread() : randomSource);
+    }
+    
     protected final void setWindow(final ApplicationWindow window)
     {
         this.window = window;
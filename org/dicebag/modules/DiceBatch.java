@@ -0,0 +1,346 @@
+/*
+ * Title: DiceBatch
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * This class is a headless entry point for DiceBag which throws dice expressions read line by line from standard input or a file,
+ * and streams the results to standard output. It never touches AWT or Swing, so it starts quickly on machines without a display.
+ * 
+ * Usage: DiceBatch [-binary] [-results] [-repeat N] [-seed N] [-journal path] [file]
+ *        DiceBatch [-binary] [-results] -replay path
+ * 
+ * Text output is one line per throw: the normalised expression, a tab, and the total (followed by a tab and the individual dice with -results).
+ * Binary output is one big-endian 64-bit total per throw, or a 64-bit timestamp and then the total with -replay.
+ * Blank lines and lines starting with '#' are skipped.
+ * With -seed the whole run is reproducible: the same input and seed always produce the same output.
+ * With -journal every throw is also recorded in a roll journal. With -replay the throws of a journal are regenerated from their seeds and
+ * written out in the same formats, preceded by the time of each throw in milliseconds; any throw whose total no longer matches the recorded
+ * one is reported on standard error.
+ */
+
+package org.dicebag.modules;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.dicebag.objects.DiceExpression;
+import org.dicebag.objects.DiceResult;
+import org.dicebag.objects.ParallelRoller;
+import org.dicebag.objects.RandomSource;
+import org.dicebag.objects.RollJournal;
+
+public final class DiceBatch
+{
+    private final static int   BUFFER_SIZE  = (1 << 16);
+    public final static String USAGE_STRING = "Usage: DiceBatch [-binary] [-results] [-repeat N] [-seed N] [-journal path] [file] | [-binary] [-results] -replay path";
+    
+    public final static void main(final String[] args)
+    {
+        // Make certain nothing reached through the dice engine can ever try to open a display.
+        System.setProperty("java.awt.headless", "true");
+        
+        boolean isBinary = false;
+        boolean isShowingResults = false;
+        long repeat = 1;
+        RandomSource source = RandomSource.perThread();
+        String journalPath = null;
+        String path = null;
+        String replayPath = null;
+        
+        for (int i = 0; i < args.length; i++)
+        {
+            switch (args[i])
+            {
+                case "-binary":
+                    
+                    isBinary = true;
+                    break;
+                
+                case "-results":
+                    
+                    isShowingResults = true;
+                    break;
+                
+                case "-journal":
+                case "-replay":
+                    
+                    if ((i + 1) >= args.length)
+                    {
+                        System.err.println(DiceBatch.USAGE_STRING);
+                        System.exit(2);
+                    }
+                    else if (args[i].equals("-journal"))
+                    {
+                        journalPath = args[++i];
+                    }
+                    else
+                    {
+                        replayPath = args[++i];
+                    }
+                    break;
+                
+                case "-repeat":
+                    
+                    if (((i + 1) >= args.length) || ((repeat = DiceBatch.parseRepeat(args[++i])) < 1))
+                    {
+                        System.err.println(DiceBatch.USAGE_STRING);
+                        System.exit(2);
+                    }
+                    break;
+                
+                case "-seed":
+                    
+                    try
+                    {
+                        source = RandomSource.splittable(Long.parseLong(args[++i]));
+                    }
+                    catch (final RuntimeException exception)
+                    {
+                        // Covers both a missing seed and one that is not a number.
+                        System.err.println(DiceBatch.USAGE_STRING);
+                        System.exit(2);
+                    }
+                    break;
+                
+                default:
+                    
+                    if (args[i].startsWith("-") || (path != null))
+                    {
+                        System.err.println(DiceBatch.USAGE_STRING);
+                        System.exit(2);
+                    }
+                    
+                    path = args[i];
+                    break;
+            }
+        }
+        
+        if ((replayPath != null) && ((journalPath != null) || (path != null)))
+        {
+            System.err.println(DiceBatch.USAGE_STRING);
+            System.exit(2);
+        }
+        
+        final DiceBatch batch = new DiceBatch(isBinary, isShowingResults, repeat, source);
+        int numErrors = 0;
+        
+        if (replayPath != null)
+        {
+            try (RollJournal journal = new RollJournal(new File(replayPath)))
+            {
+                batch.setJournal(journal);
+                numErrors = batch.replay(System.out);
+            }
+            catch (final IOException exception)
+            {
+                System.err.println(exception.getMessage());
+                System.exit(2);
+            }
+            
+            System.exit((numErrors == 0) ? 0 : 1);
+        }
+        
+        try (InputStream in = ((path == null) ? System.in : new FileInputStream(path));
+            RollJournal journal = ((journalPath == null) ? null : new RollJournal(new File(journalPath))))
+        {
+            batch.setJournal(journal);
+            numErrors = batch.run(in, System.out);
+        }
+        catch (final IOException exception)
+        {
+            System.err.println(exception.getMessage());
+            System.exit(2);
+        }
+        
+        System.exit((numErrors == 0) ? 0 : 1);
+    }
+    
+    private final static long parseRepeat(final String s)
+    {
+        try
+        {
+            return Long.parseLong(s);
+        }
+        catch (final NumberFormatException exception)
+        {
+            return -1;
+        }
+    }
+    
+    private final boolean      isBinary;
+    private final boolean      isShowingResults;
+    private RollJournal        journal = null;
+    private final RandomSource randomSource;
+    private final long         repeat;
+    
+    public DiceBatch(final boolean isBinary, final boolean isShowingResults, final long repeat, final RandomSource randomSource)
+    {
+        this.isBinary = isBinary;
+        this.isShowingResults = isShowingResults;
+        this.repeat = repeat;
+        this.randomSource = randomSource;
+    }
+    
+    public final RollJournal getJournal()
+    {
+        return this.journal;
+    }
+    
+    public final RandomSource getRandomSource()
+    {
+        return this.randomSource;
+    }
+    
+    public final long getRepeat()
+    {
+        return this.repeat;
+    }
+    
+    public final boolean isBinary()
+    {
+        return this.isBinary;
+    }
+    
+    public final boolean isShowingResults()
+    {
+        return this.isShowingResults;
+    }
+    
+    // Regenerates every throw recorded in the journal from its seed and writes it out, preceded by its timestamp. Returns the number of throws
+    // whose regenerated total no longer matches the recorded one.
+    public int replay(final OutputStream out) throws IOException
+    {
+        final DataOutputStream binary = new DataOutputStream(new BufferedOutputStream(out, DiceBatch.BUFFER_SIZE));
+        final StringBuilder line = new StringBuilder(64);
+        int numErrors = 0;
+        
+        for (long i = 0; i < this.getJournal().getRecordCount(); i++)
+        {
+            final DiceResult result = this.getJournal().replay(i);
+            
+            if (result.getTotal() != this.getJournal().getTotal(i))
+            {
+                System.err.println("Throw " + i + " (" + result.getExpression() + ") was recorded as " + this.getJournal().getTotal(i)
+                    + " but replays as " + result.getTotal() + ".");
+                numErrors++;
+            }
+            
+            this.write(binary, line, this.getJournal().getTimestamp(i), result.getExpression(), this.getJournal().getTotal(i), result);
+        }
+        
+        binary.flush();
+        return numErrors;
+    }
+    
+    // Throws every expression read from the input and returns the number of lines that could not be parsed.
+    public int run(final InputStream in, final OutputStream out) throws IOException
+    {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), DiceBatch.BUFFER_SIZE);
+        final DataOutputStream binary = new DataOutputStream(new BufferedOutputStream(out, DiceBatch.BUFFER_SIZE));
+        final StringBuilder line = new StringBuilder(64);
+        int numErrors = 0;
+        String input;
+        
+        while ((input = reader.readLine()) != null)
+        {
+            input = input.trim();
+            
+            if (input.isEmpty() || input.startsWith("#"))
+            {
+                continue;
+            }
+            
+            final DiceExpression expression;
+            
+            try
+            {
+                expression = DiceExpression.compile(input);
+            }
+            catch (final IllegalArgumentException exception)
+            {
+                System.err.println(exception.getMessage());
+                numErrors++;
+                continue;
+            }
+            
+            for (long i = 0; i < this.getRepeat(); i++)
+            {
+                // Totals alone never need the individual dice, so the allocation-free path is used unless the seed or the dice are wanted.
+                if ((this.getJournal() == null) && !this.isShowingResults())
+                {
+                    this.write(binary, line, -1, expression, ParallelRoller.getDefault().rollTotal(expression, this.getRandomSource()), null);
+                }
+                else
+                {
+                    final DiceResult result = ParallelRoller.getDefault().roll(expression, this.getRandomSource());
+                    
+                    if (this.getJournal() != null)
+                    {
+                        this.getJournal().append(result);
+                    }
+                    
+                    this.write(binary, line, -1, expression, result.getTotal(), result);
+                }
+            }
+        }
+        
+        binary.flush();
+        return numErrors;
+    }
+    
+    public final void setJournal(final RollJournal journal)
+    {
+        this.journal = journal;
+    }
+    
+    // Writes one throw in the selected format. The timestamp is only written when it is not negative, and the dice only when a result is
+    // given and -results was requested.
+    private final void write(final DataOutputStream binary,
+        final StringBuilder line,
+        final long timestamp,
+        final DiceExpression expression,
+        final long total,
+        final DiceResult result) throws IOException
+    {
+        if (this.isBinary())
+        {
+            if (timestamp >= 0)
+            {
+                binary.writeLong(timestamp);
+            }
+            
+            binary.writeLong(total);
+            return;
+        }
+        
+        line.setLength(0);
+        
+        if (timestamp >= 0)
+        {
+            line.append(timestamp).append('\t');
+        }
+        
+        line.append(expression.getSource()).append('\t').append(total);
+        
+        if (this.isShowingResults() && (result != null))
+        {
+            line.append('\t').append(result.getResultsString().trim());
+        }
+        
+        line.append('\n');
+        
+        // Compiled expressions are normalised to ASCII, so each character maps to exactly one byte.
+        for (int j = 0; j < line.length(); j++)
+        {
+            binary.write(line.charAt(j));
+        }
+    }
+}
\ No newline at end of file
@@ -11,6 +11,8 @@ package org.dicebag.modules;
 
 import java.io.Serializable;
 
+import org.dicebag.objects.RandomSource;
+
 import api.util.Mathematics;
 import api.util.Support;
 
@@ -254,7 +256,7 @@ public class EncounterCalculator implements Serializable
         return 0.0;
     }
     
-    protected static String findSpotDistance(final String terrainType)
+    protected static String findSpotDistance(final RandomSource source, final String terrainType)
     {
         String spotDist = null;
         boolean isTxt = false;
@@ -264,54 +266,54 @@ public class EncounterCalculator implements Serializable
             case "dpForest":
             case "rHills":
                 
-                spotDist = ((EncounterCalculator.xDy(2, 6) * 10.0) + " (2d6x10)");
+                spotDist = ((EncounterCalculator.xDy(source, 2, 6) * 10.0) + " (2d6x10)");
                 break;
             
             case "spForest":
                 
-                spotDist = ((EncounterCalculator.xDy(3, 6) * 10.0) + " (3d6x10)");
+                spotDist = ((EncounterCalculator.xDy(source, 3, 6) * 10.0) + " (3d6x10)");
                 break;
             
             case "Moor":
             case "DesertDunes":
                 
-                spotDist = ((EncounterCalculator.xDy(6, 6) * 10.0) + " (6d6x10)");
+                spotDist = ((EncounterCalculator.xDy(source, 6, 6) * 10.0) + " (6d6x10)");
                 break;
             
             case "Desert":
                 
-                spotDist = ((EncounterCalculator.xDy(6, 6) * 20.0) + " (6d6x20)");
+                spotDist = ((EncounterCalculator.xDy(source, 6, 6) * 20.0) + " (6d6x20)");
                 break;
             
             case "Plains":
                 
-                spotDist = ((EncounterCalculator.xDy(6, 6) * 40.0) + " (6d6x40)");
+                spotDist = ((EncounterCalculator.xDy(source, 6, 6) * 40.0) + " (6d6x40)");
                 break;
             
             case "mWater":
                 
-                spotDist = ((EncounterCalculator.xDy(1, 8) * 10.0) + " (1d8x10)");
+                spotDist = ((EncounterCalculator.xDy(source, 1, 8) * 10.0) + " (1d8x10)");
                 break;
             
             case "mpForest":
             case "Swamp":
                 
-                spotDist = ((EncounterCalculator.xDy(2, 8) * 10.0) + " (2d8x10)");
+                spotDist = ((EncounterCalculator.xDy(source, 2, 8) * 10.0) + " (2d8x10)");
                 break;
             
             case "cWater":
                 
-                spotDist = ((EncounterCalculator.xDy(4, 8) * 10.0) + " (4d8x10)");
+                spotDist = ((EncounterCalculator.xDy(source, 4, 8) * 10.0) + " (4d8x10)");
                 break;
             
             case "gHills":
                 
-                spotDist = ((EncounterCalculator.xDy(2, 10) * 10.0) + " (2d10x10)");
+                spotDist = ((EncounterCalculator.xDy(source, 2, 10) * 10.0) + " (2d10x10)");
                 break;
             
             case "Mount":
                 
-                spotDist = ((EncounterCalculator.xDy(4, 10) * 10.0) + " (4d10x10)");
+                spotDist = ((EncounterCalculator.xDy(source, 4, 10) * 10.0) + " (4d10x10)");
                 break;
             
             case "Dungeon":
@@ -450,25 +452,47 @@ public class EncounterCalculator implements Serializable
         return retVal;
     }
     
-    protected static double xDy(final double x, final double y)
+    protected static double xDy(final RandomSource source, final double x, final double y)
     {
-        return EncounterCalculator.xDyPz(x, y, 0.0);
+        return EncounterCalculator.xDyPz(source, x, y, 0.0);
     }
     
-    protected static int xDyPz(final double x, final double y, final double z)
+    // Each die is drawn uniformly from 1 to y. Math.random() is replaced because it shares one contended generator across the whole JVM,
+    // cannot be seeded, and rounding its output gave the two extreme faces half the weight of the others (and could produce a zero). Every
+    // throw takes the DiceBag's source, so a seeded session can be replayed.
+    protected static int xDyPz(final RandomSource source, final double x, final double y, final double z)
     {
         int temp = ((int)z);
         
         for (int j = ((int)x); j > 0; j--)
         {
-            temp += Math.round(Math.random() * y);
+            temp += (source.nextInt((int)y) + 1);
         }
         
         return temp;
     }
     
+    // The DiceBag's random source, which every throw this module makes is drawn from. It is not saved with the module.
+    private transient RandomSource randomSource = null;
+    
     public EncounterCalculator(final DiceBag parent, final boolean isDebugging)
     {
+        if (parent != null)
+        {
+            this.randomSource = parent.getRandomSource();
+        }
+        
         // TODO: Encounter Level Calculator.
     }
+    
+    public final RandomSource getRandomSource()
+    {
+        // Without a parent, or once deserialized, the module falls back to the unseeded per-thread source.
+        if (this.randomSource == null)
+        {
+            this.randomSource = RandomSource.perThread();
+        }
+        
+        return this.randomSource;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,538 @@
+/*
+ * Title: BattleGrid
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * This class is a common resource for the DiceBag module and its add-on modules to use.
+ * It indexes which creatures stand in which squares of the battle grid, so that the Combat Tracker can ask who is in a square, in a
+ * rectangle, within a radius, in a cone or along a line without reading every creature's position.
+ * 
+ * A position is packed into a single int, the column in the high 16 bits and the row in the low 16 bits, and is written and read in the
+ * familiar "XX:YY" form. Columns and rows run from 0 to 32767, so a packed position is never negative and never mistaken for NOWHERE. The
+ * grid is split into chunks of 16 by 16 squares that are only created once a creature stands in them, and each square holds the head of a
+ * linked list of the creatures standing in it. A query visits only the squares its area covers, so its cost depends on the size of the area
+ * and the number of creatures found, not on the number of creatures on the map.
+ * 
+ * Distances follow the d20 SRD: every other diagonal square counts as two, and each square is five feet.
+ * See d20 SRD Movement, Position, and Distance rules: http://www.d20srd.org/srd/movementPositionAndDistance.htm
+ */
+
+package org.dicebag.objects;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+public final class BattleGrid implements Serializable
+{
+    // Decides whether a square of a query's bounding box is part of the area.
+    private static interface Area
+    {
+        public boolean contains(final int x, final int y);
+    }
+    
+    private final static int CHUNK_BITS      = 4;
+    private final static int CHUNK_MASK      = ((1 << BattleGrid.CHUNK_BITS) - 1);
+    public final static int  FEET_PER_SQUARE = 5;
+    // The largest column or row. The column keeps clear of the sign bit, so no position on the grid packs to NOWHERE.
+    public final static int  MAX_COORDINATE  = 0x7FFF;
+    private final static int NONE            = -1;
+    public final static int  NOWHERE         = -1;
+    private final static long serialVersionUID = 1L;
+    
+    private final static int chunkKey(final int x, final int y)
+    {
+        return (((x >>> BattleGrid.CHUNK_BITS) << 16) | (y >>> BattleGrid.CHUNK_BITS));
+    }
+    
+    private final static int chunkSlot(final int x, final int y)
+    {
+        return (((x & BattleGrid.CHUNK_MASK) << BattleGrid.CHUNK_BITS) | (y & BattleGrid.CHUNK_MASK));
+    }
+    
+    // Returns the distance between two positions in squares: the longer side, plus one for every second square of the shorter side.
+    public final static int distance(final int from, final int to)
+    {
+        final int dx = Math.abs(BattleGrid.xOf(to) - BattleGrid.xOf(from));
+        final int dy = Math.abs(BattleGrid.yOf(to) - BattleGrid.yOf(from));
+        
+        return (Math.max(dx, dy) + (Math.min(dx, dy) / 2));
+    }
+    
+    // Returns the position in "XX:YY" form, or an empty string if it is nowhere on the grid.
+    public final static String format(final int position)
+    {
+        if (position == BattleGrid.NOWHERE)
+        {
+            return "";
+        }
+        
+        return String.format("%02d:%02d", BattleGrid.xOf(position), BattleGrid.yOf(position));
+    }
+    
+    // Returns true if the packed position is a square of the grid, and false for NOWHERE or anything else outside it.
+    public final static boolean isOnGrid(final int position)
+    {
+        return ((position != BattleGrid.NOWHERE) && BattleGrid.isOnGrid(BattleGrid.xOf(position), BattleGrid.yOf(position)));
+    }
+    
+    private final static boolean isOnGrid(final int x, final int y)
+    {
+        return ((x >= 0) && (y >= 0) && (x <= BattleGrid.MAX_COORDINATE) && (y <= BattleGrid.MAX_COORDINATE));
+    }
+    
+    public final static int pack(final int x, final int y)
+    {
+        if (!BattleGrid.isOnGrid(x, y))
+        {
+            throw new IllegalArgumentException("Grid coordinates must be between 0 and " + BattleGrid.MAX_COORDINATE + ".");
+        }
+        
+        return ((x << 16) | y);
+    }
+    
+    // Reads a position in "XX:YY" form. Anything else, including an empty string, is nowhere on the grid.
+    public final static int parse(final String position)
+    {
+        if (position == null)
+        {
+            return BattleGrid.NOWHERE;
+        }
+        
+        final int colon = position.indexOf(':');
+        
+        try
+        {
+            if (colon > 0)
+            {
+                final int x = Integer.parseInt(position.substring(0, colon).trim());
+                final int y = Integer.parseInt(position.substring(colon + 1).trim());
+                
+                if (BattleGrid.isOnGrid(x, y))
+                {
+                    return BattleGrid.pack(x, y);
+                }
+            }
+        }
+        catch (final NumberFormatException exception)
+        {
+            // An unreadable position is treated as no position at all.
+        }
+        
+        return BattleGrid.NOWHERE;
+    }
+    
+    public final static int xOf(final int position)
+    {
+        return (position >>> 16);
+    }
+    
+    public final static int yOf(final int position)
+    {
+        return (position & 0xFFFF);
+    }
+    
+    private final HashMap<Integer, int[]>            chunks    = new HashMap<Integer, int[]>();
+    private Creature[]                               creatures = new Creature[16];
+    private int                                      free      = BattleGrid.NONE;
+    private final IdentityHashMap<Creature, Integer> ids       = new IdentityHashMap<Creature, Integer>();
+    private int[]                                    next      = new int[16];
+    private int[]                                    positions = new int[16];
+    private int[]                                    previous  = new int[16];
+    private int                                      used      = 0;
+    
+    public BattleGrid()
+    {
+    }
+    
+    public BattleGrid(final Collection<? extends Creature> creatures)
+    {
+        for (final Creature creature : creatures)
+        {
+            this.add(creature);
+        }
+    }
+    
+    // Places the creature on the grid at the position in its stat block. A creature already on the grid is moved there instead.
+    public final void add(final Creature creature)
+    {
+        if (this.ids.containsKey(creature))
+        {
+            this.update(creature);
+            return;
+        }
+        
+        final int id;
+        
+        if (this.free != BattleGrid.NONE)
+        {
+            id = this.free;
+            this.free = this.next[id];
+        }
+        else
+        {
+            if (this.used == this.creatures.length)
+            {
+                final int capacity = (this.used * 2);
+                
+                this.creatures = Arrays.copyOf(this.creatures, capacity);
+                this.next = Arrays.copyOf(this.next, capacity);
+                this.positions = Arrays.copyOf(this.positions, capacity);
+                this.previous = Arrays.copyOf(this.previous, capacity);
+            }
+            
+            id = this.used++;
+        }
+        
+        this.creatures[id] = creature;
+        this.ids.put(creature, id);
+        this.link(id, creature.getStatBlock().getCoordinates());
+    }
+    
+    // Returns the creatures standing in the given square.
+    public final List<Creature> at(final int position)
+    {
+        final List<Creature> found = new ArrayList<Creature>();
+        
+        if (position != BattleGrid.NOWHERE)
+        {
+            this.collect(BattleGrid.xOf(position), BattleGrid.yOf(position), found);
+        }
+        
+        return found;
+    }
+    
+    public final void clear()
+    {
+        this.chunks.clear();
+        Arrays.fill(this.creatures, 0, this.used, null);
+        this.free = BattleGrid.NONE;
+        this.ids.clear();
+        this.used = 0;
+    }
+    
+    // Adds every creature standing in the given square to the list.
+    private final void collect(final int x, final int y, final List<Creature> found)
+    {
+        final int[] chunk = this.chunks.get(BattleGrid.chunkKey(x, y));
+        
+        if (chunk != null)
+        {
+            for (int id = chunk[BattleGrid.chunkSlot(x, y)]; id != BattleGrid.NONE; id = this.next[id])
+            {
+                found.add(this.creatures[id]);
+            }
+        }
+    }
+    
+    // Returns the creatures in a cone of the given length from the origin square toward another square. The cone spreads 45 degrees to
+    // either side of that direction, so it covers a quarter circle. The origin square itself is not included.
+    public final List<Creature> cone(final int origin, final int toward, final int feet)
+    {
+        final int ox = BattleGrid.xOf(origin);
+        final int oy = BattleGrid.yOf(origin);
+        final long vx = (BattleGrid.xOf(toward) - ox);
+        final long vy = (BattleGrid.yOf(toward) - oy);
+        final int squares = (feet / BattleGrid.FEET_PER_SQUARE);
+        
+        if ((vx == 0) && (vy == 0))
+        {
+            throw new IllegalArgumentException("A cone needs a direction: the square it is aimed at cannot be its origin.");
+        }
+        
+        return this.search(ox - squares, oy - squares, ox + squares, oy + squares, new Area()
+        {
+            @Override
+            public final boolean contains(final int x, final int y)
+            {
+                final long wx = (x - ox);
+                final long wy = (y - oy);
+                final long dot = ((vx * wx) + (vy * wy));
+                
+                // Inside the cone when the angle to the direction is at most 45 degrees: cos^2 >= 1/2, tested without square roots.
+                return ((dot > 0) && ((2 * dot * dot) >= (((vx * vx) + (vy * vy)) * ((wx * wx) + (wy * wy)))) &&
+                    (BattleGrid.distance(origin, BattleGrid.pack(x, y)) <= squares));
+            }
+        });
+    }
+    
+    // Returns true if no creature stands in the given square.
+    private final boolean isFree(final int x, final int y)
+    {
+        final int[] chunk = this.chunks.get(BattleGrid.chunkKey(x, y));
+        
+        return ((chunk == null) || (chunk[BattleGrid.chunkSlot(x, y)] == BattleGrid.NONE));
+    }
+    
+    // Returns true if the square is free and can be chosen. Coordinates count from one, as on the printed battle grid, so row and column
+    // zero are never chosen.
+    private final boolean isFreeSquare(final int x, final int y)
+    {
+        return ((x >= 1) && (y >= 1) && (x <= BattleGrid.MAX_COORDINATE) && (y <= BattleGrid.MAX_COORDINATE) && this.isFree(x, y));
+    }
+    
+    // Returns the creatures in every square that a line of the given length from the origin square toward another square passes through.
+    // A line that crosses exactly through the corner of two squares passes through neither. The origin square itself is not included.
+    public final List<Creature> line(final int origin, final int toward, final int feet)
+    {
+        final List<Creature> found = new ArrayList<Creature>();
+        final int ox = BattleGrid.xOf(origin);
+        final int oy = BattleGrid.yOf(origin);
+        final int vx = (BattleGrid.xOf(toward) - ox);
+        final int vy = (BattleGrid.yOf(toward) - oy);
+        final int squares = (feet / BattleGrid.FEET_PER_SQUARE);
+        final int longest = Math.max(Math.abs(vx), Math.abs(vy));
+        
+        if (longest == 0)
+        {
+            throw new IllegalArgumentException("A line needs a direction: the square it is aimed at cannot be its origin.");
+        }
+        
+        // Stretch or shrink the line to its full length along its longer side, then walk the squares it crosses from the origin.
+        final int dx = (int)Math.abs(Math.round(((double)vx * squares) / longest));
+        final int dy = (int)Math.abs(Math.round(((double)vy * squares) / longest));
+        final int sx = ((vx > 0) ? 1 : -1);
+        final int sy = ((vy > 0) ? 1 : -1);
+        int error = (dx - dy);
+        int x = ox;
+        int y = oy;
+        
+        for (int steps = (dx + dy); steps > 0; steps--)
+        {
+            if (error > 0)
+            {
+                x += sx;
+                error -= (2 * dy);
+            }
+            else if (error < 0)
+            {
+                y += sy;
+                error += (2 * dx);
+            }
+            else
+            {
+                x += sx;
+                y += sy;
+                error += (2 * (dx - dy));
+                steps--;
+            }
+            
+            if (BattleGrid.isOnGrid(x, y) && (BattleGrid.distance(origin, BattleGrid.pack(x, y)) <= squares))
+            {
+                this.collect(x, y, found);
+            }
+        }
+        
+        return found;
+    }
+    
+    // Puts a creature at the head of the list of the given square.
+    private final void link(final int id, final int position)
+    {
+        this.positions[id] = position;
+        this.previous[id] = BattleGrid.NONE;
+        this.next[id] = BattleGrid.NONE;
+        
+        if (position == BattleGrid.NOWHERE)
+        {
+            return;
+        }
+        
+        final int x = BattleGrid.xOf(position);
+        final int y = BattleGrid.yOf(position);
+        final Integer key = BattleGrid.chunkKey(x, y);
+        int[] chunk = this.chunks.get(key);
+        
+        if (chunk == null)
+        {
+            chunk = new int[1 << (2 * BattleGrid.CHUNK_BITS)];
+            Arrays.fill(chunk, BattleGrid.NONE);
+            this.chunks.put(key, chunk);
+        }
+        
+        final int slot = BattleGrid.chunkSlot(x, y);
+        
+        this.next[id] = chunk[slot];
+        
+        if (chunk[slot] != BattleGrid.NONE)
+        {
+            this.previous[chunk[slot]] = id;
+        }
+        
+        chunk[slot] = id;
+    }
+    
+    // Places each creature in turn on the free square nearest to the anchor and adds it to the grid, searching outward one ring of squares
+    // at a time. The search carries on from where the last creature was placed instead of starting again, so placing a crowd costs about
+    // as much as the squares it ends up covering. Creatures left over if the grid fills are left where they are.
+    public final void placeAround(final List<? extends Creature> creatures, final int anchor)
+    {
+        final int ax = BattleGrid.xOf(anchor);
+        final int ay = BattleGrid.yOf(anchor);
+        int placed = 0;
+        
+        for (int ring = 0; (placed < creatures.size()) && (ring <= BattleGrid.MAX_COORDINATE); ring++)
+        {
+            for (int d = -ring; (placed < creatures.size()) && (d <= ring); d++)
+            {
+                placed = this.placeIfFree(creatures, placed, ax + d, ay - ring);
+                placed = this.placeIfFree(creatures, placed, ax + d, ay + ring);
+                placed = this.placeIfFree(creatures, placed, ax - ring, ay + d);
+                placed = this.placeIfFree(creatures, placed, ax + ring, ay + d);
+            }
+        }
+    }
+    
+    // Places the next creature on the square if it is free, and returns how many creatures have been placed.
+    private final int placeIfFree(final List<? extends Creature> creatures, final int placed, final int x, final int y)
+    {
+        if ((placed == creatures.size()) || !this.isFreeSquare(x, y))
+        {
+            return placed;
+        }
+        
+        final Creature creature = creatures.get(placed);
+        
+        creature.getStatBlock().setCoordinates(BattleGrid.pack(x, y));
+        this.add(creature);
+        return (placed + 1);
+    }
+    
+    // Returns the creatures within the given distance of the center square, including any in the center square itself.
+    public final List<Creature> radius(final int center, final int feet)
+    {
+        final int cx = BattleGrid.xOf(center);
+        final int cy = BattleGrid.yOf(center);
+        final int squares = (feet / BattleGrid.FEET_PER_SQUARE);
+        
+        return this.search(cx - squares, cy - squares, cx + squares, cy + squares, new Area()
+        {
+            @Override
+            public final boolean contains(final int x, final int y)
+            {
+                return (BattleGrid.distance(center, BattleGrid.pack(x, y)) <= squares);
+            }
+        });
+    }
+    
+    // Returns the creatures in the rectangle with the given opposite corners, both included.
+    public final List<Creature> range(final int corner, final int oppositeCorner)
+    {
+        return this.search(Math.min(BattleGrid.xOf(corner), BattleGrid.xOf(oppositeCorner)),
+            Math.min(BattleGrid.yOf(corner), BattleGrid.yOf(oppositeCorner)),
+            Math.max(BattleGrid.xOf(corner), BattleGrid.xOf(oppositeCorner)),
+            Math.max(BattleGrid.yOf(corner), BattleGrid.yOf(oppositeCorner)),
+            null);
+    }
+    
+    public final void remove(final Creature creature)
+    {
+        final Integer id = this.ids.remove(creature);
+        
+        if (id != null)
+        {
+            this.unlink(id);
+            this.creatures[id] = null;
+            this.next[id] = this.free;
+            this.free = id;
+        }
+    }
+    
+    // Visits the chunks that overlap the bounding box, and within them only the squares inside the box, collecting the creatures in the
+    // squares that belong to the area (or in every square of the box if there is no area).
+    private final List<Creature> search(final int minX, final int minY, final int maxX, final int maxY, final Area area)
+    {
+        final List<Creature> found = new ArrayList<Creature>();
+        final int x0 = Math.max(0, minX);
+        final int y0 = Math.max(0, minY);
+        final int x1 = Math.min(BattleGrid.MAX_COORDINATE, maxX);
+        final int y1 = Math.min(BattleGrid.MAX_COORDINATE, maxY);
+        
+        for (int cx = (x0 >>> BattleGrid.CHUNK_BITS); cx <= (x1 >>> BattleGrid.CHUNK_BITS); cx++)
+        {
+            for (int cy = (y0 >>> BattleGrid.CHUNK_BITS); cy <= (y1 >>> BattleGrid.CHUNK_BITS); cy++)
+            {
+                final int[] chunk = this.chunks.get((cx << 16) | cy);
+                
+                if (chunk == null)
+                {
+                    continue;
+                }
+                
+                final int firstX = Math.max(x0, cx << BattleGrid.CHUNK_BITS);
+                final int lastX = Math.min(x1, (cx << BattleGrid.CHUNK_BITS) | BattleGrid.CHUNK_MASK);
+                final int firstY = Math.max(y0, cy << BattleGrid.CHUNK_BITS);
+                final int lastY = Math.min(y1, (cy << BattleGrid.CHUNK_BITS) | BattleGrid.CHUNK_MASK);
+                
+                for (int x = firstX; x <= lastX; x++)
+                {
+                    for (int y = firstY; y <= lastY; y++)
+                    {
+                        final int head = chunk[BattleGrid.chunkSlot(x, y)];
+                        
+                        if ((head != BattleGrid.NONE) && ((area == null) || area.contains(x, y)))
+                        {
+                            for (int id = head; id != BattleGrid.NONE; id = this.next[id])
+                            {
+                                found.add(this.creatures[id]);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        
+        return found;
+    }
+    
+    public final int size()
+    {
+        return this.ids.size();
+    }
+    
+    // Takes a creature out of the list of the square it stands in. Chunks are kept once created, as creatures tend to return to them.
+    private final void unlink(final int id)
+    {
+        final int position = this.positions[id];
+        
+        if (position == BattleGrid.NOWHERE)
+        {
+            return;
+        }
+        
+        if (this.previous[id] != BattleGrid.NONE)
+        {
+            this.next[this.previous[id]] = this.next[id];
+        }
+        else
+        {
+            final int x = BattleGrid.xOf(position);
+            final int y = BattleGrid.yOf(position);
+            
+            this.chunks.get(BattleGrid.chunkKey(x, y))[BattleGrid.chunkSlot(x, y)] = this.next[id];
+        }
+        
+        if (this.next[id] != BattleGrid.NONE)
+        {
+            this.previous[this.next[id]] = this.previous[id];
+        }
+        
+        this.positions[id] = BattleGrid.NOWHERE;
+    }
+    
+    // Moves the creature to the position now in its stat block. Call it whenever a creature on the grid changes position.
+    public final void update(final Creature creature)
+    {
+        final Integer id = this.ids.get(creature);
+        
+        if ((id != null) && (this.positions[id] != creature.getStatBlock().getCoordinates()))
+        {
+            this.unlink(id);
+            this.link(id, creature.getStatBlock().getCoordinates());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,873 @@
+/*
+ * Title: CombatEngine
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * This class is a common resource for the DiceBag module and its add-on modules to use.
+ * It runs an encounter by the d20 SRD rules the Combat Tracker follows: the turn order and rounds, damage, healing and the status changes
+ * they cause, movement on the battle grid, delaying, readying, and creatures joining part way through. It never prompts and never draws
+ * anything, and it throws its dice straight from a RandomSource, so an encounter can be driven from tests, simulations, scripts or a
+ * server as fast as the CPU allows. The Combat Tracker is a window over it: it asks the DM what to do, tells the engine, and redraws.
+ * 
+ * Every change the engine makes is announced to its listeners once it is made, with whatever a listener needs to describe it. CombatLog
+ * writes the announcements to the DiceBag log; an engine with no listeners does no reporting at all. Given a CombatHistory, the engine
+ * also records every change there, and can then undo it, redo it, or go back to the start of any round. A ConditionIndex follows which
+ * creatures have each effect, so the creatures with an effect, anywhere or near a square, are found without reading the whole roster.
+ */
+
+package org.dicebag.objects;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+public final class CombatEngine
+{
+    // Told of every change to the encounter, after it is made.
+    public static interface Listener
+    {
+        // A new encounter has begun in the given turn order. It is the first round, and the first creature in the order has the turn.
+        public void combatStarted(Roster order);
+        
+        public void creatureDamaged(Creature creature, int amount, Constants35E.Status previousStatus);
+        
+        public void creatureDelayed(Creature creature, Creature after);
+        
+        public void creatureHealed(Creature creature, int amount, Constants35E.Status previousStatus);
+        
+        public void creatureJoined(Creature creature);
+        
+        public void creatureMoved(Creature creature, int from);
+        
+        public void creatureReadied(Creature creature, Creature before);
+        
+        // An encounter has been loaded from a file, in the given turn order, at the given round, with the turn where it was saved.
+        public void encounterLoaded(Roster order, int round);
+        
+        public void creaturesDamaged(List<Outcome> outcomes, int amount, Constants35E.Saves save, int difficulty);
+        
+        public void creaturesHealed(List<Creature> creatures, int amount);
+        
+        public void creaturesSpawned(StatBlock35E template, String hitDice, List<Creature> creatures);
+        
+        public void effectChanged(Creature creature, Constants35E.Effects effect, boolean isOn);
+        
+        // Every creature is dead, so the turn could not pass on.
+        public void everyoneDead();
+        
+        // The event has been done again.
+        public void eventRedone(CombatHistory.Event event);
+        
+        // The event has been undone, and the encounter is as it was before it.
+        public void eventUndone(CombatHistory.Event event);
+        
+        public void initiativeRolled(Creature creature, long roll, boolean isTieBreaker);
+        
+        // The encounter has been put back as it was at the start of the given round.
+        public void roundRestored(int round);
+        
+        public void turnStarted(Creature creature, int round, boolean isNewRound);
+    }
+    
+    // What an area effect did to one creature: the damage it took and, if a save was allowed, the total it rolled and whether it saved.
+    public final static class Outcome
+    {
+        private final Creature creature;
+        private final int      dealt;
+        private final boolean  isSaved;
+        private final long     roll;
+        
+        private Outcome(final Creature creature, final int dealt, final long roll, final boolean isSaved)
+        {
+            this.creature = creature;
+            this.dealt = dealt;
+            this.roll = roll;
+            this.isSaved = isSaved;
+        }
+        
+        public final Creature getCreature()
+        {
+            return this.creature;
+        }
+        
+        public final int getDealt()
+        {
+            return this.dealt;
+        }
+        
+        // Returns the total of the saving throw, or zero if no save was allowed.
+        public final long getRoll()
+        {
+            return this.roll;
+        }
+        
+        public final boolean isSaved()
+        {
+            return this.isSaved;
+        }
+    }
+    
+    private final static Listener[] NO_LISTENERS = new Listener[0];
+    
+    private BattleGrid         battleGrid    = new BattleGrid();
+    private Roster             characterList = new Roster();
+    private ConditionIndex     conditions    = new ConditionIndex();
+    private Roster             creatureList  = new Roster();
+    private CombatHistory      history       = null;
+    // Copied on every change, so announcing never allocates and a listener may add or remove listeners while being told.
+    private Listener[]         listeners     = CombatEngine.NO_LISTENERS;
+    private Roster             monsterList   = new Roster();
+    private int                numRounds     = 0;
+    private final RandomSource randomSource;
+    
+    public CombatEngine(final RandomSource randomSource)
+    {
+        this.randomSource = randomSource;
+    }
+    
+    public final void addListener(final Listener listener)
+    {
+        this.listeners = Arrays.copyOf(this.listeners, this.listeners.length + 1);
+        this.listeners[this.listeners.length - 1] = listener;
+    }
+    
+    // Begins recording a change, if there is a history to record it in.
+    private final void begin(final CombatHistory.Action action)
+    {
+        if (this.history != null)
+        {
+            this.history.begin(action, this);
+        }
+    }
+    
+    // Finishes recording the change begun last.
+    private final void commit()
+    {
+        if (this.history != null)
+        {
+            this.history.commit(this);
+        }
+    }
+    
+    // Called by a creature whenever its hit points, status or effects change, so that the turn order knows at once whether it is still
+    // alive, and the condition index what effects it has.
+    public final void creatureChanged(final Creature creature)
+    {
+        this.getCreatureList().updateLiving(creature);
+        this.getConditions().update(creature);
+    }
+    
+    // Damages one creature; a negative amount heals it instead.
+    public final void damage(final Creature creature, final int amount)
+    {
+        final Constants35E.Status previousStatus = ((StatBlock35E)creature.getStatBlock()).getStatus();
+        
+        this.begin(CombatHistory.Action.DAMAGE);
+        this.touch(creature);
+        creature.damage(amount);
+        this.commit();
+        
+        for (final Listener listener : this.listeners)
+        {
+            listener.creatureDamaged(creature, amount, previousStatus);
+        }
+    }
+    
+    // Deals the same damage to every living creature in the list in one pass. If a save is given, each target rolls that saving throw
+    // against the difficulty class and takes half damage (rounded down) if it succeeds. The whole effect is announced once, however many
+    // creatures it covers.
+    // See d20 SRD Saving Throw rules: http://www.d20srd.org/srd/combat/combatStatistics.htm#savingThrows
+    public final List<Outcome> damageAll(final List<Creature> targets, final int amount, final Constants35E.Saves save, final int difficulty)
+    {
+        final List<Outcome> outcomes = new ArrayList<Outcome>(targets.size());
+        
+        this.begin(CombatHistory.Action.AREA_DAMAGE);
+        
+        for (final Creature creature : targets)
+        {
+            if (creature.isDead())
+            {
+                continue;
+            }
+            
+            int dealt = amount;
+            long total = 0;
+            boolean isSaved = false;
+            
+            if (save != null)
+            {
+                // A natural 20 always succeeds and a natural 1 always fails.
+                final int roll = (this.getRandomSource().nextInt(20) + 1);
+                
+                total = (roll + ((StatBlock35E)creature.getStatBlock()).getSaveBonus(save));
+                isSaved = ((roll == 20) || ((roll != 1) && (total >= difficulty)));
+                
+                if (isSaved)
+                {
+                    dealt = (amount / 2);
+                }
+            }
+            
+            this.touch(creature);
+            creature.adjustHealth(-dealt);
+            outcomes.add(new Outcome(creature, dealt, total, isSaved));
+        }
+        
+        this.commit();
+        
+        for (final Listener listener : this.listeners)
+        {
+            listener.creaturesDamaged(outcomes, amount, save, difficulty);
+        }
+        
+        return outcomes;
+    }
+    
+    // Delays the creature until just after another: it moves to directly after that creature in the turn order, and its initiative becomes
+    // the same as that creature's. The caller ends the creature's turn first if it has the turn.
+    // See d20 SRD Special Initiative Actions: http://www.d20srd.org/srd/combat/specialInitiativeActions.htm
+    public final void delay(final Creature creature, final Creature after)
+    {
+        final Roster creatureList = this.getCreatureList();
+        final int from = creatureList.indexOf(creature);
+        final int to = creatureList.indexOf(after);
+        
+        this.begin(CombatHistory.Action.DELAY);
+        this.touch(creature);
+        creature.getStatBlock().setInitBase(after.getStatBlock().getTotalInit() - creature.getStatBlock().getInitBonus());
+        creatureList.move(creature, ((to < from) ? (to + 1) : to));
+        this.moved(creature, from);
+        this.commit();
+        
+        for (final Listener listener : this.listeners)
+        {
+            listener.creatureDelayed(creature, after);
+        }
+    }
+    
+    public final BattleGrid getBattleGrid()
+    {
+        return this.battleGrid;
+    }
+    
+    public final Roster getCharacterList()
+    {
+        return this.characterList;
+    }
+    
+    public final ConditionIndex getConditions()
+    {
+        return this.conditions;
+    }
+    
+    public final Roster getCreatureList()
+    {
+        return this.creatureList;
+    }
+    
+    public final Creature getCurrentCreature()
+    {
+        return this.getCreatureList().getCurrent();
+    }
+    
+    public final CombatHistory getHistory()
+    {
+        return this.history;
+    }
+    
+    public final Roster getMonsterList()
+    {
+        return this.monsterList;
+    }
+    
+    public final int getNumRounds()
+    {
+        return this.numRounds;
+    }
+    
+    public final RandomSource getRandomSource()
+    {
+        return this.randomSource;
+    }
+    
+    // Heals one creature; a negative amount damages it instead.
+    public final void heal(final Creature creature, final int amount)
+    {
+        final Constants35E.Status previousStatus = ((StatBlock35E)creature.getStatBlock()).getStatus();
+        
+        this.begin(CombatHistory.Action.HEAL);
+        this.touch(creature);
+        creature.heal(amount);
+        this.commit();
+        
+        for (final Listener listener : this.listeners)
+        {
+            listener.creatureHealed(creature, amount, previousStatus);
+        }
+    }
+    
+    // Heals every living creature in the list by the same amount in one pass, announced once. The dead are not healed.
+    public final List<Creature> healAll(final List<Creature> targets, final int amount)
+    {
+        final List<Creature> healed = new ArrayList<Creature>(targets.size());
+        
+        this.begin(CombatHistory.Action.AREA_HEAL);
+        
+        for (final Creature creature : targets)
+        {
+            if (!creature.isDead())
+            {
+                this.touch(creature);
+                creature.adjustHealth(amount);
+                healed.add(creature);
+            }
+        }
+        
+        this.commit();
+        
+        for (final Listener listener : this.listeners)
+        {
+            listener.creaturesHealed(healed, amount);
+        }
+        
+        return healed;
+    }
+    
+    // Adds a character or monster to the fight part way through and inserts it into the turn order where its initiative puts it. The turn
+    // stays with the current creature, so a newcomer who beats it acts from the next round.
+    public final void join(final Creature creature, final boolean isCharacter)
+    {
+        this.begin(CombatHistory.Action.JOIN);
+        
+        if (isCharacter)
+        {
+            this.getCharacterList().add(creature);
+        }
+        else
+        {
+            this.getMonsterList().add(creature);
+        }
+        
+        this.joined(creature, this.getCreatureList().insertByInitiative(creature), isCharacter);
+        this.getBattleGrid().add(creature);
+        this.getConditions().add(creature);
+        this.commit();
+        
+        for (final Listener listener : this.listeners)
+        {
+            listener.creatureJoined(creature);
+        }
+    }
+    
+    // Notes a creature that joined the fight, and where it was inserted in the turn order.
+    private final void joined(final Creature creature, final int index, final boolean isCharacter)
+    {
+        if (this.history != null)
+        {
+            this.history.joined(creature, index, isCharacter);
+        }
+    }
+    
+    // Puts the encounter back as it was at the start of the given round, which must have been reached in the current encounter. The events
+    // after that point are not discarded and can be redone. Returns false if there is no such round to go back to.
+    public final boolean jumpToRound(final int round)
+    {
+        final CombatHistory.Snapshot snapshot = ((this.history == null) ? null : this.history.findRound(round));
+        
+        if (snapshot == null)
+        {
+            return false;
+        }
+        
+        this.restore(snapshot);
+        this.history.restored(snapshot);
+        
+        for (final Listener listener : this.listeners)
+        {
+            listener.roundRestored(round);
+        }
+        
+        return true;
+    }
+    
+    // Replaces the encounter with one read from an encounter file. The creatures join this engine in the turn order they were saved in,
+    // and the turn and the round are as they were; nothing is sorted or rolled.
+    public final void load(final EncounterFile.Encounter encounter)
+    {
+        this.begin(CombatHistory.Action.LOAD);
+        
+        for (final Creature creature : encounter.getOrder())
+        {
+            creature.setCombatEngine(this);
+        }
+        
+        this.numRounds = encounter.getRound();
+        this.characterList = new Roster(encounter.getCharacters());
+        this.monsterList = new Roster(encounter.getMonsters());
+        this.creatureList = new Roster(encounter.getOrder());
+        this.battleGrid = new BattleGrid(this.getCreatureList());
+        this.conditions = new ConditionIndex(this.getCreatureList());
+        
+        if (encounter.getCurrent() >= 0)
+        {
+            this.getCreatureList().setCurrentIndex(encounter.getCurrent());
+        }
+        
+        this.commit();
+        
+        for (final Listener listener : this.listeners)
+        {
+            listener.encounterLoaded(this.getCreatureList(), this.getNumRounds());
+        }
+    }
+    
+    // Moves the creature to the given square, returning false if it is already there.
+    public final boolean move(final Creature creature, final int coordinates)
+    {
+        final int from = creature.getStatBlock().getCoordinates();
+        
+        if (coordinates == from)
+        {
+            return false;
+        }
+        
+        this.begin(CombatHistory.Action.MOVE);
+        this.touch(creature);
+        creature.getStatBlock().setCoordinates(coordinates);
+        this.getBattleGrid().update(creature);
+        this.creatureChanged(creature);
+        this.commit();
+        
+        for (final Listener listener : this.listeners)
+        {
+            listener.creatureMoved(creature, from);
+        }
+        
+        return true;
+    }
+    
+    // Notes that the creature moved in the turn order, and from where.
+    private final void moved(final Creature creature, final int from)
+    {
+        if (this.history != null)
+        {
+            this.history.moved(creature, from, this.getCreatureList().indexOf(creature));
+        }
+    }
+    
+    // Returns every other creature within the given number of feet of the creature, nearest first.
+    public final List<Creature> near(final Creature creature, final int feet)
+    {
+        final int center = creature.getStatBlock().getCoordinates();
+        final List<Creature> near = this.getBattleGrid().radius(center, feet);
+        
+        near.remove(creature);
+        Collections.sort(near, new Comparator<Creature>()
+        {
+            @Override
+            public final int compare(final Creature a, final Creature b)
+            {
+                return Integer.compare(BattleGrid.distance(center, a.getStatBlock().getCoordinates()),
+                    BattleGrid.distance(center, b.getStatBlock().getCoordinates()));
+            }
+        });
+        return near;
+    }
+    
+    // Passes the turn to the next living creature, starting a new round when the turn passes the bottom of the order. Returns null, and
+    // leaves the turn where it is, if every creature is dead.
+    public final Creature nextTurn()
+    {
+        final Roster creatureList = this.getCreatureList();
+        
+        if (creatureList.isAllDead())
+        {
+            for (final Listener listener : this.listeners)
+            {
+                listener.everyoneDead();
+            }
+            
+            return null;
+        }
+        
+        int index = creatureList.nextLiving(creatureList.getCurrentIndex() + 1);
+        final boolean isNewRound = (index < 0);
+        
+        this.begin(CombatHistory.Action.TURN);
+        
+        if (isNewRound)
+        {
+            this.numRounds++;
+            index = creatureList.nextLiving(0);
+            Metrics.ROUNDS.increment();
+        }
+        
+        creatureList.setCurrentIndex(index);
+        Metrics.TURNS.increment();
+        this.commit();
+        
+        for (final Listener listener : this.listeners)
+        {
+            listener.turnStarted(creatureList.getCurrent(), this.getNumRounds(), isNewRound);
+        }
+        
+        return creatureList.getCurrent();
+    }
+    
+    // The creature acts on its readied action now: it moves to directly before the current creature in the turn order, takes the turn, and
+    // its initiative becomes the same as the current creature's. When it is done, the turn passes back to the creature it interrupted.
+    // See d20 SRD Special Initiative Actions: http://www.d20srd.org/srd/combat/specialInitiativeActions.htm
+    public final void ready(final Creature creature)
+    {
+        final Roster creatureList = this.getCreatureList();
+        final Creature current = this.getCurrentCreature();
+        final int from = creatureList.indexOf(creature);
+        final int to = creatureList.indexOf(current);
+        
+        this.begin(CombatHistory.Action.READY);
+        this.touch(creature);
+        creature.getStatBlock().setInitBase(current.getStatBlock().getTotalInit() - creature.getStatBlock().getInitBonus());
+        creatureList.move(creature, ((to < from) ? to : (to - 1)));
+        creatureList.setCurrentIndex(creatureList.indexOf(creature));
+        this.moved(creature, from);
+        this.commit();
+        
+        for (final Listener listener : this.listeners)
+        {
+            listener.creatureReadied(creature, current);
+        }
+    }
+    
+    // Does the last event undone again, and returns it, or returns null if there is nothing to redo.
+    public final CombatHistory.Event redo()
+    {
+        if ((this.history == null) || !this.history.canRedo())
+        {
+            return null;
+        }
+        
+        final CombatHistory.Event event = this.history.redo();
+        
+        if (event.getSnapshotAfter() != null)
+        {
+            this.restore(event.getSnapshotAfter());
+        }
+        else
+        {
+            event.replay(this);
+            this.resume(event.getCurrentAfter(), event.getRound());
+        }
+        
+        for (final Listener listener : this.listeners)
+        {
+            listener.eventRedone(event);
+        }
+        
+        return event;
+    }
+    
+    public final void removeListener(final Listener listener)
+    {
+        final List<Listener> listeners = new ArrayList<Listener>(Arrays.asList(this.listeners));
+        
+        listeners.remove(listener);
+        this.listeners = listeners.toArray(new Listener[listeners.size()]);
+    }
+    
+    // Puts the whole encounter back as it was when the snapshot was taken. The rosters and the grid are rebuilt from it, which costs one
+    // pass over the creatures, however long ago it was taken.
+    private final void restore(final CombatHistory.Snapshot snapshot)
+    {
+        snapshot.apply();
+        this.characterList = new Roster(Arrays.asList(snapshot.getCharacters()));
+        this.monsterList = new Roster(Arrays.asList(snapshot.getMonsters()));
+        this.creatureList = new Roster(Arrays.asList(snapshot.getOrder()));
+        this.battleGrid = new BattleGrid(this.getCreatureList());
+        this.conditions = new ConditionIndex(this.getCreatureList());
+        this.numRounds = snapshot.getRound();
+        
+        if (snapshot.getCurrent() >= 0)
+        {
+            this.getCreatureList().setCurrentIndex(snapshot.getCurrent());
+        }
+    }
+    
+    // Gives the turn back to the creature that had it, in the given round.
+    private final void resume(final Creature current, final int round)
+    {
+        if (current != null)
+        {
+            this.getCreatureList().setCurrentIndex(this.getCreatureList().indexOf(current));
+        }
+        
+        this.numRounds = round;
+    }
+    
+    // Throws a d20 for the creature's initiative, or for its tie-breaker, and returns the roll.
+    public final long rollInitiative(final Creature creature, final boolean isTieBreaker)
+    {
+        final long roll = (this.getRandomSource().nextInt(20) + 1);
+        
+        if (isTieBreaker)
+        {
+            creature.getStatBlock().setTieBreaker(roll);
+        }
+        else
+        {
+            creature.getStatBlock().setInitBase(roll);
+        }
+        
+        Metrics.THROWS.increment();
+        Metrics.DICE_THROWN.increment();
+        
+        for (final Listener listener : this.listeners)
+        {
+            listener.initiativeRolled(creature, roll, isTieBreaker);
+        }
+        
+        return roll;
+    }
+    
+    // Gives the creature the effect or takes it away, returning false if it already had it or already did not.
+    public final boolean setEffect(final Creature creature, final Constants35E.Effects effect, final boolean isOn)
+    {
+        final StatBlock35E statBlock = (StatBlock35E)creature.getStatBlock();
+        
+        if (statBlock.hasEffect(effect) == isOn)
+        {
+            return false;
+        }
+        
+        this.begin(CombatHistory.Action.EFFECT);
+        this.touch(creature);
+        statBlock.setEffect(effect, isOn);
+        this.creatureChanged(creature);
+        this.commit();
+        
+        for (final Listener listener : this.listeners)
+        {
+            listener.effectChanged(creature, effect, isOn);
+        }
+        
+        return true;
+    }
+    
+    // Records every change from now on in the given history, or stops recording if it is null.
+    public final void setHistory(final CombatHistory history)
+    {
+        this.history = history;
+    }
+    
+    // Creates count creatures from a template in one batch, named after it and numbered from first. Each one's hit points are thrown from
+    // the hit dice and its initiative from a d20, all in one pass over the random source. If the template has a position and a grid is
+    // given, the creatures are placed on the free squares nearest to that position. The group is announced once; the caller adds the
+    // creatures to an encounter.
+    public final List<Creature> spawn(final StatBlock35E template, final String hitDice, final int count, final int first, final BattleGrid grid)
+    {
+        final DiceExpression hitPoints = DiceExpression.compile(hitDice);
+        final DiceExpression initiative = DiceExpression.compile("1d20");
+        final List<Creature> spawned = new ArrayList<Creature>(Math.max(0, count));
+        
+        if (count < 1)
+        {
+            return spawned;
+        }
+        
+        for (int i = 0; i < count; i++)
+        {
+            // A creature always has at least one hit point, however badly its hit dice roll.
+            final int maxHealth = (int)Math.max(1, hitPoints.rollTotal(this.getRandomSource()));
+            final Creature creature = new Creature35E(this, new StatBlock35E(template, template.getName() + " " + (first + i), maxHealth));
+            
+            creature.getStatBlock().setInitBase(initiative.rollTotal(this.getRandomSource()));
+            creature.updateStatus();
+            spawned.add(creature);
+        }
+        
+        if ((grid != null) && (template.getCoordinates() != BattleGrid.NOWHERE))
+        {
+            grid.placeAround(spawned, template.getCoordinates());
+        }
+        
+        Metrics.THROWS.add(2L * count);
+        Metrics.DICE_THROWN.add(count * (hitPoints.getDiceCount() + 1));
+        
+        for (final Listener listener : this.listeners)
+        {
+            listener.creaturesSpawned(template, hitDice, spawned);
+        }
+        
+        return spawned;
+    }
+    
+    // Spawns a group of monsters joining the fight part way through and inserts each into the turn order where its initiative puts it.
+    // They are numbered after the highest number among monsters already fighting under exactly the same name followed by a number, so
+    // "Goblin Chief 1" does not count as a goblin and renamed or missing goblins do not cause numbers to repeat. The turn stays with the
+    // current creature.
+    public final List<Creature> spawnMonsters(final StatBlock35E template, final String hitDice, final int count)
+    {
+        final String prefix = (template.getName() + " ");
+        int last = 0;
+        
+        for (final Creature monster : this.getMonsterList())
+        {
+            final String name = monster.getStatBlock().getName();
+            
+            // At most nine digits, so the number always fits in an int.
+            if (name.startsWith(prefix) && name.substring(prefix.length()).matches("[0-9]{1,9}"))
+            {
+                last = Math.max(last, Integer.parseInt(name.substring(prefix.length())));
+            }
+        }
+        
+        final List<Creature> spawned = this.spawn(template, hitDice, count, (last + 1), this.getBattleGrid());
+        
+        if (spawned.isEmpty())
+        {
+            return spawned;
+        }
+        
+        // Nothing already in the encounter changes until the monsters are added, so the change is recorded from there.
+        this.begin(CombatHistory.Action.SPAWN);
+        
+        for (final Creature monster : spawned)
+        {
+            this.getMonsterList().add(monster);
+            this.joined(monster, this.getCreatureList().insertByInitiative(monster), false);
+            this.getBattleGrid().add(monster);
+            this.getConditions().add(monster);
+        }
+        
+        this.commit();
+        return spawned;
+    }
+    
+    // Begins a new encounter between the given characters and monsters: it is the first round, everyone is put in initiative order by the
+    // initiative they have already rolled, and the first creature in the order has the turn.
+    public final void start(final List<Creature> characters, final List<Creature> monsters)
+    {
+        this.begin(CombatHistory.Action.START);
+        this.numRounds = 1;
+        this.characterList = new Roster(characters);
+        this.monsterList = new Roster(monsters);
+        this.creatureList = new Roster(this.getCharacterList());
+        this.getCreatureList().addAll(this.getMonsterList());
+        this.battleGrid = new BattleGrid(this.getCreatureList());
+        this.conditions = new ConditionIndex(this.getCreatureList());
+        InitiativeOrder.sort(this.getCreatureList(), this.getRandomSource());
+        this.commit();
+        
+        for (final Listener listener : this.listeners)
+        {
+            listener.combatStarted(this.getCreatureList());
+        }
+    }
+    
+    // Notes the state of a creature about to be changed.
+    private final void touch(final Creature creature)
+    {
+        if (this.history != null)
+        {
+            this.history.touch(creature);
+        }
+    }
+    
+    // Undoes the last event in effect, and returns it, or returns null if there is nothing to undo.
+    public final CombatHistory.Event undo()
+    {
+        if ((this.history == null) || !this.history.canUndo())
+        {
+            return null;
+        }
+        
+        final CombatHistory.Event event = this.history.undo();
+        
+        if (event.getSnapshotBefore() != null)
+        {
+            this.restore(event.getSnapshotBefore());
+        }
+        else
+        {
+            event.revert(this);
+            this.resume(event.getCurrentBefore(), event.getRoundBefore());
+        }
+        
+        for (final Listener listener : this.listeners)
+        {
+            listener.eventUndone(event);
+        }
+        
+        return event;
+    }
+    
+    // Returns every creature with the effect, in turn order. Only the creatures with it are read: each one's place in the roster is looked
+    // up once, and the places are sorted.
+    public final List<Creature> withEffect(final Constants35E.Effects effect)
+    {
+        final Roster creatureList = this.getCreatureList();
+        final Set<Creature> holders = this.getConditions().get(effect);
+        final int[] positions = new int[holders.size()];
+        final List<Creature> found = new ArrayList<Creature>(positions.length);
+        int i = 0;
+        
+        for (final Creature creature : holders)
+        {
+            positions[i++] = creatureList.indexOf(creature);
+        }
+        
+        Arrays.sort(positions);
+        
+        for (final int position : positions)
+        {
+            found.add(creatureList.get(position));
+        }
+        
+        return found;
+    }
+    
+    // Returns every creature with the effect within the given number of feet of a square, nearest first. Whichever is smaller is read: the
+    // creatures with the effect, or the squares within reach.
+    public final List<Creature> withEffect(final Constants35E.Effects effect, final int center, final int feet)
+    {
+        final Set<Creature> holders = this.getConditions().get(effect);
+        final int squares = (feet / BattleGrid.FEET_PER_SQUARE);
+        final List<Creature> found = new ArrayList<Creature>();
+        
+        if (holders.size() <= (((2L * squares) + 1) * ((2L * squares) + 1)))
+        {
+            for (final Creature creature : holders)
+            {
+                final int position = creature.getStatBlock().getCoordinates();
+                
+                if ((position != BattleGrid.NOWHERE) && (BattleGrid.distance(center, position) <= squares))
+                {
+                    found.add(creature);
+                }
+            }
+        }
+        else
+        {
+            for (final Creature creature : this.getBattleGrid().radius(center, feet))
+            {
+                if (((StatBlock35E)creature.getStatBlock()).hasEffect(effect))
+                {
+                    found.add(creature);
+                }
+            }
+        }
+        
+        Collections.sort(found, new Comparator<Creature>()
+        {
+            @Override
+            public final int compare(final Creature a, final Creature b)
+            {
+                return Integer.compare(BattleGrid.distance(center, a.getStatBlock().getCoordinates()),
+                    BattleGrid.distance(center, b.getStatBlock().getCoordinates()));
+            }
+        });
+        return found;
+    }
+}
\ No newline at end of file
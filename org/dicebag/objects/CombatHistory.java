@@ -0,0 +1,495 @@
+/*
+ * Title: CombatHistory
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * This class is a common resource for the DiceBag module and its add-on modules to use.
+ * It records everything a CombatEngine does as a list of immutable events, so that any action can be undone and redone: mistyped damage,
+ * a turn passed too soon, a move to the wrong square, even a reset. Each event holds the state of only the creatures it touched, before
+ * and after, packed into arrays of longs, together with any change to the turn order, the turn and the round; undoing or redoing it costs
+ * as much as that event, however long the combat has run.
+ * 
+ * At the start of every encounter and of every round the whole encounter is also saved as a compact snapshot: the rosters, and each
+ * creature's hit points, status, position, initiative and effects in five longs. Jumping to any round of the current encounter restores its
+ * snapshot directly instead of undoing or replaying every event in between. Doing something new after undoing discards the events that
+ * were undone, as in any editor.
+ */
+
+package org.dicebag.objects;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public final class CombatHistory
+{
+    public static enum Action
+    {
+        AREA_DAMAGE, AREA_HEAL, DAMAGE, DELAY, EFFECT, HEAL, JOIN, LOAD, MOVE, READY, SPAWN, START, TURN
+    }
+    
+    // One action, with everything needed to undo and redo it.
+    public final static class Event
+    {
+        private final Action     action;
+        private final long[]     after;
+        private final long[]     before;
+        private final Creature   currentAfter;
+        private final Creature   currentBefore;
+        private final int        encounter;
+        private final boolean    isCharacter;
+        private final Creature[] joined;
+        private final int[]      joinedAt;
+        private final Creature   moved;
+        private final int        movedFrom;
+        private final int        movedTo;
+        private final int        roundAfter;
+        private final int        roundBefore;
+        private final Snapshot   snapshotAfter;
+        private final Snapshot   snapshotBefore;
+        private final Creature[] touched;
+        
+        private Event(final CombatHistory recorder, final CombatEngine engine, final int encounter, final Snapshot snapshotAfter)
+        {
+            final int count = recorder.touched.size();
+            
+            this.action = recorder.action;
+            this.encounter = encounter;
+            this.touched = recorder.touched.toArray(new Creature[count]);
+            this.before = Arrays.copyOf(recorder.before, count * CombatHistory.STATE_SIZE);
+            this.after = new long[count * CombatHistory.STATE_SIZE];
+            this.currentBefore = recorder.currentBefore;
+            this.currentAfter = engine.getCurrentCreature();
+            this.roundBefore = recorder.roundBefore;
+            this.roundAfter = engine.getNumRounds();
+            this.moved = recorder.moved;
+            this.movedFrom = recorder.movedFrom;
+            this.movedTo = recorder.movedTo;
+            this.joined = recorder.joined.toArray(new Creature[recorder.joined.size()]);
+            this.joinedAt = new int[this.joined.length];
+            this.isCharacter = recorder.isCharacter;
+            this.snapshotBefore = recorder.snapshotBefore;
+            this.snapshotAfter = snapshotAfter;
+            
+            for (int i = 0; i < count; i++)
+            {
+                CombatHistory.capture(this.touched[i], this.after, i);
+            }
+            
+            for (int i = 0; i < this.joined.length; i++)
+            {
+                this.joinedAt[i] = recorder.joinedAt.get(i);
+            }
+        }
+        
+        public final Action getAction()
+        {
+            return this.action;
+        }
+        
+        final Creature getCurrentAfter()
+        {
+            return this.currentAfter;
+        }
+        
+        final Creature getCurrentBefore()
+        {
+            return this.currentBefore;
+        }
+        
+        // Returns the creatures that joined the fight in this event, in the order they joined.
+        public final List<Creature> getJoined()
+        {
+            return Collections.unmodifiableList(Arrays.asList(this.joined));
+        }
+        
+        public final int getRound()
+        {
+            return this.roundAfter;
+        }
+        
+        final int getRoundBefore()
+        {
+            return this.roundBefore;
+        }
+        
+        final Snapshot getSnapshotAfter()
+        {
+            return this.snapshotAfter;
+        }
+        
+        final Snapshot getSnapshotBefore()
+        {
+            return this.snapshotBefore;
+        }
+        
+        // Returns the creature the event is mainly about: the one damaged, healed, moved, delayed or readied, the first to join, or the one
+        // given the turn. Returns null for area effects and for the start of an encounter.
+        public final Creature getSubject()
+        {
+            switch (this.action)
+            {
+                case DAMAGE:
+                case EFFECT:
+                case HEAL:
+                case MOVE:
+                    
+                    return this.touched[0];
+                
+                case DELAY:
+                case READY:
+                    
+                    return this.moved;
+                
+                case JOIN:
+                case SPAWN:
+                    
+                    return this.joined[0];
+                
+                case TURN:
+                    
+                    return this.currentAfter;
+                
+                default:
+                    
+                    return null;
+            }
+        }
+        
+        // Returns the creatures whose hit points, status, position, initiative or effects the event changed.
+        public final List<Creature> getTouched()
+        {
+            return Collections.unmodifiableList(Arrays.asList(this.touched));
+        }
+        
+        // Does the event again: the creatures that joined are put back where they were inserted, the creature that moved in the turn order
+        // moves again, and every creature touched is put in the state the event left it in. The caller restores the turn and the round.
+        final void replay(final CombatEngine engine)
+        {
+            for (int i = 0; i < this.joined.length; i++)
+            {
+                (this.isCharacter ? engine.getCharacterList() : engine.getMonsterList()).add(this.joined[i]);
+                engine.getCreatureList().add(this.joinedAt[i], this.joined[i]);
+                engine.getBattleGrid().add(this.joined[i]);
+                engine.getConditions().add(this.joined[i]);
+            }
+            
+            if (this.moved != null)
+            {
+                engine.getCreatureList().move(this.moved, this.movedTo);
+            }
+            
+            this.restore(engine, this.after);
+        }
+        
+        // Puts every creature touched in the given states and tells the grid and the turn order.
+        private final void restore(final CombatEngine engine, final long[] states)
+        {
+            for (int i = 0; i < this.touched.length; i++)
+            {
+                CombatHistory.apply(this.touched[i], states, i);
+                engine.getBattleGrid().update(this.touched[i]);
+                engine.creatureChanged(this.touched[i]);
+            }
+        }
+        
+        // Undoes the event, in the reverse order: the creatures that joined leave again, last first, the creature that moved in the turn
+        // order moves back, and every creature touched is put back in the state it was in. The caller restores the turn and the round.
+        final void revert(final CombatEngine engine)
+        {
+            for (int i = (this.joined.length - 1); i >= 0; i--)
+            {
+                final Roster side = (this.isCharacter ? engine.getCharacterList() : engine.getMonsterList());
+                
+                side.remove(side.size() - 1);
+                engine.getCreatureList().remove(engine.getCreatureList().indexOf(this.joined[i]));
+                engine.getBattleGrid().remove(this.joined[i]);
+                engine.getConditions().remove(this.joined[i]);
+            }
+            
+            if (this.moved != null)
+            {
+                engine.getCreatureList().move(this.moved, this.movedFrom);
+            }
+            
+            this.restore(engine, this.before);
+        }
+    }
+    
+    // The whole encounter at one moment: who is on each side, the turn order, whose turn it is, the round, and every creature's state.
+    public final static class Snapshot
+    {
+        private final Creature[] characters;
+        private final int        current;
+        private final int        encounter;
+        private final int        eventIndex;
+        private final Creature[] monsters;
+        private final Creature[] order;
+        private final int        round;
+        private final long[]     states;
+        
+        private Snapshot(final CombatEngine engine, final int encounter, final int eventIndex)
+        {
+            final Roster creatureList = engine.getCreatureList();
+            
+            this.characters = engine.getCharacterList().toArray(new Creature[engine.getCharacterList().size()]);
+            this.monsters = engine.getMonsterList().toArray(new Creature[engine.getMonsterList().size()]);
+            this.order = creatureList.toArray(new Creature[creatureList.size()]);
+            this.states = new long[this.order.length * CombatHistory.STATE_SIZE];
+            this.current = ((creatureList.getCurrent() == null) ? -1 : creatureList.getCurrentIndex());
+            this.round = engine.getNumRounds();
+            this.encounter = encounter;
+            this.eventIndex = eventIndex;
+            
+            for (int i = 0; i < this.order.length; i++)
+            {
+                CombatHistory.capture(this.order[i], this.states, i);
+            }
+        }
+        
+        // Puts every creature back in the state it was in. The caller rebuilds the rosters and the grid from the arrays.
+        final void apply()
+        {
+            for (int i = 0; i < this.order.length; i++)
+            {
+                CombatHistory.apply(this.order[i], this.states, i);
+            }
+        }
+        
+        final Creature[] getCharacters()
+        {
+            return this.characters;
+        }
+        
+        final int getCurrent()
+        {
+            return this.current;
+        }
+        
+        final Creature[] getMonsters()
+        {
+            return this.monsters;
+        }
+        
+        final Creature[] getOrder()
+        {
+            return this.order;
+        }
+        
+        public final int getRound()
+        {
+            return this.round;
+        }
+    }
+    
+    // Each creature's state is five longs: hit points, initiative roll, tie-breaker, its position shifted left eight bits with its status
+    // (its ordinal plus one, or zero for none) in the low bits, and the bitmask of its effects.
+    private final static int STATE_SIZE = 5;
+    
+    // Puts a creature back in the state stored at the given slot.
+    private final static void apply(final Creature creature, final long[] states, final int slot)
+    {
+        final StatBlock35E statBlock = (StatBlock35E)creature.getStatBlock();
+        final int offset = (slot * CombatHistory.STATE_SIZE);
+        final int status = (int)(states[offset + 3] & 0xFF);
+        
+        statBlock.setCurHealth(states[offset]);
+        statBlock.setInitBase(states[offset + 1]);
+        statBlock.setTieBreaker(states[offset + 2]);
+        statBlock.setCoordinates((int)(states[offset + 3] >> 8));
+        statBlock.setStatus((status == 0) ? null : Constants35E.Status.values()[status - 1]);
+        statBlock.setEffectMask(states[offset + 4]);
+    }
+    
+    // Returns true if the action begins a new encounter, which is saved whole before and after instead of creature by creature.
+    private final static boolean isEncounter(final Action action)
+    {
+        return ((action == Action.START) || (action == Action.LOAD));
+    }
+    
+    // Stores a creature's state at the given slot.
+    private final static void capture(final Creature creature, final long[] states, final int slot)
+    {
+        final StatBlock35E statBlock = (StatBlock35E)creature.getStatBlock();
+        final int offset = (slot * CombatHistory.STATE_SIZE);
+        final Constants35E.Status status = statBlock.getStatus();
+        
+        states[offset] = statBlock.getCurHealth();
+        states[offset + 1] = statBlock.getInitBase();
+        states[offset + 2] = statBlock.getTieBreaker();
+        states[offset + 3] = (((long)statBlock.getCoordinates() << 8) | ((status == null) ? 0 : (status.ordinal() + 1)));
+        states[offset + 4] = statBlock.getEffectMask();
+    }
+    
+    // The action being recorded, if any, and what has been noted about it so far.
+    private Action                    action         = null;
+    private long[]                    before         = new long[0];
+    private Creature                  currentBefore  = null;
+    private final ArrayList<Event>    events         = new ArrayList<Event>();
+    private boolean                   isCharacter    = false;
+    private final ArrayList<Creature> joined         = new ArrayList<Creature>();
+    private final ArrayList<Integer>  joinedAt       = new ArrayList<Integer>();
+    private Creature                  moved          = null;
+    private int                       movedFrom      = 0;
+    private int                       movedTo        = 0;
+    // The number of events that are in effect; those after it have been undone and can be redone.
+    private int                       position       = 0;
+    private int                       roundBefore    = 0;
+    private Snapshot                  snapshotBefore = null;
+    private final ArrayList<Snapshot> snapshots      = new ArrayList<Snapshot>();
+    private final ArrayList<Creature> touched        = new ArrayList<Creature>();
+    
+    // Begins recording an action, noting the turn and round before it. A new encounter also saves the whole of the old one.
+    final void begin(final Action action, final CombatEngine engine)
+    {
+        this.action = action;
+        this.before = new long[0];
+        this.currentBefore = engine.getCurrentCreature();
+        this.roundBefore = engine.getNumRounds();
+        this.moved = null;
+        this.joined.clear();
+        this.joinedAt.clear();
+        this.touched.clear();
+        this.snapshotBefore = (CombatHistory.isEncounter(action) ? new Snapshot(engine, this.getEncounter(), this.position - 1) : null);
+    }
+    
+    public final boolean canRedo()
+    {
+        return (this.position < this.events.size());
+    }
+    
+    // The first encounter cannot be undone, as there is nothing before it to go back to.
+    public final boolean canUndo()
+    {
+        return ((this.position > 1) || ((this.position == 1) && (this.events.get(0).snapshotBefore == null)));
+    }
+    
+    // Finishes recording the action and adds it to the history, discarding any events that had been undone. The start of an encounter and
+    // of a round is also saved as a snapshot.
+    final Event commit(final CombatEngine engine)
+    {
+        final boolean isStart = CombatHistory.isEncounter(this.action);
+        final boolean isNewRound = (isStart || ((this.action == Action.TURN) && (engine.getNumRounds() != this.roundBefore)));
+        final int encounter = (isStart ? (this.getEncounter() + 1) : this.getEncounter());
+        
+        while (this.events.size() > this.position)
+        {
+            this.events.remove(this.events.size() - 1);
+        }
+        
+        while (!this.snapshots.isEmpty() && (this.snapshots.get(this.snapshots.size() - 1).eventIndex >= this.position))
+        {
+            this.snapshots.remove(this.snapshots.size() - 1);
+        }
+        
+        final Snapshot snapshot = (isNewRound ? new Snapshot(engine, encounter, this.position) : null);
+        final Event event = new Event(this, engine, encounter, isStart ? snapshot : null);
+        
+        this.events.add(event);
+        this.position++;
+        this.action = null;
+        
+        if (snapshot != null)
+        {
+            this.snapshots.add(snapshot);
+        }
+        
+        return event;
+    }
+    
+    // Returns the snapshot taken at the start of the given round of the current encounter, or null if that round has not been reached.
+    final Snapshot findRound(final int round)
+    {
+        final long key = (((long)this.getEncounter() << 32) | round);
+        int low = 0;
+        int high = (this.snapshots.size() - 1);
+        
+        // Snapshots are taken in order, so they are sorted by encounter and then by round.
+        while (low <= high)
+        {
+            final int middle = ((low + high) >>> 1);
+            final Snapshot snapshot = this.snapshots.get(middle);
+            final long middleKey = (((long)snapshot.encounter << 32) | snapshot.round);
+            
+            if (middleKey < key)
+            {
+                low = middle + 1;
+            }
+            else if (middleKey > key)
+            {
+                high = middle - 1;
+            }
+            else
+            {
+                return ((snapshot.eventIndex < this.events.size()) ? snapshot : null);
+            }
+        }
+        
+        return null;
+    }
+    
+    // Returns the number of the encounter the latest event in effect belongs to, counting from one, or zero before any.
+    private final int getEncounter()
+    {
+        return ((this.position == 0) ? 0 : this.events.get(this.position - 1).encounter);
+    }
+    
+    public final int getPosition()
+    {
+        return this.position;
+    }
+    
+    public final int getSize()
+    {
+        return this.events.size();
+    }
+    
+    // Notes that creatures joined the fight, and where each was inserted in the turn order.
+    final void joined(final Creature creature, final int index, final boolean isCharacter)
+    {
+        this.joined.add(creature);
+        this.joinedAt.add(index);
+        this.isCharacter = isCharacter;
+    }
+    
+    // Notes that a creature moved in the turn order.
+    final void moved(final Creature creature, final int from, final int to)
+    {
+        this.moved = creature;
+        this.movedFrom = from;
+        this.movedTo = to;
+    }
+    
+    // Returns the next event to redo and counts it as done again.
+    final Event redo()
+    {
+        return this.events.get(this.position++);
+    }
+    
+    // Makes the events up to and including the one after which the snapshot was taken the ones in effect.
+    final void restored(final Snapshot snapshot)
+    {
+        this.position = (snapshot.eventIndex + 1);
+    }
+    
+    // Notes a creature's state before the action changes it. Each creature should be noted once per action.
+    final void touch(final Creature creature)
+    {
+        final int slot = this.touched.size();
+        
+        if (this.before.length < ((slot + 1) * CombatHistory.STATE_SIZE))
+        {
+            this.before = Arrays.copyOf(this.before, Math.max(CombatHistory.STATE_SIZE, this.before.length * 2));
+        }
+        
+        this.touched.add(creature);
+        CombatHistory.capture(creature, this.before, slot);
+    }
+    
+    // Returns the latest event in effect and counts it as undone.
+    final Event undo()
+    {
+        return this.events.get(--this.position);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,462 @@
+/*
+ * Title: CombatLog
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * This class is a common resource for the DiceBag module and its add-on modules to use.
+ * It listens to a CombatEngine and writes what happens in the encounter to the DiceBag log: the initial combatants, each new round and
+ * turn, damage, healing and the status changes they cause, effects gained and lost, movement, delaying, readying, creatures joining the
+ * fight, encounters loaded from a file, and anything undone, redone or gone back to from the combat history. The entries read the same as
+ * they did when the Combat Tracker wrote them itself.
+ */
+
+package org.dicebag.objects;
+
+import java.awt.Color;
+import java.util.List;
+
+import api.util.Support;
+
+public final class CombatLog implements CombatEngine.Listener
+{
+    // Returns what an event did, to follow "Undoing" or "Redoing", such as "damage to Goblin 1".
+    private final static String describe(final CombatHistory.Event event)
+    {
+        final Creature subject = event.getSubject();
+        final String name = ((subject == null) ? "" : subject.getStatBlock().getName());
+        
+        switch (event.getAction())
+        {
+            case AREA_DAMAGE:
+                
+                return ("damage to " + event.getTouched().size() + " creature(s)");
+            
+            case AREA_HEAL:
+                
+                return ("healing of " + event.getTouched().size() + " creature(s)");
+            
+            case DAMAGE:
+                
+                return ("damage to " + name);
+            
+            case DELAY:
+                
+                return (name + " delaying");
+            
+            case EFFECT:
+                
+                return ("the change to " + name + "'s conditions");
+            
+            case HEAL:
+                
+                return ("healing of " + name);
+            
+            case JOIN:
+                
+                return (name + " joining the combat");
+            
+            case LOAD:
+                
+                return "the loading of the encounter";
+            
+            case MOVE:
+                
+                return (name + " moving");
+            
+            case READY:
+                
+                return (name + " acting on its readied action");
+            
+            case SPAWN:
+                
+                return (event.getJoined().size() + " creature(s) joining the combat");
+            
+            case START:
+                
+                return "the start of the encounter";
+            
+            default:
+                
+                return ("the turn passing to " + name + " in round " + event.getRound());
+        }
+    }
+    
+    // Returns the name of an effect in plain words, such as "knocked down".
+    private final static String effectName(final Constants35E.Effects effect)
+    {
+        return effect.name().toLowerCase().replace('_', ' ');
+    }
+    
+    // Returns the name of a saving throw as it is written in the rules, such as "Reflex".
+    private final static String saveName(final Constants35E.Saves save)
+    {
+        return (save.name().charAt(0) + save.name().substring(1).toLowerCase());
+    }
+    
+    private final RollLog output;
+    
+    public CombatLog(final RollLog output)
+    {
+        this.output = output;
+    }
+    
+    @Override
+    public final void combatStarted(final Roster order)
+    {
+        // The summary below is queued as it is built and rendered in one batch; it shares a single timestamp.
+        final String timeStamp = "[" + Support.getDateTimeStamp() + "]: ";
+        
+        this.output.append(Color.BLACK, Color.WHITE, timeStamp, Color.BLACK, Color.WHITE, "Initial Combatants:\n");
+        
+        for (final Creature creature : order)
+        {
+            this.output.append(Color.GRAY, Color.WHITE, "\t\t\t   " + creature.toString() + "\n");
+        }
+        
+        this.output.append(Color.BLACK, Color.WHITE, "\n");
+        this.output.append(Color.BLACK, Color.WHITE, timeStamp, Color.MAGENTA, Color.WHITE, "- Round 1 -\n\n");
+        
+        if (order.getCurrent() != null)
+        {
+            this.output.append(Color.BLACK,
+                Color.WHITE,
+                timeStamp,
+                Color.BLACK,
+                Color.WHITE,
+                "First Combatant:\n",
+                Color.GRAY,
+                Color.WHITE,
+                "\t\t\t   " + order.getCurrent().toString() + "\n\n");
+        }
+    }
+    
+    @Override
+    public final void creatureDamaged(final Creature creature, final int amount, final Constants35E.Status previousStatus)
+    {
+        this.output.append(Color.BLACK,
+            Color.WHITE,
+            "[" + Support.getDateTimeStamp() + "]: ",
+            Color.RED,
+            Color.WHITE,
+            "Damaging " + creature.getStatBlock().getName() + " for " + amount + " HP.\n\n");
+        this.statusChanged(creature, previousStatus);
+    }
+    
+    @Override
+    public final void creatureDelayed(final Creature creature, final Creature after)
+    {
+        this.output.append(Color.BLACK,
+            Color.WHITE,
+            "[" + Support.getDateTimeStamp() + "]: ",
+            Color.BLUE,
+            Color.WHITE,
+            creature.getStatBlock().getName() + " delays until after " + after.getStatBlock().getName() + ".\n\n");
+    }
+    
+    @Override
+    public final void creatureHealed(final Creature creature, final int amount, final Constants35E.Status previousStatus)
+    {
+        this.output.append(Color.BLACK,
+            Color.WHITE,
+            "[" + Support.getDateTimeStamp() + "]: ",
+            Color.GREEN,
+            Color.WHITE,
+            "Healing " + creature.getStatBlock().getName() + " for " + amount + " HP.\n\n");
+        this.statusChanged(creature, previousStatus);
+    }
+    
+    @Override
+    public final void creatureJoined(final Creature creature)
+    {
+        this.output.append(Color.BLACK,
+            Color.WHITE,
+            "[" + Support.getDateTimeStamp() + "]: ",
+            Color.BLUE,
+            Color.WHITE,
+            creature.getStatBlock().getName() + " joins the combat.\n",
+            Color.GRAY,
+            Color.WHITE,
+            "\t\t\t   " + creature.toString() + "\n\n");
+    }
+    
+    @Override
+    public final void creatureMoved(final Creature creature, final int from)
+    {
+        this.output.append(Color.BLACK,
+            Color.WHITE,
+            "[" + Support.getDateTimeStamp() + "]: ",
+            Color.BLUE,
+            Color.WHITE,
+            "Moving " + creature.getStatBlock().getName() + " from " + BattleGrid.format(from) + " to " + creature.getStatBlock().getPosition() +
+                ".\n\n");
+    }
+    
+    @Override
+    public final void creatureReadied(final Creature creature, final Creature before)
+    {
+        this.output.append(Color.BLACK,
+            Color.WHITE,
+            "[" + Support.getDateTimeStamp() + "]: ",
+            Color.BLUE,
+            Color.WHITE,
+            creature.getStatBlock().getName() + " acts on its readied action before " + before.getStatBlock().getName() + ".\n\n");
+    }
+    
+    @Override
+    public final void creaturesDamaged(final List<CombatEngine.Outcome> outcomes, final int amount, final Constants35E.Saves save,
+        final int difficulty)
+    {
+        final StringBuilder report = new StringBuilder(128 * (outcomes.size() + 1));
+        
+        for (final CombatEngine.Outcome outcome : outcomes)
+        {
+            report.append("\t\t\t   " + outcome.getCreature().toString() + " took " + outcome.getDealt() + " HP" + ((save == null) ? ""
+                : (" (rolled " + outcome.getRoll() + (outcome.isSaved() ? ", saved" : ", failed") + ")")) + ".\n");
+        }
+        
+        this.output.append(Color.BLACK,
+            Color.WHITE,
+            "[" + Support.getDateTimeStamp() + "]: ",
+            Color.RED,
+            Color.WHITE,
+            "Damaging " + outcomes.size() + " creature(s) for " + amount + " HP" + ((save == null) ? "" : (", " + CombatLog.saveName(save) +
+                " DC " + difficulty + " for half")) + ":\n",
+            Color.GRAY,
+            Color.WHITE,
+            report.toString() + "\n");
+    }
+    
+    @Override
+    public final void creaturesHealed(final List<Creature> creatures, final int amount)
+    {
+        final StringBuilder report = new StringBuilder(128 * (creatures.size() + 1));
+        
+        for (final Creature creature : creatures)
+        {
+            report.append("\t\t\t   " + creature.toString() + "\n");
+        }
+        
+        this.output.append(Color.BLACK,
+            Color.WHITE,
+            "[" + Support.getDateTimeStamp() + "]: ",
+            Color.GREEN,
+            Color.WHITE,
+            "Healing " + creatures.size() + " creature(s) for " + amount + " HP:\n",
+            Color.GRAY,
+            Color.WHITE,
+            report.toString() + "\n");
+    }
+    
+    @Override
+    public final void creaturesSpawned(final StatBlock35E template, final String hitDice, final List<Creature> creatures)
+    {
+        long least = Long.MAX_VALUE;
+        long most = 0;
+        long total = 0;
+        
+        for (final Creature creature : creatures)
+        {
+            least = Math.min(least, creature.getStatBlock().getMaxHealth());
+            most = Math.max(most, creature.getStatBlock().getMaxHealth());
+            total += creature.getStatBlock().getMaxHealth();
+        }
+        
+        this.output.append(Color.BLACK,
+            Color.WHITE,
+            "[" + Support.getDateTimeStamp() + "]: ",
+            Color.BLUE,
+            Color.WHITE,
+            "Spawned " + creatures.size() + " " + template.getName() + " (" + hitDice + " HP: " + least + " to " + most + ", " + String.format(
+                "%.1f", (double)total / creatures.size()) + " on average)" + ((template.getCoordinates() == BattleGrid.NOWHERE) ? ""
+                : (" around " + template.getPosition())) + ".\n\n");
+    }
+    
+    @Override
+    public final void everyoneDead()
+    {
+        this.output.append(Color.BLACK,
+            Color.WHITE,
+            "[" + Support.getDateTimeStamp() + "]: ",
+            Color.RED,
+            Color.WHITE,
+            "Every combatant is dead; there is no one left to take a turn.\n\n");
+    }
+    
+    @Override
+    public final void effectChanged(final Creature creature, final Constants35E.Effects effect, final boolean isOn)
+    {
+        this.output.append(Color.BLACK,
+            Color.WHITE,
+            "[" + Support.getDateTimeStamp() + "]: ",
+            Color.BLUE,
+            Color.WHITE,
+            creature.getStatBlock().getName() + (isOn ? " is now " : " is no longer ") + CombatLog.effectName(effect) + ".\n\n");
+    }
+    
+    @Override
+    public final void encounterLoaded(final Roster order, final int round)
+    {
+        // Like the start of an encounter, the summary is queued as it is built and rendered in one batch under a single timestamp.
+        final String timeStamp = "[" + Support.getDateTimeStamp() + "]: ";
+        
+        this.output.append(Color.BLACK, Color.WHITE, timeStamp, Color.BLACK, Color.WHITE, "Loaded Combatants:\n");
+        
+        for (final Creature creature : order)
+        {
+            this.output.append(Color.GRAY, Color.WHITE, "\t\t\t   " + creature.toString() + "\n");
+        }
+        
+        this.output.append(Color.BLACK, Color.WHITE, "\n");
+        this.output.append(Color.BLACK, Color.WHITE, timeStamp, Color.MAGENTA, Color.WHITE, "- Round " + round + " -\n\n");
+        
+        if (order.getCurrent() != null)
+        {
+            this.output.append(Color.BLACK,
+                Color.WHITE,
+                timeStamp,
+                Color.BLACK,
+                Color.WHITE,
+                "Current Combatant:\n",
+                Color.GRAY,
+                Color.WHITE,
+                "\t\t\t   " + order.getCurrent().toString() + "\n\n");
+        }
+    }
+    
+    @Override
+    public final void eventRedone(final CombatHistory.Event event)
+    {
+        this.history("Redoing ", event);
+    }
+    
+    @Override
+    public final void eventUndone(final CombatHistory.Event event)
+    {
+        this.history("Undoing ", event);
+    }
+    
+    // Writes an event undone or redone, with the creatures it touched as they are now, and whose turn it is.
+    private final void history(final String verb, final CombatHistory.Event event)
+    {
+        final StringBuilder report = new StringBuilder(128 * (event.getTouched().size() + 1));
+        
+        for (final Creature creature : event.getTouched())
+        {
+            report.append("\t\t\t   " + creature.toString() + "\n");
+        }
+        
+        this.output.append(Color.BLACK,
+            Color.WHITE,
+            "[" + Support.getDateTimeStamp() + "]: ",
+            Color.BLUE,
+            Color.WHITE,
+            verb + CombatLog.describe(event) + ".\n",
+            Color.GRAY,
+            Color.WHITE,
+            report.toString() + "\n");
+    }
+    
+    @Override
+    public final void initiativeRolled(final Creature creature, final long roll, final boolean isTieBreaker)
+    {
+        this.output.append(Color.BLACK,
+            Color.WHITE,
+            "\t\t\t   Rolling " + (isTieBreaker ? "tie-breaker" : "initiative") + " for " + creature.getStatBlock().getName() + "... " + roll +
+                "\n");
+    }
+    
+    @Override
+    public final void roundRestored(final int round)
+    {
+        this.output.append(Color.BLACK,
+            Color.WHITE,
+            "[" + Support.getDateTimeStamp() + "]: ",
+            Color.MAGENTA,
+            Color.WHITE,
+            "Returning to the start of round " + round + ".\n\n");
+    }
+    
+    // Announces the status a creature has been brought to by damage or healing, if it is one that calls for a warning. Death is announced
+    // every time a dead creature is damaged.
+    // See d20 SRD Injury and Death rules: http://www.d20srd.org/srd/combat/injuryandDeath.htm
+    private final void statusChanged(final Creature creature, final Constants35E.Status previousStatus)
+    {
+        final Constants35E.Status status = ((StatBlock35E)creature.getStatBlock()).getStatus();
+        final Constants35E constants = (Constants35E)creature.getConstants();
+        final String timeStamp = "[" + Support.getDateTimeStamp() + "]: ";
+        final String name = creature.getStatBlock().getName();
+        
+        if ((status == previousStatus) && (status != Constants35E.Status.DEAD))
+        {
+            return;
+        }
+        
+        switch (status)
+        {
+            case BLOODIED:
+                
+                this.output.append(Color.BLACK, Color.WHITE, timeStamp, Color.RED, Color.WHITE, name +
+                    " has been reduced to half or less of its HP and is bloodied!\n\n");
+                break;
+            
+            case DISABLED:
+                
+                this.output.append(Color.BLACK,
+                    Color.WHITE,
+                    timeStamp,
+                    Color.RED,
+                    Color.WHITE,
+                    name + " has been reduced to " + constants.DISABLED_HP() + " HP and is disabled!\n\n",
+                    Color.GRAY,
+                    Color.WHITE,
+                    "Note: Disabled creatures can only take one move action or one standard action per turn, " + "and take 1 point of damage after completing that action.\n\n");
+                break;
+            
+            case DYING:
+                
+                this.output.append(Color.BLACK,
+                    Color.WHITE,
+                    timeStamp,
+                    Color.RED,
+                    Color.WHITE,
+                    name + " has been reduced to " + constants.DYING_HP() + " or less HP and is dying!\n\n",
+                    Color.GRAY,
+                    Color.WHITE,
+                    "Note: Dying creatures are also unconcious. " + "Each round, a dying creature has a 10% chance to become "
+                        + "stable. If the creature fails, it loses 1 HP. If the creature succeeds, it is still unconcious."
+                        + "Every hour the creature has a 10% chance to regain conciousness. If it fails, it loses 1 HP.\n\n");
+                break;
+            
+            case DEAD:
+                
+                this.output.append(Color.BLACK, Color.WHITE, timeStamp, Color.RED, Color.WHITE, name + " has been reduced to " + constants
+                    .DEAD_HP() + " or less HP and is dead!\n\n");
+                break;
+            
+            default:
+                
+                break;
+        }
+    }
+    
+    @Override
+    public final void turnStarted(final Creature creature, final int round, final boolean isNewRound)
+    {
+        final String timeStamp = "[" + Support.getDateTimeStamp() + "]: ";
+        
+        if (isNewRound)
+        {
+            this.output.append(Color.BLACK, Color.WHITE, timeStamp, Color.MAGENTA, Color.WHITE, "- Round " + round + " -\n\n");
+        }
+        
+        this.output.append(Color.BLACK,
+            Color.WHITE,
+            timeStamp,
+            Color.BLACK,
+            Color.WHITE,
+            "Next Combatant:\n",
+            Color.GRAY,
+            Color.WHITE,
+            "\t\t\t   " + creature.toString() + "\n\n");
+    }
+}
\ No newline at end of file
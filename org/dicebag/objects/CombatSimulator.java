@@ -0,0 +1,509 @@
+/*
+ * Title: CombatSimulator
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * This class is a common resource for the DiceBag module and its add-on modules to use.
+ * It plays out thousands of combats between a party and a group of monsters to estimate, before the session, how the party is likely to
+ * fare: how often each side wins, how many rounds a fight takes, and how often each creature survives, all with 95% confidence intervals.
+ * 
+ * Each combat follows the d20 SRD rules used by the Combat Tracker: everyone rolls initiative, creatures that can act attack a random
+ * opponent that is still standing, and damage moves creatures through the bloodied, disabled, dying and dead thresholds of Constants35E,
+ * decided by the same Creature35E.statusOf the tracker uses. Disabled creatures take 1 damage after acting, and dying creatures stabilise
+ * with a 10% chance each round or lose 1 HP; those still dying when the fight ends keep rolling until they stabilise or die, so survival
+ * means surviving without healing.
+ * 
+ * The simulator copies the roster when it is created and works on plain arrays from then on, so it never touches the creatures, Swing or
+ * the output log. Combats are spread across every core with the fork/join framework. Each combat draws its dice from a generator seeded by
+ * the run's seed and its own number, so a run is exactly reproducible from its seed however many threads take part.
+ */
+
+package org.dicebag.objects;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public final class CombatSimulator
+{
+    // The outcome of a run. Rates are fractions between 0 and 1, and every interval is a 95% confidence interval given as {low, high}.
+    public final static class Result
+    {
+        private long           draws           = 0;
+        private long           monsterWins     = 0;
+        private final String[] names;
+        private long           partyWins       = 0;
+        private final long[]   roundCounts     = new long[CombatSimulator.MAX_ROUNDS + 1];
+        private double         roundsSquareSum = 0;
+        private long           roundsSum       = 0;
+        private long           seed            = 0;
+        private final long[]   survivals;
+        private long           trials          = 0;
+        
+        private Result(final String[] names)
+        {
+            this.names = names;
+            this.survivals = new long[names.length];
+        }
+        
+        public final double getDrawRate()
+        {
+            return ((double)this.draws / this.trials);
+        }
+        
+        public final double getMeanRounds()
+        {
+            return ((double)this.roundsSum / this.trials);
+        }
+        
+        public final double getMonsterWinRate()
+        {
+            return ((double)this.monsterWins / this.trials);
+        }
+        
+        public final double[] getMonsterWinRateInterval()
+        {
+            return CombatSimulator.wilsonInterval(this.monsterWins, this.trials);
+        }
+        
+        public final String getName(final int index)
+        {
+            return this.names[index];
+        }
+        
+        public final double getPartyWinRate()
+        {
+            return ((double)this.partyWins / this.trials);
+        }
+        
+        public final double[] getPartyWinRateInterval()
+        {
+            return CombatSimulator.wilsonInterval(this.partyWins, this.trials);
+        }
+        
+        public final double[] getRoundsInterval()
+        {
+            final double mean = this.getMeanRounds();
+            final double variance = Math.max(0.0, (this.roundsSquareSum / this.trials) - (mean * mean));
+            final double margin = (CombatSimulator.Z * Math.sqrt(variance / this.trials));
+            
+            return new double[] {
+                mean - margin, mean + margin
+            };
+        }
+        
+        // Returns the smallest number of rounds that at least the given fraction of the combats finished within.
+        public final int getRoundsPercentile(final double percentile)
+        {
+            final long rank = (long)Math.ceil(percentile * this.trials);
+            long seen = 0;
+            
+            for (int i = 0; i < this.roundCounts.length; i++)
+            {
+                seen += this.roundCounts[i];
+                
+                if ((seen >= rank) && (seen > 0))
+                {
+                    return i;
+                }
+            }
+            
+            return CombatSimulator.MAX_ROUNDS;
+        }
+        
+        public final long getSeed()
+        {
+            return this.seed;
+        }
+        
+        public final int getSize()
+        {
+            return this.names.length;
+        }
+        
+        public final double getSurvivalRate(final int index)
+        {
+            return ((double)this.survivals[index] / this.trials);
+        }
+        
+        public final double[] getSurvivalRateInterval(final int index)
+        {
+            return CombatSimulator.wilsonInterval(this.survivals[index], this.trials);
+        }
+        
+        public final long getTrials()
+        {
+            return this.trials;
+        }
+        
+        private final void merge(final Result other)
+        {
+            this.draws += other.draws;
+            this.monsterWins += other.monsterWins;
+            this.partyWins += other.partyWins;
+            this.roundsSquareSum += other.roundsSquareSum;
+            this.roundsSum += other.roundsSum;
+            this.trials += other.trials;
+            
+            for (int i = 0; i < this.roundCounts.length; i++)
+            {
+                this.roundCounts[i] += other.roundCounts[i];
+            }
+            
+            for (int i = 0; i < this.survivals.length; i++)
+            {
+                this.survivals[i] += other.survivals[i];
+            }
+        }
+        
+        @Override
+        public final String toString()
+        {
+            final StringBuilder report = new StringBuilder(256 + (64 * this.names.length));
+            final double[] partyInterval = this.getPartyWinRateInterval();
+            final double[] monsterInterval = this.getMonsterWinRateInterval();
+            final double[] roundsInterval = this.getRoundsInterval();
+            
+            report.append(String.format("Simulated %d combats (seed %d).%n", this.trials, this.seed));
+            report.append(String.format("Party wins %.1f%% (%.1f%% to %.1f%%), monsters win %.1f%% (%.1f%% to %.1f%%), "
+                + "unfinished after %d rounds %.1f%%.%n",
+                100.0 * this.getPartyWinRate(),
+                100.0 * partyInterval[0],
+                100.0 * partyInterval[1],
+                100.0 * this.getMonsterWinRate(),
+                100.0 * monsterInterval[0],
+                100.0 * monsterInterval[1],
+                CombatSimulator.MAX_ROUNDS,
+                100.0 * this.getDrawRate()));
+            report.append(String.format("Rounds to finish: mean %.2f (%.2f to %.2f), median %d, 95th percentile %d.%n",
+                this.getMeanRounds(),
+                roundsInterval[0],
+                roundsInterval[1],
+                this.getRoundsPercentile(0.5),
+                this.getRoundsPercentile(0.95)));
+            report.append("Survival:\n");
+            
+            for (int i = 0; i < this.names.length; i++)
+            {
+                final double[] interval = this.getSurvivalRateInterval(i);
+                
+                report.append(String.format("\t%-25s %5.1f%% (%.1f%% to %.1f%%)%n",
+                    this.names[i],
+                    100.0 * this.getSurvivalRate(i),
+                    100.0 * interval[0],
+                    100.0 * interval[1]));
+            }
+            
+            return report.toString();
+        }
+    }
+    
+    private final static class SimulationTask extends RecursiveTask<Result>
+    {
+        private final static long     serialVersionUID = 1L;
+        private final int             from;
+        private final long            seed;
+        private final CombatSimulator simulator;
+        private final int             to;
+        
+        private SimulationTask(final CombatSimulator simulator, final long seed, final int from, final int to)
+        {
+            this.simulator = simulator;
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected final Result compute()
+        {
+            if ((this.to - this.from) <= CombatSimulator.CHUNK_SIZE)
+            {
+                return this.simulator.simulate(this.seed, this.from, this.to);
+            }
+            
+            final int middle = (this.from + ((this.to - this.from) / 2));
+            final SimulationTask left = new SimulationTask(this.simulator, this.seed, this.from, middle);
+            
+            left.fork();
+            
+            final Result result = new SimulationTask(this.simulator, this.seed, middle, this.to).compute();
+            
+            result.merge(left.join());
+            return result;
+        }
+    }
+    
+    // Combats per leaf task.
+    public final static int             CHUNK_SIZE = 64;
+    private final static Constants35E   CONSTANTS  = new Constants35E();
+    // Combats still undecided after this many rounds are counted as unfinished rather than as a win for either side.
+    public final static int             MAX_ROUNDS = 100;
+    // The standard normal quantile for a two-sided 95% confidence interval.
+    private final static double         Z          = 1.959963984540054;
+    
+    private final static boolean isStanding(final Constants35E.Status status)
+    {
+        return ((status == Constants35E.Status.HEALTHY) || (status == Constants35E.Status.BLOODIED) || (status == Constants35E.Status.DISABLED));
+    }
+    
+    // Returns the Wilson score interval for a proportion, which unlike the normal approximation stays inside [0, 1] and behaves well for rates
+    // close to 0 or 1, such as the survival of a creature that almost never dies.
+    private final static double[] wilsonInterval(final long successes, final long trials)
+    {
+        final double p = ((double)successes / trials);
+        final double z2 = (CombatSimulator.Z * CombatSimulator.Z);
+        final double denominator = (1.0 + (z2 / trials));
+        final double center = ((p + (z2 / (2.0 * trials))) / denominator);
+        final double margin = ((CombatSimulator.Z * Math.sqrt(((p * (1.0 - p)) / trials) + (z2 / (4.0 * trials * trials)))) / denominator);
+        
+        return new double[] {
+            Math.max(0.0, center - margin), Math.min(1.0, center + margin)
+        };
+    }
+    
+    private final long[]           armorClasses;
+    private final long[]           attackBonuses;
+    private final long[]           curHealths;
+    private final DiceExpression[] damages;
+    private final long[]           initBonuses;
+    private final boolean[]        isParty;
+    private final long[]           maxHealths;
+    private final String[]         names;
+    private final int              partySize;
+    private final ForkJoinPool     pool;
+    
+    // Copies the party and the monsters, as they stand now, into a simulator that runs on the common fork/join pool.
+    public CombatSimulator(final List<? extends Creature> party, final List<? extends Creature> monsters)
+    {
+        this(party, monsters, ForkJoinPool.commonPool());
+    }
+    
+    public CombatSimulator(final List<? extends Creature> party, final List<? extends Creature> monsters, final ForkJoinPool pool)
+    {
+        final int size = (party.size() + monsters.size());
+        
+        this.armorClasses = new long[size];
+        this.attackBonuses = new long[size];
+        this.curHealths = new long[size];
+        this.damages = new DiceExpression[size];
+        this.initBonuses = new long[size];
+        this.isParty = new boolean[size];
+        this.maxHealths = new long[size];
+        this.names = new String[size];
+        this.partySize = party.size();
+        this.pool = pool;
+        
+        for (int i = 0; i < size; i++)
+        {
+            final Creature creature = ((i < this.partySize) ? party.get(i) : monsters.get(i - this.partySize));
+            
+            if (!(creature.getStatBlock() instanceof StatBlock35E))
+            {
+                throw new IllegalArgumentException(creature.getStatBlock().getName() + " does not have a 3.5E stat block.");
+            }
+            
+            final StatBlock35E statBlock = (StatBlock35E)creature.getStatBlock();
+            
+            this.armorClasses[i] = statBlock.getArmorClass();
+            this.attackBonuses[i] = statBlock.getAttackBonus();
+            this.curHealths[i] = statBlock.getCurHealth();
+            this.damages[i] = DiceExpression.compile(statBlock.getDamage());
+            this.initBonuses[i] = statBlock.getInitBonus();
+            this.isParty[i] = (i < this.partySize);
+            this.maxHealths[i] = statBlock.getMaxHealth();
+            this.names[i] = statBlock.getName();
+        }
+    }
+    
+    public final ForkJoinPool getPool()
+    {
+        return this.pool;
+    }
+    
+    public final int getSize()
+    {
+        return this.names.length;
+    }
+    
+    // Plays out the given number of combats and summarises them. The same seed always gives the same result.
+    public final Result run(final int trials, final long seed)
+    {
+        if (trials < 1)
+        {
+            throw new IllegalArgumentException("At least one combat must be simulated.");
+        }
+        
+        final Result result = this.getPool().invoke(new SimulationTask(this, seed, 0, trials));
+        
+        result.seed = seed;
+        return result;
+    }
+    
+    // Plays out combats from first (inclusive) to last (exclusive) and returns their tally. Every array used is allocated once per call.
+    private final Result simulate(final long seed, final int first, final int last)
+    {
+        final int size = this.getSize();
+        final Result result = new Result(this.names);
+        final long[] health = new long[size];
+        final long[] keys = new long[size];
+        final int[] order = new int[size];
+        final int[] standing = new int[2];
+        final Constants35E.Status[] status = new Constants35E.Status[size];
+        
+        for (int trial = first; trial < last; trial++)
+        {
+            final RandomSource random = RandomSource.xoshiro(seed + trial);
+            int round = 0;
+            
+            standing[0] = 0;
+            standing[1] = 0;
+            
+            // Roll initiative. Each key packs the total, then the modifier, then a random tie-breaker, so one descending sort of the keys gives
+            // the turn order without ever rolling again.
+            for (int i = 0; i < size; i++)
+            {
+                health[i] = this.curHealths[i];
+                status[i] = Creature35E.statusOf(health[i], this.maxHealths[i], CombatSimulator.CONSTANTS);
+                
+                if (CombatSimulator.isStanding(status[i]))
+                {
+                    standing[this.isParty[i] ? 0 : 1]++;
+                }
+                
+                final long total = (random.nextInt(20) + 1 + this.initBonuses[i]);
+                
+                keys[i] = (((total + (1 << 20)) << 42) | ((this.initBonuses[i] + (1 << 20)) << 21) | random.nextInt(1 << 21));
+                order[i] = i;
+            }
+            
+            for (int i = 1; i < size; i++)
+            {
+                final int creature = order[i];
+                int j = i - 1;
+                
+                while ((j >= 0) && (keys[order[j]] < keys[creature]))
+                {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                
+                order[j + 1] = creature;
+            }
+            
+            while ((standing[0] > 0) && (standing[1] > 0) && (round < CombatSimulator.MAX_ROUNDS))
+            {
+                round++;
+                
+                for (int k = 0; (k < size) && (standing[0] > 0) && (standing[1] > 0); k++)
+                {
+                    final int attacker = order[k];
+                    final int side = (this.isParty[attacker] ? 0 : 1);
+                    
+                    if (status[attacker] == Constants35E.Status.DYING)
+                    {
+                        if (random.nextInt(10) == 0)
+                        {
+                            status[attacker] = Constants35E.Status.UNCONCIOUS;
+                        }
+                        else
+                        {
+                            health[attacker]--;
+                            status[attacker] = Creature35E.statusOf(health[attacker], this.maxHealths[attacker], CombatSimulator.CONSTANTS);
+                        }
+                        
+                        continue;
+                    }
+                    
+                    if (!CombatSimulator.isStanding(status[attacker]))
+                    {
+                        continue;
+                    }
+                    
+                    // Pick a random opponent that is still standing.
+                    int target = -1;
+                    
+                    for (int i = 0, skip = random.nextInt(standing[1 - side]); i < size; i++)
+                    {
+                        if ((this.isParty[i] != this.isParty[attacker]) && CombatSimulator.isStanding(status[i]) && (skip-- == 0))
+                        {
+                            target = i;
+                            break;
+                        }
+                    }
+                    
+                    final int roll = (random.nextInt(20) + 1);
+                    
+                    // A natural 20 always hits and a natural 1 always misses; damage on a hit is never less than 1.
+                    if ((roll == 20) || ((roll != 1) && ((roll + this.attackBonuses[attacker]) >= this.armorClasses[target])))
+                    {
+                        health[target] -= Math.max(1, this.damages[attacker].total(random.nextLong()));
+                        this.updateStatus(target, health, status, standing);
+                    }
+                    
+                    if (status[attacker] == Constants35E.Status.DISABLED)
+                    {
+                        health[attacker]--;
+                        this.updateStatus(attacker, health, status, standing);
+                    }
+                }
+            }
+            
+            if ((standing[0] > 0) && (standing[1] == 0))
+            {
+                result.partyWins++;
+            }
+            else if ((standing[1] > 0) && (standing[0] == 0))
+            {
+                result.monsterWins++;
+            }
+            else
+            {
+                result.draws++;
+            }
+            
+            // Nobody tends the dying once the fight is over, so they keep rolling to stabilise until they either do or die.
+            for (int i = 0; i < size; i++)
+            {
+                while (status[i] == Constants35E.Status.DYING)
+                {
+                    if (random.nextInt(10) == 0)
+                    {
+                        status[i] = Constants35E.Status.UNCONCIOUS;
+                    }
+                    else
+                    {
+                        health[i]--;
+                        status[i] = Creature35E.statusOf(health[i], this.maxHealths[i], CombatSimulator.CONSTANTS);
+                    }
+                }
+                
+                if (status[i] != Constants35E.Status.DEAD)
+                {
+                    result.survivals[i]++;
+                }
+            }
+            
+            result.roundCounts[round]++;
+            result.roundsSum += round;
+            result.roundsSquareSum += ((double)round * round);
+            result.trials++;
+        }
+        
+        return result;
+    }
+    
+    // Moves a creature to the status its hit points call for, keeping the count of creatures still standing on each side up to date.
+    private final void updateStatus(final int creature, final long[] health, final Constants35E.Status[] status, final int[] standing)
+    {
+        final Constants35E.Status next = Creature35E.statusOf(health[creature], this.maxHealths[creature], CombatSimulator.CONSTANTS);
+        final boolean wasStanding = CombatSimulator.isStanding(status[creature]);
+        
+        status[creature] = next;
+        
+        if (wasStanding && !CombatSimulator.isStanding(next))
+        {
+            standing[this.isParty[creature] ? 0 : 1]--;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,106 @@
+/*
+ * Title: ConditionIndex
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * This class is a common resource for the DiceBag module and its add-on modules to use.
+ * It indexes which creatures of an encounter have each effect, so that questions such as "who is frightened?" are answered from the
+ * creatures that are, without reading the rest of the roster. It remembers the effects each creature had when it was last indexed, so
+ * when a creature changes only the effects that were gained or lost are updated, by comparing two bitmasks. A CombatEngine keeps one
+ * for its encounter and tells it of every change.
+ */
+
+package org.dicebag.objects;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public final class ConditionIndex
+{
+    // The creatures that have each effect, by the effect's ordinal.
+    private final List<Set<Creature>> holders = new ArrayList<Set<Creature>>(Constants35E.Effects.values().length);
+    // The effects each creature in the index had when it was last indexed.
+    private final Map<Creature, Long> masks   = new HashMap<Creature, Long>();
+    
+    public ConditionIndex()
+    {
+        for (int i = 0; i < Constants35E.Effects.values().length; i++)
+        {
+            this.holders.add(new HashSet<Creature>());
+        }
+    }
+    
+    public ConditionIndex(final Collection<? extends Creature> creatures)
+    {
+        this();
+        
+        for (final Creature creature : creatures)
+        {
+            this.add(creature);
+        }
+    }
+    
+    // Adds a creature to the index with the effects it has now.
+    final void add(final Creature creature)
+    {
+        this.masks.put(creature, 0L);
+        this.update(creature);
+    }
+    
+    // Returns the number of creatures with the effect.
+    public final int count(final Constants35E.Effects effect)
+    {
+        return this.holders.get(effect.ordinal()).size();
+    }
+    
+    // Returns the creatures with the effect, in no particular order. The set is read-only and follows the index as it changes.
+    public final Set<Creature> get(final Constants35E.Effects effect)
+    {
+        return Collections.unmodifiableSet(this.holders.get(effect.ordinal()));
+    }
+    
+    // Takes a creature out of the index.
+    final void remove(final Creature creature)
+    {
+        final Long mask = this.masks.remove(creature);
+        
+        if (mask != null)
+        {
+            this.toggle(creature, mask);
+        }
+    }
+    
+    // Adds the creature to, or removes it from, the holders of every effect whose bit is set in the given bitmask.
+    private final void toggle(final Creature creature, final long changed)
+    {
+        for (long bits = changed; bits != 0; bits &= (bits - 1))
+        {
+            final Set<Creature> holders = this.holders.get(Long.numberOfTrailingZeros(bits));
+            
+            if (!holders.remove(creature))
+            {
+                holders.add(creature);
+            }
+        }
+    }
+    
+    // Re-reads the creature's effects and updates only those it has gained or lost since it was last indexed. Creatures that are not in
+    // the index are ignored.
+    final void update(final Creature creature)
+    {
+        final Long mask = this.masks.get(creature);
+        final long effects = ((StatBlock35E)creature.getStatBlock()).getEffectMask();
+        
+        if ((mask != null) && (mask != effects))
+        {
+            this.masks.put(creature, effects);
+            this.toggle(creature, mask ^ effects);
+        }
+    }
+}
\ No newline at end of file
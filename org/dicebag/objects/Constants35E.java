@@ -61,6 +61,12 @@ public final class Constants35E extends Constants
         // TODO: Feat ID Constants.
     }
     
+    // See d20 SRD Saving Throw rules: http://www.d20srd.org/srd/combat/combatStatistics.htm#savingThrows
+    public static enum Saves
+    {
+        FORTITUDE, REFLEX, WILL
+    }
+    
     public static enum Skills
     {
         // TODO: Skill ID Constants.
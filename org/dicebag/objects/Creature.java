@@ -14,62 +14,55 @@ package org.dicebag.objects;
 import java.awt.Component;
 import java.io.Serializable;
 
-import org.dicebag.modules.CombatTracker;
-import org.dicebag.modules.DiceBag;
-
 public abstract class Creature implements Comparable<Creature>, Serializable
 {
-    private final static long serialVersionUID = 1L;
-    private CombatTracker     combatTracker    = null;
-    protected Constants       constants        = null;
-    private DiceBag           diceRoller       = null;
-    protected StatBlock       statBlock        = null;
+    private final static long      serialVersionUID = 1L;
+    // The encounter the creature is fighting in, if any. A saved creature is written without it.
+    private transient CombatEngine combatEngine     = null;
+    protected Constants            constants        = null;
+    protected StatBlock            statBlock        = null;
     
-    public Creature(final DiceBag diceBag, final CombatTracker combatTracker, final StatBlock statBlock, final Constants constants)
+    public Creature(final CombatEngine combatEngine, final StatBlock statBlock, final Constants constants)
     {
-        this.setDiceRoller(diceBag);
-        this.setCombatTracker(combatTracker);
+        this.setCombatEngine(combatEngine);
         this.setStatBlock(statBlock);
         this.setConstants(constants);
     }
     
+    // Changes the creature's hit points by the given amount (negative for damage) and updates its status. Unlike damage and heal, it is
+    // not timed, as bulk operations call it for every creature they touch.
+    public abstract void adjustHealth(final int amount);
+    
     @Override
     public abstract int compareTo(final Creature creature);
     
     public abstract void damage(final int amount);
     
-    public final CombatTracker getCombatTracker()
+    public final CombatEngine getCombatEngine()
     {
-        return this.combatTracker;
+        return this.combatEngine;
     }
     
     public abstract Constants getConstants();
     
-    public final DiceBag getDiceRoller()
-    {
-        return this.diceRoller;
-    }
-    
     public abstract StatBlock getStatBlock();
     
     public abstract void heal(final int amount);
     
+    // Returns true if the creature is dead and should no longer take turns.
+    public abstract boolean isDead();
+    
     public abstract void openOrSaveFile(final Component parent, final boolean isOpen, final boolean isDebugging);
     
     public abstract void rollInitiative(final boolean isTieBreaker);
     
-    protected final void setCombatTracker(final CombatTracker combatTracker)
+    protected final void setCombatEngine(final CombatEngine combatEngine)
     {
-        this.combatTracker = combatTracker;
+        this.combatEngine = combatEngine;
     }
     
     protected abstract void setConstants(final Constants constants);
     
-    protected final void setDiceRoller(final DiceBag diceRoller)
-    {
-        this.diceRoller = diceRoller;
-    }
-    
     protected abstract void setStatBlock(final StatBlock statBlock);
     
     @Override
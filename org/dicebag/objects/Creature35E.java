@@ -9,87 +9,93 @@
 
 package org.dicebag.objects;
 
-import java.awt.Color;
 import java.awt.Component;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
 
-import org.dicebag.modules.CombatTracker;
-import org.dicebag.modules.DiceBag;
-
-import api.gui.swing.RichTextPane;
 import api.util.Support;
 
 public final class Creature35E extends Creature
 {
     private final static long serialVersionUID = 1L;
     
-    public Creature35E(final DiceBag diceBag, final CombatTracker combatTracker, final StatBlock35E statBlock)
-    {
-        super(diceBag, combatTracker, statBlock, new Constants35E());
-    }
-    
-    // Implements initiative as the natural ordering mechanism for the Creature class.
-    // See d20 SRD Initiative rules: http://www.d20srd.org/srd/combat/initiative.htm
-    @Override
-    public final int compareTo(final Creature creature)
+    // Returns the status a creature with the given hit points is in by the d20 SRD rules. Creature35E.updateStatus and the combat
+    // simulator both decide status transitions here, so the two can never disagree.
+    // See d20 SRD Injury and Death rules: http://www.d20srd.org/srd/combat/injuryandDeath.htm
+    public final static Constants35E.Status statusOf(final long curHealth, final long maxHealth, final Constants35E constants)
     {
-        if (creature.getStatBlock().getTotalInit() != this.getStatBlock().getTotalInit())
+        if (curHealth <= constants.DEAD_HP())
         {
-            // By default, the creature with the highest total initiative acts first.
-            // Turns then proceed in descending order of initiative.
-            return (int)(creature.getStatBlock().getTotalInit() - this.getStatBlock().getTotalInit());
+            return Constants35E.Status.DEAD;
+        }
+        else if (curHealth <= constants.DYING_HP())
+        {
+            return Constants35E.Status.DYING;
+        }
+        else if (curHealth == constants.DISABLED_HP())
+        {
+            return Constants35E.Status.DISABLED;
+        }
+        else if (curHealth <= (maxHealth / 2))
+        {
+            return Constants35E.Status.BLOODIED;
         }
         else
         {
-            // If two creatures have the same total initiative, the one with the higher initiative bonus acts first.
-            if (creature.getStatBlock().getInitBonus() != this.getStatBlock().getInitBonus())
-            {
-                return (int)(creature.getStatBlock().getInitBonus() - this.getStatBlock().getInitBonus());
-            }
-            else
-            {
-                // If two creatures have the same total initiative and initiative bonus,
-                // then they both roll d20 tie-breakers until there is a winner.
-                do
-                {
-                    if ((creature.getDiceRoller() != null) && (this.getDiceRoller() != null))
-                    {
-                        creature.rollInitiative(true);
-                        this.rollInitiative(true);
-                    }
-                }
-                while (creature.getStatBlock().getTieBreaker() == this.getStatBlock().getTieBreaker());
-                
-                return (int)(creature.getStatBlock().getTieBreaker() - this.getStatBlock().getTieBreaker());
-            }
+            return Constants35E.Status.HEALTHY;
         }
     }
     
+    public Creature35E(final CombatEngine combatEngine, final StatBlock35E statBlock)
+    {
+        super(combatEngine, statBlock, new Constants35E());
+    }
+    
     @Override
-    public final void damage(final int amount)
+    public final void adjustHealth(final int amount)
+    {
+        this.changeHealth(amount);
+        this.updateStatus();
+    }
+    
+    // Applies damage (a negative amount) down to the dead threshold or healing up to maximum HP, and records it in the metrics.
+    private final void changeHealth(final int amount)
     {
-        this.getDiceRoller()
-            .getOutput()
-            .append(Color.BLACK,
-                Color.WHITE,
-                "[" + Support.getDateTimeStamp() + "]: ",
-                Color.RED,
-                Color.WHITE,
-                "Damaging " + this.getStatBlock().getName() + " for " + amount + " HP.\n\n");
+        final long curHealth = this.getStatBlock().getCurHealth();
         
-        if ((this.getStatBlock().getCurHealth() - amount) <= this.getConstants().DEAD_HP())
+        if (amount < 0)
         {
-            this.getStatBlock().setCurHealth(this.getConstants().DEAD_HP());
+            this.getStatBlock().setCurHealth(Math.max(this.getConstants().DEAD_HP(), curHealth + amount));
+            Metrics.DAMAGE_DEALT.add(-amount);
         }
         else
         {
-            this.getStatBlock().setCurHealth(this.getStatBlock().getCurHealth() - amount);
+            this.getStatBlock().setCurHealth(Math.min(this.getStatBlock().getMaxHealth(), curHealth + amount));
+            Metrics.HEALING_DONE.add(amount);
         }
+    }
+    
+    // Implements initiative as the natural ordering mechanism for the Creature class.
+    // The creature with the highest total initiative acts first, then the one with the higher initiative bonus, then the winner of the
+    // tie-breaker. Tie-breakers are thrown once, before sorting, by InitiativeOrder; comparing never throws dice.
+    // See d20 SRD Initiative rules: http://www.d20srd.org/srd/combat/initiative.htm
+    @Override
+    public final int compareTo(final Creature creature)
+    {
+        return Long.compare(creature.getStatBlock().getInitiativeKey(), this.getStatBlock().getInitiativeKey());
+    }
+    
+    @Override
+    public final void damage(final int amount)
+    {
+        final long startTime = System.nanoTime();
         
-        this.updateStatus();
+        this.adjustHealth(-amount);
+        Metrics.DAMAGE_TIME.record(startTime);
     }
     
     @Override
@@ -107,31 +113,23 @@ public final class Creature35E extends Creature
     @Override
     public final void heal(final int amount)
     {
-        this.getDiceRoller()
-            .getOutput()
-            .append(Color.BLACK,
-                Color.WHITE,
-                "[" + Support.getDateTimeStamp() + "]: ",
-                Color.GREEN,
-                Color.WHITE,
-                "Healing " + this.getStatBlock().getName() + " for " + amount + " HP.\n\n");
+        final long startTime = System.nanoTime();
         
-        if ((this.getStatBlock().getCurHealth() + amount) > this.getStatBlock().getMaxHealth())
-        {
-            this.getStatBlock().setCurHealth(this.getStatBlock().getMaxHealth());
-        }
-        else
-        {
-            this.getStatBlock().setCurHealth(this.getStatBlock().getCurHealth() + amount);
-        }
-        
-        this.updateStatus();
+        this.adjustHealth(amount);
+        Metrics.HEAL_TIME.record(startTime);
+    }
+    
+    @Override
+    public final boolean isDead()
+    {
+        return (this.getStatBlock().getStatus() == Constants35E.Status.DEAD);
     }
     
+    // Saves the creature as an encounter file of one, or opens one. Creatures saved with Java serialization before encounter files existed
+    // still open.
     @Override
     public final void openOrSaveFile(final Component parent, final boolean isOpen, final boolean isDebugging)
     {
-        Object stream = null;
         String filePath = Support.getFilePath(parent, isOpen, isDebugging);
         
         if ((filePath == null) || filePath.isEmpty())
@@ -139,66 +137,48 @@ public final class Creature35E extends Creature
             return;
         }
         
+        final Path path = Paths.get(filePath);
+        
         try
         {
-            if (isOpen)
+            if (!isOpen)
             {
-                // Use binary file manipulation to import a file containing a StatBlock35E object.
-                stream = new ObjectInputStream(new FileInputStream(filePath));
-                this.setStatBlock((StatBlock35E)((ObjectInputStream)stream).readObject());
+                EncounterFile.save(this, path);
+            }
+            else if (EncounterFile.isEncounterFile(path))
+            {
+                final List<Creature> order = EncounterFile.load(path).getOrder();
+                
+                if (order.isEmpty())
+                {
+                    throw new IOException(filePath + " holds no creatures.");
+                }
+                
+                this.setStatBlock(order.get(0).getStatBlock());
             }
             else
             {
-                // Use binary file manipulation to export a file containing a StatBlock35E object.
-                stream = new ObjectOutputStream(new FileOutputStream(filePath));
-                ((ObjectOutputStream)stream).writeObject(this.getStatBlock());
+                // Use binary file manipulation to import a file containing a StatBlock35E object.
+                try (final ObjectInputStream stream = new ObjectInputStream(Files.newInputStream(path)))
+                {
+                    this.setStatBlock((StatBlock35E)stream.readObject());
+                }
             }
-            
         }
         catch (final Exception exception)
         {
             Support.displayException(parent, exception, false);
         }
-        finally
-        {
-            if (stream != null)
-            {
-                try
-                {
-                    if (isOpen)
-                    {
-                        ((ObjectInputStream)stream).close();
-                    }
-                    else
-                    {
-                        ((ObjectOutputStream)stream).close();
-                    }
-                }
-                catch (final Exception exception)
-                {
-                    Support.displayException(parent, exception, false);
-                }
-            }
-        }
     }
     
+    // Throws a d20 for the creature's initiative or tie-breaker through the encounter it is fighting in. A creature outside any encounter
+    // keeps the initiative it has.
     @Override
     public final void rollInitiative(final boolean isTieBreaker)
     {
-        if ((this.getDiceRoller() != null) && (this.getDiceRoller().getOutput() != null))
+        if (this.getCombatEngine() != null)
         {
-            final RichTextPane output = this.getDiceRoller().getOutput();
-            
-            if (isTieBreaker)
-            {
-                output.append(Color.BLACK, Color.WHITE, "\t\t\t   Rolling tie-breaker for " + this.getStatBlock().getName() + "...\n");
-                this.getStatBlock().setTieBreaker(this.getDiceRoller().processInput("1d20"));
-            }
-            else
-            {
-                output.append(Color.BLACK, Color.WHITE, "\t\t\t   Rolling initiative for " + this.getStatBlock().getName() + "...\n");
-                this.getStatBlock().setInitBase(this.getDiceRoller().processInput("1d20"));
-            }
+            this.getCombatEngine().rollInitiative(this, isTieBreaker);
         }
     }
     
@@ -266,69 +246,57 @@ public final class Creature35E extends Creature
             status);
     }
     
+    // Updates the status from the current hit points. Nothing is announced here: the combat engine reports the change along with the
+    // damage or healing that caused it.
     @Override
-    public void updateStatus()
+    public final void updateStatus()
     {
-        final RichTextPane output = this.getDiceRoller().getOutput();
+        final long startTime = System.nanoTime();
+        final Constants35E.Status previousStatus = this.getStatBlock().getStatus();
         
-        if ((this.getStatBlock().getCurHealth() <= (this.getStatBlock().getMaxHealth() / 2)) && (this.getStatBlock().getCurHealth() > this.getConstants()
-            .DISABLED_HP()))
+        switch (Creature35E.statusOf(this.getStatBlock().getCurHealth(), this.getStatBlock().getMaxHealth(), this.getConstants()))
         {
-            if (this.getStatBlock().getStatus() != Constants35E.Status.BLOODIED)
-            {
-                output.append(Color.BLACK, Color.WHITE, "[" + Support.getDateTimeStamp() + "]: ", Color.RED, Color.WHITE, this.getStatBlock()
-                    .getName() + " has been reduced to half or less of its HP and is bloodied!\n\n");
+            case BLOODIED:
+                
                 this.getStatBlock().setStatus(Constants35E.Status.BLOODIED);
-            }
-        }
-        else if (this.getStatBlock().getCurHealth() == this.getConstants().DISABLED_HP())
-        {
-            if (this.getStatBlock().getStatus() != Constants35E.Status.DISABLED)
-            {
-                output.append(Color.BLACK,
-                    Color.WHITE,
-                    "[" + Support.getDateTimeStamp() + "]: ",
-                    Color.RED,
-                    Color.WHITE,
-                    this.getStatBlock().getName() + " has been reduced to " + this.getConstants().DISABLED_HP() + " HP and is disabled!\n\n",
-                    Color.GRAY,
-                    Color.WHITE,
-                    "Note: Disabled creatures can only take one move action or one standard action per turn, " + "and take 1 point of damage after completing that action.\n\n");
+                break;
+            
+            case DISABLED:
+                
                 this.getStatBlock().setStatus(Constants35E.Status.DISABLED);
-            }
-        }
-        else if ((this.getStatBlock().getCurHealth() <= this.getConstants().DYING_HP()) && (this.getStatBlock().getCurHealth() > this.getConstants()
-            .DEAD_HP()))
-        {
-            if ((this.getStatBlock().getStatus() != Constants35E.Status.DYING) && (this.getStatBlock().getStatus() != Constants35E.Status.UNCONCIOUS))
-            {
-                output.append(Color.BLACK,
-                    Color.WHITE,
-                    "[" + Support.getDateTimeStamp() + "]: ",
-                    Color.RED,
-                    Color.WHITE,
-                    this.getStatBlock().getName() + " has been reduced to " + this.getConstants().DYING_HP() + " or less HP and is dying!\n\n",
-                    Color.GRAY,
-                    Color.WHITE,
-                    "Note: Dying creatures are also unconcious. " + "Each round, a dying creature has a 10% chance to become "
-                        + "stable. If the creature fails, it loses 1 HP. If the creature succeeds, it is still unconcious."
-                        + "Every hour the creature has a 10% chance to regain conciousness. If it fails, it loses 1 HP.\n\n");
-                this.getStatBlock().setStatus(Constants35E.Status.DYING);
-            }
+                break;
+            
+            case DYING:
+                
+                // A dying creature that has stabilised stays unconcious.
+                if (this.getStatBlock().getStatus() != Constants35E.Status.UNCONCIOUS)
+                {
+                    this.getStatBlock().setStatus(Constants35E.Status.DYING);
+                }
+                break;
+            
+            case DEAD:
+                
+                this.getStatBlock().setStatus(Constants35E.Status.DEAD);
+                break;
+            
+            default:
+                
+                this.getStatBlock().setStatus(Constants35E.Status.HEALTHY);
+                break;
         }
-        else if (this.getStatBlock().getCurHealth() <= this.getConstants().DEAD_HP())
+        
+        if (this.getStatBlock().getStatus() != previousStatus)
         {
-            output.append(Color.BLACK,
-                Color.WHITE,
-                "[" + Support.getDateTimeStamp() + "]: ",
-                Color.RED,
-                Color.WHITE,
-                this.getStatBlock().getName() + " has been reduced to " + this.getConstants().DEAD_HP() + " or less HP and is dead!\n\n");
-            this.getStatBlock().setStatus(Constants35E.Status.DEAD);
+            Metrics.STATUS_CHANGES.increment();
         }
-        else
+        
+        // The status is re-read after every change to the hit points, so the encounter hears of both here.
+        if (this.getCombatEngine() != null)
         {
-            this.getStatBlock().setStatus(Constants35E.Status.HEALTHY);
+            this.getCombatEngine().creatureChanged(this);
         }
+        
+        Metrics.UPDATE_STATUS_TIME.record(startTime);
     }
 }
\ No newline at end of file
@@ -0,0 +1,785 @@
+/*
+ * Title: DiceDistribution
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * This class is a common resource for the DiceBag module and its add-on modules to use.
+ * It is a companion for the DiceExpression class. It represents the exact probability distribution of the total of an expression, computed by
+ * convolving the distributions of the individual dice rather than by simulation. Large pools are combined with FFT-based convolution, whose
+ * rounding error swamps the least likely totals, so those are cleared and then recomputed by direct convolution: even the lowest total of
+ * 100d6, with a probability near 1e-78, is reported. Only a pool so large that recomputing its tails would take more than MAX_TAIL_WORK
+ * steps keeps them cleared, and then totals less likely than about 1e-13 of the most likely one are reported as 0, as are totals whose
+ * probability is too small for a double; getMinimum and getMaximum still give the full range.
+ */
+
+package org.dicebag.objects;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+public final class DiceDistribution implements Serializable
+{
+    // Polynomials shorter than this are multiplied directly; the FFT only pays for itself on longer operands.
+    public final static int     FFT_THRESHOLD      = 64;
+    // Upper bound on the work performed by the order statistic table used for keep and drop modifiers.
+    public final static long    MAX_KEEP_WORK      = 1000000000L;
+    // Upper bound on the number of distinct totals an exact distribution may cover.
+    public final static int     MAX_SUPPORT        = (1 << 24);
+    // Upper bound on the work spent recomputing by direct convolution the tails that an FFT's rounding error has cleared.
+    public final static long    MAX_TAIL_WORK      = 100000000L;
+    private final static long   serialVersionUID   = 1L;
+    // Explosion chains whose remaining probability mass falls below this are truncated.
+    private final static double TRUNCATION_EPSILON = 1e-18;
+    
+    private final static double[] convolve(final double[] a, final double[] b)
+    {
+        if (((long)a.length + b.length - 1) > DiceDistribution.MAX_SUPPORT)
+        {
+            throw new IllegalArgumentException("The distribution has too many possible totals to compute exactly.");
+        }
+        
+        if (Math.min(a.length, b.length) <= DiceDistribution.FFT_THRESHOLD)
+        {
+            return DiceDistribution.convolveDirect(a, b);
+        }
+        
+        return DiceDistribution.convolveFFT(a, b);
+    }
+    
+    private final static double[] convolveDirect(final double[] a, final double[] b)
+    {
+        return DiceDistribution.convolveDirect(a, b, (a.length + b.length) - 1);
+    }
+    
+    // Multiplies directly, keeping only the first length coefficients of the product.
+    private final static double[] convolveDirect(final double[] a, final double[] b, final int length)
+    {
+        final double[] c = new double[Math.min(length, (a.length + b.length) - 1)];
+        
+        for (int i = 0; i < Math.min(a.length, c.length); i++)
+        {
+            if (a[i] != 0.0)
+            {
+                for (int j = 0; (j < b.length) && ((i + j) < c.length); j++)
+                {
+                    c[i + j] += (a[i] * b[j]);
+                }
+            }
+        }
+        
+        return c;
+    }
+    
+    private final static double[] convolveFFT(final double[] a, final double[] b)
+    {
+        final int length = (a.length + b.length) - 1;
+        int n = 1;
+        
+        while (n < length)
+        {
+            n <<= 1;
+        }
+        
+        final double[] aRe = new double[n];
+        final double[] aIm = new double[n];
+        final boolean isSquare = (a == b);
+        
+        System.arraycopy(a, 0, aRe, 0, a.length);
+        DiceDistribution.fft(aRe, aIm, false);
+        
+        double[] bRe = aRe;
+        double[] bIm = aIm;
+        
+        if (!isSquare)
+        {
+            bRe = new double[n];
+            bIm = new double[n];
+            System.arraycopy(b, 0, bRe, 0, b.length);
+            DiceDistribution.fft(bRe, bIm, false);
+        }
+        
+        for (int i = 0; i < n; i++)
+        {
+            final double re = ((aRe[i] * bRe[i]) - (aIm[i] * bIm[i]));
+            final double im = ((aRe[i] * bIm[i]) + (aIm[i] * bRe[i]));
+            
+            aRe[i] = re;
+            aIm[i] = im;
+        }
+        
+        DiceDistribution.fft(aRe, aIm, true);
+        
+        final double[] c = new double[length];
+        final int low = (DiceDistribution.firstNonZero(a) + DiceDistribution.firstNonZero(b));
+        final int high = (((a.length + b.length) - 2) - DiceDistribution.trailingZeros(a) - DiceDistribution.trailingZeros(b));
+        
+        // Rounding error from the transform leaves tiny values where the true probability is zero, so the exact support is restored here.
+        for (int i = low; i <= high; i++)
+        {
+            c[i] = (aRe[i] / n);
+        }
+        
+        DiceDistribution.denoise(c, n);
+        
+        int cleared = 0;
+        
+        for (int i = low; i <= high; i++)
+        {
+            if (c[i] == 0.0)
+            {
+                cleared++;
+            }
+        }
+        
+        // Each cleared total is recomputed as a direct sum of products, which is exact to within rounding however small it is.
+        if (((long)cleared * Math.min(a.length, b.length)) <= DiceDistribution.MAX_TAIL_WORK)
+        {
+            for (int i = low; i <= high; i++)
+            {
+                if (c[i] == 0.0)
+                {
+                    for (int j = Math.max(0, i - (b.length - 1)); j <= Math.min(i, a.length - 1); j++)
+                    {
+                        c[i] += (a[j] * b[i - j]);
+                    }
+                }
+            }
+        }
+        
+        return c;
+    }
+    
+    // Clears every value that is indistinguishable from the rounding noise of a transform of the given length.
+    private final static double[] denoise(final double[] values, final int n)
+    {
+        double peak = 0.0;
+        
+        for (final double value : values)
+        {
+            peak = Math.max(peak, value);
+        }
+        
+        final double floor = (peak * n * Math.ulp(1.0));
+        
+        for (int i = 0; i < values.length; i++)
+        {
+            if (values[i] < floor)
+            {
+                values[i] = 0.0;
+            }
+        }
+        
+        return values;
+    }
+    
+    private final static double[] explode(final double[] initial, final int sides, final int threshold)
+    {
+        final double p = (1.0 / sides);
+        // The distribution of a single freshly thrown explosion die, including any further explosions it may trigger.
+        double[] chain = new double[sides + 1];
+        double remaining = 1.0;
+        
+        for (int face = 1; face <= sides; face++)
+        {
+            chain[face] = p;
+        }
+        
+        for (int depth = 1; (depth < DiceTerm.MAX_EXPLOSIONS) && (remaining > DiceDistribution.TRUNCATION_EPSILON); depth++)
+        {
+            chain = DiceDistribution.extend(chain, p, sides, threshold);
+            remaining *= ((sides - threshold + 1) * p);
+        }
+        
+        final double[] extended = new double[initial.length + chain.length];
+        
+        for (int face = 1; face < initial.length; face++)
+        {
+            if (face < threshold)
+            {
+                extended[face] += initial[face];
+            }
+            else
+            {
+                for (int v = 0; v < chain.length; v++)
+                {
+                    extended[face + v] += (initial[face] * chain[v]);
+                }
+            }
+        }
+        
+        return DiceDistribution.trim(extended);
+    }
+    
+    private final static double[] extend(final double[] chain, final double p, final int sides, final int threshold)
+    {
+        final double[] next = new double[sides + chain.length];
+        
+        for (int face = 1; face <= sides; face++)
+        {
+            if (face < threshold)
+            {
+                next[face] += p;
+            }
+            else
+            {
+                for (int v = 0; v < chain.length; v++)
+                {
+                    next[face + v] += (p * chain[v]);
+                }
+            }
+        }
+        
+        return DiceDistribution.trim(next);
+    }
+    
+    // Iterative radix-2 Cooley-Tukey transform. The length of both arrays must be a power of two.
+    private final static void fft(final double[] re, final double[] im, final boolean isInverse)
+    {
+        final int n = re.length;
+        
+        for (int i = 1, j = 0; i < n; i++)
+        {
+            int bit = (n >> 1);
+            
+            for (; (j & bit) != 0; bit >>= 1)
+            {
+                j ^= bit;
+            }
+            
+            j ^= bit;
+            
+            if (i < j)
+            {
+                double t = re[i];
+                re[i] = re[j];
+                re[j] = t;
+                t = im[i];
+                im[i] = im[j];
+                im[j] = t;
+            }
+        }
+        
+        final double[] cos = new double[n >> 1];
+        final double[] sin = new double[n >> 1];
+        
+        for (int i = 0; i < cos.length; i++)
+        {
+            final double angle = (((isInverse ? 2.0 : -2.0) * Math.PI * i) / n);
+            
+            cos[i] = Math.cos(angle);
+            sin[i] = Math.sin(angle);
+        }
+        
+        for (int size = 2; size <= n; size <<= 1)
+        {
+            final int half = (size >> 1);
+            final int step = (n / size);
+            
+            for (int start = 0; start < n; start += size)
+            {
+                for (int k = 0; k < half; k++)
+                {
+                    final int even = (start + k);
+                    final int odd = (even + half);
+                    final double wr = cos[k * step];
+                    final double wi = sin[k * step];
+                    final double tr = ((re[odd] * wr) - (im[odd] * wi));
+                    final double ti = ((re[odd] * wi) + (im[odd] * wr));
+                    
+                    re[odd] = (re[even] - tr);
+                    im[odd] = (im[even] - ti);
+                    re[even] += tr;
+                    im[even] += ti;
+                }
+            }
+        }
+    }
+    
+    private final static int firstNonZero(final double[] values)
+    {
+        int i = 0;
+        
+        while ((i < (values.length - 1)) && (values[i] == 0.0))
+        {
+            i++;
+        }
+        
+        return i;
+    }
+    
+    // The distribution of a single die, indexed by face value, after rerolls and explosions have been applied.
+    private final static double[] getDieDistribution(final DiceTerm term)
+    {
+        final int sides = term.getSides();
+        final double p = (1.0 / sides);
+        double[] die = new double[sides + 1];
+        
+        if (!term.isRerolling())
+        {
+            for (int face = 1; face <= sides; face++)
+            {
+                die[face] = p;
+            }
+        }
+        else if (term.isRerollOnce())
+        {
+            final double rerolled = (term.getRerollThreshold() * p * p);
+            
+            for (int face = 1; face <= sides; face++)
+            {
+                die[face] = (((face > term.getRerollThreshold()) ? p : 0.0) + rerolled);
+            }
+        }
+        else
+        {
+            for (int face = (term.getRerollThreshold() + 1); face <= sides; face++)
+            {
+                die[face] = (1.0 / (sides - term.getRerollThreshold()));
+            }
+        }
+        
+        if (term.isExploding())
+        {
+            die = DiceDistribution.explode(die, sides, term.getExplodeThreshold());
+        }
+        
+        return die;
+    }
+    
+    // The distribution of the kept sum, found by assigning dice to face values from the most favoured face down to the least favoured.
+    private final static double[] keep(final double[] die, final int count, final int keepCount, final boolean isKeepHighest)
+    {
+        final int maxFace = (die.length - 1);
+        final int maxSum = (keepCount * maxFace);
+        
+        if (((long)die.length * (count + 1) * (count + 1) * (maxSum + 1)) > DiceDistribution.MAX_KEEP_WORK)
+        {
+            throw new IllegalArgumentException("The dice pool is too large to compute keep or drop modifiers exactly.");
+        }
+        
+        final double[][] binomial = new double[count + 1][];
+        
+        for (int n = 0; n <= count; n++)
+        {
+            binomial[n] = new double[n + 1];
+            binomial[n][0] = 1.0;
+            binomial[n][n] = 1.0;
+            
+            for (int k = 1; k < n; k++)
+            {
+                binomial[n][k] = (binomial[n - 1][k - 1] + binomial[n - 1][k]);
+            }
+        }
+        
+        // state[used][sum] is the probability that "used" dice have been placed so far, with the kept ones summing to "sum".
+        double[][] state = new double[count + 1][maxSum + 1];
+        state[0][0] = 1.0;
+        
+        for (int i = 0; i <= maxFace; i++)
+        {
+            final int face = (isKeepHighest ? (maxFace - i) : i);
+            
+            if (die[face] == 0.0)
+            {
+                continue;
+            }
+            
+            final double[][] next = new double[count + 1][maxSum + 1];
+            
+            for (int used = 0; used <= count; used++)
+            {
+                for (int sum = 0; sum <= maxSum; sum++)
+                {
+                    final double current = state[used][sum];
+                    
+                    if (current == 0.0)
+                    {
+                        continue;
+                    }
+                    
+                    double power = 1.0;
+                    
+                    for (int j = 0; (used + j) <= count; j++)
+                    {
+                        final int kept = (Math.min(used + j, keepCount) - Math.min(used, keepCount));
+                        
+                        next[used + j][sum + (kept * face)] += (current * binomial[count - used][j] * power);
+                        power *= die[face];
+                    }
+                }
+            }
+            
+            state = next;
+        }
+        
+        return DiceDistribution.trim(state[count]);
+    }
+    
+    private final static int lastNonZero(final double[] values)
+    {
+        int i = (values.length - 1);
+        
+        while ((i > 0) && (values[i] == 0.0))
+        {
+            i--;
+        }
+        
+        return i;
+    }
+    
+    public final static DiceDistribution of(final DiceExpression expression)
+    {
+        double[] total = {
+            1.0
+        };
+        long minimum = expression.getModifier();
+        // The exact range of reachable totals is tracked separately, since the far tails of large pools underflow to zero.
+        int low = 0;
+        int high = 0;
+        
+        for (int i = 0; i < expression.getTermCount(); i++)
+        {
+            final DiceTerm term = expression.getTerm(i);
+            final double[] die = DiceDistribution.getDieDistribution(term);
+            final int poolLow = (DiceDistribution.firstNonZero(die) * (term.isKeeping() ? term.getKeepCount() : term.getCount()));
+            double[] pool;
+            
+            if (term.isKeeping())
+            {
+                pool = DiceDistribution.keep(die, term.getCount(), term.getKeepCount(), term.isKeepHighest());
+            }
+            else
+            {
+                pool = DiceDistribution.power(die, term.getCount());
+            }
+            
+            // Every array is indexed from zero, so a negative term is mirrored and its offset folded into the minimum.
+            if (term.isNegative())
+            {
+                final double[] mirrored = new double[pool.length];
+                
+                for (int j = 0; j < pool.length; j++)
+                {
+                    mirrored[pool.length - 1 - j] = pool[j];
+                }
+                
+                minimum -= (pool.length - 1);
+                high += ((pool.length - 1) - poolLow);
+                pool = mirrored;
+            }
+            else
+            {
+                low += poolLow;
+                high += (pool.length - 1);
+            }
+            
+            total = DiceDistribution.convolve(total, pool);
+        }
+        
+        final double[] support = new double[(high - low) + 1];
+        
+        System.arraycopy(total, low, support, 0, support.length);
+        return new DiceDistribution(expression, minimum + low, support);
+    }
+    
+    private final static double[] power(final double[] die, final int count)
+    {
+        if ((((long)(die.length - 1) * count) + 1) > DiceDistribution.MAX_SUPPORT)
+        {
+            throw new IllegalArgumentException("The distribution has too many possible totals to compute exactly.");
+        }
+        
+        final int length = (((die.length - 1) * count) + 1);
+        
+        if ((count < 2) || (length <= DiceDistribution.FFT_THRESHOLD))
+        {
+            double[] result = {
+                1.0
+            };
+            double[] base = die;
+            
+            for (int n = count; n > 0; n >>= 1)
+            {
+                if ((n & 1) != 0)
+                {
+                    result = DiceDistribution.convolve(result, base);
+                }
+                
+                if (n > 1)
+                {
+                    base = DiceDistribution.convolve(base, base);
+                }
+            }
+            
+            return result;
+        }
+        
+        // Raising the transform to the n-th power pointwise convolves the die with itself n times using a single forward and inverse FFT.
+        int n = 1;
+        
+        while (n < length)
+        {
+            n <<= 1;
+        }
+        
+        final double[] re = new double[n];
+        final double[] im = new double[n];
+        
+        System.arraycopy(die, 0, re, 0, die.length);
+        DiceDistribution.fft(re, im, false);
+        
+        for (int i = 0; i < n; i++)
+        {
+            final double magnitude = Math.pow(Math.hypot(re[i], im[i]), count);
+            final double angle = (Math.atan2(im[i], re[i]) * count);
+            
+            re[i] = (magnitude * Math.cos(angle));
+            im[i] = (magnitude * Math.sin(angle));
+        }
+        
+        DiceDistribution.fft(re, im, true);
+        
+        final double[] result = new double[length];
+        
+        for (int i = (DiceDistribution.firstNonZero(die) * count); i < length; i++)
+        {
+            result[i] = (re[i] / n);
+        }
+        
+        return DiceDistribution.restoreTails(die, count, DiceDistribution.denoise(result, n));
+    }
+    
+    // Recomputes the low and high tails of a pool of count dice that denoising cleared. The lowest totals depend only on the lowest faces,
+    // so the low tail is the start of the die's power, and the high tail is the start of the power of the die read from its highest face
+    // down. Each tail is left cleared if recomputing it would take more than MAX_TAIL_WORK.
+    private final static double[] restoreTails(final double[] die, final int count, final double[] pool)
+    {
+        final double[] rising = Arrays.copyOfRange(die, DiceDistribution.firstNonZero(die), die.length);
+        final double[] falling = new double[rising.length];
+        final int low = (DiceDistribution.firstNonZero(die) * count);
+        final int lowRun = (DiceDistribution.firstNonZero(pool) - low);
+        final int highRun = DiceDistribution.trailingZeros(pool);
+        
+        for (int i = 0; i < rising.length; i++)
+        {
+            falling[rising.length - 1 - i] = rising[i];
+        }
+        
+        // Most dice are symmetric, and then the high tail mirrors the low one and is only computed once.
+        final boolean isSymmetric = Arrays.equals(rising, falling);
+        final double[] lowTail = DiceDistribution.truncatedPower(rising, count, (isSymmetric ? Math.max(lowRun, highRun) : lowRun));
+        final double[] highTail = (isSymmetric ? lowTail : DiceDistribution.truncatedPower(falling, count, highRun));
+        
+        if (lowTail != null)
+        {
+            System.arraycopy(lowTail, 0, pool, low, lowRun);
+        }
+        
+        if (highTail != null)
+        {
+            for (int i = 0; i < highRun; i++)
+            {
+                pool[pool.length - 1 - i] = highTail[i];
+            }
+        }
+        
+        return pool;
+    }
+    
+    private final static int trailingZeros(final double[] values)
+    {
+        return ((values.length - 1) - DiceDistribution.lastNonZero(values));
+    }
+    
+    private final static double[] trim(final double[] values)
+    {
+        final int length = (DiceDistribution.lastNonZero(values) + 1);
+        
+        if (length == values.length)
+        {
+            return values;
+        }
+        
+        final double[] trimmed = new double[length];
+        System.arraycopy(values, 0, trimmed, 0, length);
+        return trimmed;
+    }
+    
+    // Returns the first length coefficients of the base raised to the count-th power, by repeated squaring with every product cut short, or
+    // null if there are none to find or it would take more than MAX_TAIL_WORK.
+    private final static double[] truncatedPower(final double[] base, final int count, final int length)
+    {
+        if ((length < 1) || (((long)length * length * (32 - Integer.numberOfLeadingZeros(count))) > DiceDistribution.MAX_TAIL_WORK))
+        {
+            return null;
+        }
+        
+        double[] result = {
+            1.0
+        };
+        double[] square = base;
+        
+        for (int n = count; n > 0; n >>= 1)
+        {
+            if ((n & 1) != 0)
+            {
+                result = DiceDistribution.convolveDirect(result, square, length);
+            }
+            
+            if (n > 1)
+            {
+                square = DiceDistribution.convolveDirect(square, square, length);
+            }
+        }
+        
+        return result;
+    }
+    
+    private final double[]       cdf;
+    private final DiceExpression expression;
+    private final double         mean;
+    private final long           minimum;
+    private final double[]       pmf;
+    private final double         variance;
+    
+    private DiceDistribution(final DiceExpression expression, final long minimum, final double[] pmf)
+    {
+        double mass = 0.0;
+        
+        for (final double p : pmf)
+        {
+            mass += p;
+        }
+        
+        // Normalise away the truncated tails of exploding dice and any rounding error accumulated by the convolutions.
+        for (int i = 0; i < pmf.length; i++)
+        {
+            pmf[i] /= mass;
+        }
+        
+        final double[] cumulative = new double[pmf.length];
+        double offsetMean = 0.0;
+        double running = 0.0;
+        
+        for (int i = 0; i < pmf.length; i++)
+        {
+            running += pmf[i];
+            cumulative[i] = Math.min(1.0, running);
+            offsetMean += (i * pmf[i]);
+        }
+        
+        double sumOfSquares = 0.0;
+        
+        for (int i = 0; i < pmf.length; i++)
+        {
+            sumOfSquares += ((i - offsetMean) * (i - offsetMean) * pmf[i]);
+        }
+        
+        // The last entry is pinned so that percentile lookups always terminate inside the support despite rounding.
+        cumulative[cumulative.length - 1] = 1.0;
+        this.expression = expression;
+        this.minimum = minimum;
+        this.pmf = pmf;
+        this.cdf = cumulative;
+        this.mean = (offsetMean + minimum);
+        this.variance = sumOfSquares;
+    }
+    
+    // Returns the probability that a throw totals the given value or less.
+    public final double getCumulativeProbability(final long total)
+    {
+        if (total < this.getMinimum())
+        {
+            return 0.0;
+        }
+        
+        if (total >= this.getMaximum())
+        {
+            return 1.0;
+        }
+        
+        return this.cdf[(int)(total - this.getMinimum())];
+    }
+    
+    public final DiceExpression getExpression()
+    {
+        return this.expression;
+    }
+    
+    public final long getMaximum()
+    {
+        return ((this.getMinimum() + this.pmf.length) - 1);
+    }
+    
+    public final double getMean()
+    {
+        return this.mean;
+    }
+    
+    public final long getMinimum()
+    {
+        return this.minimum;
+    }
+    
+    // Returns the smallest total whose cumulative probability is at least the given fraction, which must lie between zero and one.
+    public final long getPercentile(final double fraction)
+    {
+        if ((fraction < 0.0) || (fraction > 1.0))
+        {
+            throw new IllegalArgumentException("A percentile must be between 0 and 1.");
+        }
+        
+        int low = 0;
+        int high = (this.cdf.length - 1);
+        
+        while (low < high)
+        {
+            final int middle = ((low + high) >>> 1);
+            
+            if (this.cdf[middle] < fraction)
+            {
+                low = (middle + 1);
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        
+        return (this.getMinimum() + low);
+    }
+    
+    // Returns the probability that a throw totals exactly the given value. It is 0 for totals that cannot be thrown, and also for possible
+    // totals of a pool too large to recompute its tails that are less likely than the FFT's rounding floor (see above).
+    public final double getProbability(final long total)
+    {
+        if ((total < this.getMinimum()) || (total > this.getMaximum()))
+        {
+            return 0.0;
+        }
+        
+        return this.pmf[(int)(total - this.getMinimum())];
+    }
+    
+    public final double getStandardDeviation()
+    {
+        return Math.sqrt(this.getVariance());
+    }
+    
+    public final double getVariance()
+    {
+        return this.variance;
+    }
+    
+    @Override
+    public final String toString()
+    {
+        return String.format("%s: Mean %.3f, SD %.3f, Range %d-%d, Median %d",
+            this.getExpression(),
+            this.getMean(),
+            this.getStandardDeviation(),
+            this.getMinimum(),
+            this.getMaximum(),
+            this.getPercentile(0.5));
+    }
+}
\ No newline at end of file
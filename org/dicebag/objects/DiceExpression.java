@@ -0,0 +1,381 @@
+/*
+ * Title: DiceExpression
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * This class is a common resource for the DiceBag module and its add-on modules to use.
+ * It represents a compiled dice expression such as "4d6kh3+2d4-1". Each distinct expression string is parsed exactly once; the compiled form is
+ * cached so that repeated throws of the same macro skip parsing entirely.
+ * 
+ * Grammar: [+|-] term { (+|-) term }
+ *      term: integer | [count] d (sides | %) { modifier }
+ *  modifier: kh N | kl N | k N (keep highest) | dh N | dl N (drop) | ! [N] (explode) | r N (reroll) | ro N (reroll once)
+ */
+
+package org.dicebag.objects;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class DiceExpression implements Serializable
+{
+    private final static class Parser
+    {
+        private final String input;
+        private int          position = 0;
+        
+        private Parser(final String input)
+        {
+            this.input = input;
+        }
+        
+        private boolean accept(final char c)
+        {
+            if ((this.position < this.input.length()) && (this.input.charAt(this.position) == c))
+            {
+                this.position++;
+                return true;
+            }
+            
+            return false;
+        }
+        
+        private IllegalArgumentException error(final String message)
+        {
+            return new IllegalArgumentException(message + " at position " + (this.position + 1) + " of \"" + this.input + "\".");
+        }
+        
+        private boolean hasDigit()
+        {
+            // Only ASCII digits are accepted; Character.isDigit would also admit digits from other scripts that parseInteger cannot read.
+            return (this.position < this.input.length()) && (this.input.charAt(this.position) >= '0') && (this.input.charAt(this.position) <= '9');
+        }
+        
+        private boolean isDone()
+        {
+            return (this.position >= this.input.length());
+        }
+        
+        private DiceExpression parse()
+        {
+            final ArrayList<DiceTerm> terms = new ArrayList<DiceTerm>();
+            long modifier = 0;
+            boolean isNegative = false;
+            
+            if (this.accept('-'))
+            {
+                isNegative = true;
+            }
+            else
+            {
+                this.accept('+');
+            }
+            
+            do
+            {
+                int count = -1;
+                
+                if (this.hasDigit())
+                {
+                    count = this.parseInteger();
+                }
+                
+                if (this.accept('d'))
+                {
+                    int sides;
+                    
+                    if (this.accept('%'))
+                    {
+                        sides = 100;
+                    }
+                    else if (this.hasDigit())
+                    {
+                        sides = this.parseInteger();
+                    }
+                    else
+                    {
+                        throw this.error("Expected the number of sides");
+                    }
+                    
+                    terms.add(this.parseModifiers(isNegative, (count == -1) ? 1 : count, sides));
+                }
+                else if (count != -1)
+                {
+                    modifier += (isNegative ? -count : count);
+                }
+                else
+                {
+                    throw this.error("Expected a number or a dice term");
+                }
+                
+                if (this.accept('-'))
+                {
+                    isNegative = true;
+                }
+                else if (this.accept('+'))
+                {
+                    isNegative = false;
+                }
+                else if (!this.isDone())
+                {
+                    throw this.error("Unexpected character '" + this.input.charAt(this.position) + "'");
+                }
+                else
+                {
+                    break;
+                }
+            }
+            while (true);
+            
+            return new DiceExpression(this.input, terms.toArray(new DiceTerm[terms.size()]), modifier);
+        }
+        
+        private int parseInteger()
+        {
+            long value = 0;
+            
+            while (this.hasDigit())
+            {
+                value = ((value * 10) + (this.input.charAt(this.position) - '0'));
+                this.position++;
+                
+                if (value > Integer.MAX_VALUE)
+                {
+                    throw this.error("Number too large");
+                }
+            }
+            
+            return (int)value;
+        }
+        
+        private DiceTerm parseModifiers(final boolean isNegative, final int count, final int sides)
+        {
+            int keepCount = count;
+            boolean isKeepHighest = true;
+            int explodeThreshold = 0;
+            int rerollThreshold = 0;
+            boolean isRerollOnce = false;
+            
+            while (!this.isDone())
+            {
+                if (this.accept('k'))
+                {
+                    isKeepHighest = !this.accept('l');
+                    
+                    if (isKeepHighest)
+                    {
+                        this.accept('h');
+                    }
+                    
+                    keepCount = this.parseRequiredInteger("Expected the number of dice to keep");
+                }
+                else if (this.accept('d'))
+                {
+                    // Dropping the lowest N dice is the same as keeping the highest (count - N) dice, and vice versa.
+                    isKeepHighest = !this.accept('h');
+                    
+                    if (isKeepHighest)
+                    {
+                        this.accept('l');
+                    }
+                    
+                    keepCount = (count - this.parseRequiredInteger("Expected the number of dice to drop"));
+                }
+                else if (this.accept('!'))
+                {
+                    explodeThreshold = (this.hasDigit() ? this.parseInteger() : sides);
+                }
+                else if (this.accept('r'))
+                {
+                    isRerollOnce = this.accept('o');
+                    rerollThreshold = this.parseRequiredInteger("Expected the highest value to reroll");
+                }
+                else
+                {
+                    break;
+                }
+            }
+            
+            return new DiceTerm(isNegative, count, sides, keepCount, isKeepHighest, explodeThreshold, rerollThreshold, isRerollOnce);
+        }
+        
+        private int parseRequiredInteger(final String message)
+        {
+            if (!this.hasDigit())
+            {
+                throw this.error(message);
+            }
+            
+            return this.parseInteger();
+        }
+    }
+    
+    private final static ConcurrentHashMap<String, DiceExpression> CACHE            = new ConcurrentHashMap<String, DiceExpression>();
+    // Bounds the compiled expression cache so that a script generating unique expressions cannot grow it without limit.
+    public final static int                                        CACHE_CAPACITY   = 4096;
+    private final static long                                      serialVersionUID = 1L;
+    
+    public final static DiceExpression compile(final String input)
+    {
+        if (input == null)
+        {
+            throw new IllegalArgumentException("A dice expression cannot be null.");
+        }
+        
+        DiceExpression expression = DiceExpression.CACHE.get(input);
+        
+        if (expression == null)
+        {
+            expression = DiceExpression.parse(input);
+            
+            if (DiceExpression.CACHE.size() >= DiceExpression.CACHE_CAPACITY)
+            {
+                DiceExpression.CACHE.clear();
+            }
+            
+            DiceExpression.CACHE.put(input, expression);
+        }
+        
+        return expression;
+    }
+    
+    public final static DiceExpression parse(final String input)
+    {
+        if (input == null)
+        {
+            throw new IllegalArgumentException("A dice expression cannot be null.");
+        }
+        
+        final StringBuilder normalized = new StringBuilder(input.length());
+        
+        for (int i = 0; i < input.length(); i++)
+        {
+            final char c = input.charAt(i);
+            
+            if (!Character.isWhitespace(c))
+            {
+                normalized.append(Character.toLowerCase(c));
+            }
+        }
+        
+        if (normalized.length() == 0)
+        {
+            throw new IllegalArgumentException("A dice expression cannot be empty.");
+        }
+        
+        return new Parser(normalized.toString()).parse();
+    }
+    
+    private transient volatile DiceDistribution distribution = null;
+    private final long                          modifier;
+    private final String                        source;
+    private final DiceTerm[]                    terms;
+    
+    private DiceExpression(final String source, final DiceTerm[] terms, final long modifier)
+    {
+        this.source = source;
+        this.terms = terms;
+        this.modifier = modifier;
+    }
+    
+    public final long getDiceCount()
+    {
+        long count = 0;
+        
+        for (final DiceTerm term : this.terms)
+        {
+            count += term.getCount();
+        }
+        
+        return count;
+    }
+    
+    // The exact distribution is computed on first request and then kept alongside the compiled expression in the cache.
+    public final DiceDistribution getDistribution()
+    {
+        DiceDistribution result = this.distribution;
+        
+        if (result == null)
+        {
+            result = DiceDistribution.of(this);
+            this.distribution = result;
+        }
+        
+        return result;
+    }
+    
+    public final long getModifier()
+    {
+        return this.modifier;
+    }
+    
+    public final String getSource()
+    {
+        return this.source;
+    }
+    
+    public final DiceTerm getTerm(final int index)
+    {
+        return this.terms[index];
+    }
+    
+    public final int getTermCount()
+    {
+        return this.terms.length;
+    }
+    
+    // Derives an independent seed for each term, so that adding or removing a term never changes the dice thrown by the others.
+    protected final long getTermSeed(final long seed, final int term)
+    {
+        return DiceTerm.mix(seed ^ ((term + 1) * 0xD1B54A32D192ED03L));
+    }
+    
+    public final DiceResult roll()
+    {
+        return this.roll(RandomSource.perThread());
+    }
+    
+    // The result only records the seed and the total; individual dice are regenerated from the seed when they are asked for.
+    public final DiceResult roll(final long seed)
+    {
+        return new DiceResult(this, seed, this.total(seed));
+    }
+    
+    // Each throw draws exactly one value from the source, so a seeded source replays a whole session throw for throw.
+    public final DiceResult roll(final RandomSource source)
+    {
+        return this.roll(source.nextLong());
+    }
+    
+    // Throws the expression and returns only its total. Plain pools are summed without allocating anything, whatever their size.
+    public final long rollTotal()
+    {
+        return this.rollTotal(RandomSource.perThread());
+    }
+    
+    public final long rollTotal(final RandomSource source)
+    {
+        return this.total(source.nextLong());
+    }
+    
+    public final long total(final long seed)
+    {
+        long total = this.modifier;
+        
+        for (int i = 0; i < this.terms.length; i++)
+        {
+            final long subtotal = this.terms[i].total(this.getTermSeed(seed, i));
+            
+            total += (this.terms[i].isNegative() ? -subtotal : subtotal);
+        }
+        
+        return total;
+    }
+    
+    @Override
+    public final String toString()
+    {
+        return this.source;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,198 @@
+/*
+ * Title: DiceResult
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * This class is a common resource for the DiceBag module and its add-on modules to use.
+ * It is a companion for the DiceExpression class. It represents the outcome of a single throw of a compiled expression.
+ * Only the seed and the total are stored; individual dice are regenerated from the seed when they are asked for, so a result costs the same
+ * few bytes whether the pool held one die or a hundred thousand.
+ */
+
+package org.dicebag.objects;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+public final class DiceResult implements Serializable
+{
+    private final static long serialVersionUID = 1L;
+    
+    // Marks which dice fall outside the kept set. Ties at the cut-off are resolved in favour of the earliest dice thrown.
+    private final static boolean[] selectDropped(final int[] faces, final int keepCount, final boolean isKeepHighest)
+    {
+        final boolean[] dropped = new boolean[faces.length];
+        final int[] sorted = faces.clone();
+        
+        Arrays.sort(sorted);
+        
+        if (keepCount == 0)
+        {
+            Arrays.fill(dropped, true);
+            return dropped;
+        }
+        
+        final int cutoff = (isKeepHighest ? sorted[sorted.length - keepCount] : sorted[keepCount - 1]);
+        int atCutoff = 0;
+        
+        // Count how many dice strictly beyond the cut-off are kept, so the remaining slots can be filled with dice equal to it.
+        for (final int face : faces)
+        {
+            if (isKeepHighest ? (face > cutoff) : (face < cutoff))
+            {
+                atCutoff++;
+            }
+        }
+        
+        atCutoff = (keepCount - atCutoff);
+        
+        for (int i = 0; i < faces.length; i++)
+        {
+            if (faces[i] == cutoff)
+            {
+                dropped[i] = (atCutoff <= 0);
+                atCutoff--;
+            }
+            else
+            {
+                dropped[i] = (isKeepHighest ? (faces[i] < cutoff) : (faces[i] > cutoff));
+            }
+        }
+        
+        return dropped;
+    }
+    
+    private transient boolean[][] dropped = null;
+    private final DiceExpression  expression;
+    private final long            seed;
+    private final long            total;
+    
+    protected DiceResult(final DiceExpression expression, final long seed, final long total)
+    {
+        this.expression = expression;
+        this.seed = seed;
+        this.total = total;
+    }
+    
+    public final DiceExpression getExpression()
+    {
+        return this.expression;
+    }
+    
+    // Returns the value of a single die in constant time, without generating any of the others.
+    public final int getFace(final int term, final long index)
+    {
+        if ((index < 0) || (index >= this.getExpression().getTerm(term).getCount()))
+        {
+            throw new IndexOutOfBoundsException("Die " + index + " is outside term " + term + ".");
+        }
+        
+        return this.getExpression().getTerm(term).face(this.getExpression().getTermSeed(this.getSeed(), term), index);
+    }
+    
+    public final int[] getFaces(final int term)
+    {
+        final DiceTerm diceTerm = this.getExpression().getTerm(term);
+        final long termSeed = this.getExpression().getTermSeed(this.getSeed(), term);
+        final int[] faces = new int[diceTerm.getCount()];
+        
+        for (int i = 0; i < faces.length; i++)
+        {
+            faces[i] = diceTerm.face(termSeed, i);
+        }
+        
+        return faces;
+    }
+    
+    // Lists every die thrown, term by term. Dice discarded by keep or drop modifiers are shown in parentheses.
+    public final String getResultsString()
+    {
+        return this.getResultsString(Long.MAX_VALUE);
+    }
+    
+    // Lists at most the given number of dice. Keep and drop markings are only shown for terms that are listed in full.
+    public final String getResultsString(final long maxDice)
+    {
+        final StringBuilder builder = new StringBuilder();
+        long remaining = maxDice;
+        
+        for (int i = 0; (i < this.getExpression().getTermCount()) && (remaining > 0); i++)
+        {
+            final DiceTerm term = this.getExpression().getTerm(i);
+            final boolean isListedInFull = (term.getCount() <= remaining);
+            
+            if ((i > 0) || term.isNegative())
+            {
+                builder.append(term.isNegative() ? "- " : "+ ");
+            }
+            
+            for (int j = 0; (j < term.getCount()) && (remaining > 0); j++, remaining--)
+            {
+                if (isListedInFull && this.isDropped(i, j))
+                {
+                    builder.append('(').append(this.getFace(i, j)).append(") ");
+                }
+                else
+                {
+                    builder.append(this.getFace(i, j)).append(' ');
+                }
+            }
+        }
+        
+        final long omitted = (this.getExpression().getDiceCount() - Math.min(maxDice, this.getExpression().getDiceCount()));
+        
+        if (omitted > 0)
+        {
+            builder.append("... (").append(omitted).append(" more) ");
+        }
+        
+        if (this.getExpression().getModifier() < 0)
+        {
+            builder.append("- ").append(-this.getExpression().getModifier());
+        }
+        else if (this.getExpression().getModifier() > 0)
+        {
+            builder.append((builder.length() > 0) ? "+ " : "").append(this.getExpression().getModifier());
+        }
+        
+        return builder.toString();
+    }
+    
+    public final long getSeed()
+    {
+        return this.seed;
+    }
+    
+    public final long getTotal()
+    {
+        return this.total;
+    }
+    
+    public final synchronized boolean isDropped(final int term, final int index)
+    {
+        final DiceTerm diceTerm = this.getExpression().getTerm(term);
+        
+        if (!diceTerm.isKeeping())
+        {
+            return false;
+        }
+        
+        if (this.dropped == null)
+        {
+            this.dropped = new boolean[this.getExpression().getTermCount()][];
+        }
+        
+        if (this.dropped[term] == null)
+        {
+            this.dropped[term] = DiceResult.selectDropped(this.getFaces(term), diceTerm.getKeepCount(), diceTerm.isKeepHighest());
+        }
+        
+        return this.dropped[term][index];
+    }
+    
+    @Override
+    public final String toString()
+    {
+        return this.getExpression() + " = " + this.getTotal();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,312 @@
+/*
+ * Title: DiceTerm
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * This class is a common resource for the DiceBag module and its add-on modules to use.
+ * It is a companion for the DiceExpression class. It represents a single pool of identical dice within a compiled expression, along with the
+ * modifiers (keep, drop, explode, reroll) that apply to that pool. Instances are immutable once compiled.
+ */
+
+package org.dicebag.objects;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+public final class DiceTerm implements Serializable
+{
+    // The increment of the SplitMix64 generator; consecutive multiples of it give well-spread inputs to the mixing function.
+    private final static long GOLDEN_GAMMA     = 0x9E3779B97F4A7C15L;
+    // Upper bound on the number of extra dice a single exploding die may add, so that a pathological expression always terminates.
+    public final static int   MAX_EXPLOSIONS   = 100;
+    private final static long serialVersionUID = 1L;
+    
+    // The SplitMix64 finalizer. It turns a counter into a statistically independent 64-bit output.
+    protected final static long mix(final long z)
+    {
+        long x = z;
+        
+        x = ((x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L);
+        x = ((x ^ (x >>> 27)) * 0x94D049BB133111EBL);
+        return (x ^ (x >>> 31));
+    }
+    
+    private final int     count;
+    private final int     explodeThreshold;
+    private final boolean isKeepHighest;
+    private final boolean isNegative;
+    private final boolean isRerollOnce;
+    private final int     keepCount;
+    private final long    rejectThreshold;
+    private final int     rerollThreshold;
+    private final int     sides;
+    
+    public DiceTerm(final boolean isNegative,
+        final int count,
+        final int sides,
+        final int keepCount,
+        final boolean isKeepHighest,
+        final int explodeThreshold,
+        final int rerollThreshold,
+        final boolean isRerollOnce)
+    {
+        if ((count < 0) || (sides < 1))
+        {
+            throw new IllegalArgumentException("A dice term requires a non-negative number of dice with at least one side each.");
+        }
+        
+        if ((keepCount < 0) || (keepCount > count))
+        {
+            throw new IllegalArgumentException("Cannot keep " + keepCount + " dice out of " + count + ".");
+        }
+        
+        if ((explodeThreshold != 0) && ((explodeThreshold < 2) || (explodeThreshold > sides)))
+        {
+            throw new IllegalArgumentException("Exploding dice require a threshold between 2 and " + sides + ".");
+        }
+        
+        if ((rerollThreshold < 0) || (rerollThreshold >= sides))
+        {
+            throw new IllegalArgumentException("Rerolls require a threshold lower than " + sides + ".");
+        }
+        
+        this.isNegative = isNegative;
+        this.count = count;
+        this.sides = sides;
+        this.keepCount = keepCount;
+        this.isKeepHighest = isKeepHighest;
+        this.explodeThreshold = explodeThreshold;
+        this.rerollThreshold = rerollThreshold;
+        this.isRerollOnce = isRerollOnce;
+        // Products whose low half falls below (2^32 mod sides) would make some faces more likely than others, so they are rejected.
+        this.rejectThreshold = ((1L << 32) % sides);
+    }
+    
+    // Draws an unbiased face using Lemire's multiply-and-reject method on the counter-th output of the die's stream. The face is returned in
+    // the low 32 bits and the counter of the next unused output in the high 32 bits.
+    private final long draw(final long base, final int counter)
+    {
+        int next = counter;
+        long product;
+        
+        do
+        {
+            next++;
+            product = ((DiceTerm.mix(base + (next * DiceTerm.GOLDEN_GAMMA)) >>> 32) * this.getSides());
+        }
+        while ((product & 0xFFFFFFFFL) < this.rejectThreshold);
+        
+        return ((((long)next) << 32) | ((product >>> 32) + 1));
+    }
+    
+    // Returns the value of a single die after rerolls and explosions. Every die is addressed by its index within the pool, so any die of a
+    // throw can be reproduced on demand from the throw's seed without replaying the dice before it.
+    public final int face(final long seed, final long index)
+    {
+        final long base = DiceTerm.mix(seed + (index * DiceTerm.GOLDEN_GAMMA));
+        long packed = this.draw(base, 0);
+        int face = (int)packed;
+        
+        if (this.isRerolling())
+        {
+            if (this.isRerollOnce())
+            {
+                if (face <= this.getRerollThreshold())
+                {
+                    packed = this.draw(base, (int)(packed >>> 32));
+                    face = (int)packed;
+                }
+            }
+            else
+            {
+                while (face <= this.getRerollThreshold())
+                {
+                    packed = this.draw(base, (int)(packed >>> 32));
+                    face = (int)packed;
+                }
+            }
+        }
+        
+        if (this.isExploding())
+        {
+            int extra = face;
+            
+            for (int j = 0; (j < DiceTerm.MAX_EXPLOSIONS) && (extra >= this.getExplodeThreshold()); j++)
+            {
+                packed = this.draw(base, (int)(packed >>> 32));
+                extra = (int)packed;
+                face += extra;
+            }
+        }
+        
+        return face;
+    }
+    
+    public final int getCount()
+    {
+        return this.count;
+    }
+    
+    public final int getExplodeThreshold()
+    {
+        return this.explodeThreshold;
+    }
+    
+    public final int getKeepCount()
+    {
+        return this.keepCount;
+    }
+    
+    // Returns the highest value a single die of this pool can show, counting every explosion it is allowed.
+    public final long getMaximumFace()
+    {
+        return (this.isExploding() ? ((long)this.getSides() * (DiceTerm.MAX_EXPLOSIONS + 1)) : this.getSides());
+    }
+    
+    public final int getRerollThreshold()
+    {
+        return this.rerollThreshold;
+    }
+    
+    public final int getSides()
+    {
+        return this.sides;
+    }
+    
+    public final boolean isExploding()
+    {
+        return (this.explodeThreshold != 0);
+    }
+    
+    public final boolean isKeepHighest()
+    {
+        return this.isKeepHighest;
+    }
+    
+    public final boolean isKeeping()
+    {
+        return (this.keepCount != this.count);
+    }
+    
+    public final boolean isNegative()
+    {
+        return this.isNegative;
+    }
+    
+    public final boolean isRerollOnce()
+    {
+        return this.isRerollOnce;
+    }
+    
+    public final boolean isRerolling()
+    {
+        return (this.rerollThreshold != 0);
+    }
+    
+    // Returns the sum of dice [from, to) of a pool without keep or drop modifiers. Disjoint ranges can be summed on different threads and
+    // added together, since every die depends only on the seed and its own index.
+    protected final long sum(final long seed, final int from, final int to)
+    {
+        long sum = 0;
+        
+        for (int i = from; i < to; i++)
+        {
+            sum += this.face(seed, i);
+        }
+        
+        return sum;
+    }
+    
+    // Returns the sum of the kept dice, given how many dice of the pool landed on each face.
+    protected final long sumKept(final int[] histogram)
+    {
+        long sum = 0;
+        int remaining = this.getKeepCount();
+        
+        for (int i = 1; (i < histogram.length) && (remaining > 0); i++)
+        {
+            final int face = (this.isKeepHighest() ? (histogram.length - i) : i);
+            final int taken = Math.min(remaining, histogram[face]);
+            
+            sum += ((long)taken * face);
+            remaining -= taken;
+        }
+        
+        return sum;
+    }
+    
+    // Counts how many of the dice [from, to) landed on each face. The histogram must have room for getMaximumFace() + 1 entries.
+    protected final void tally(final long seed, final int from, final int to, final int[] histogram)
+    {
+        for (int i = from; i < to; i++)
+        {
+            histogram[this.face(seed, i)]++;
+        }
+    }
+    
+    // Returns the sum of the kept dice without storing the individual dice. Pools with keep or drop modifiers only need a histogram of the
+    // possible faces, unless they also explode and so have no small upper bound.
+    public final long total(final long seed)
+    {
+        if (!this.isKeeping())
+        {
+            return this.sum(seed, 0, this.getCount());
+        }
+        else if (!this.isExploding())
+        {
+            final int[] histogram = new int[this.getSides() + 1];
+            
+            this.tally(seed, 0, this.getCount(), histogram);
+            return this.sumKept(histogram);
+        }
+        else
+        {
+            final int[] faces = new int[this.getCount()];
+            long sum = 0;
+            
+            for (int i = 0; i < faces.length; i++)
+            {
+                faces[i] = this.face(seed, i);
+            }
+            
+            Arrays.sort(faces);
+            
+            for (int i = 0; i < this.getKeepCount(); i++)
+            {
+                sum += faces[this.isKeepHighest() ? ((faces.length - 1) - i) : i];
+            }
+            
+            return sum;
+        }
+    }
+    
+    @Override
+    public final String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        
+        builder.append(this.getCount()).append('d').append(this.getSides());
+        
+        if (this.isKeeping())
+        {
+            builder.append(this.isKeepHighest() ? "kh" : "kl").append(this.getKeepCount());
+        }
+        
+        if (this.isRerolling())
+        {
+            builder.append(this.isRerollOnce() ? "ro" : "r").append(this.getRerollThreshold());
+        }
+        
+        if (this.isExploding())
+        {
+            builder.append('!');
+            
+            if (this.getExplodeThreshold() != this.getSides())
+            {
+                builder.append(this.getExplodeThreshold());
+            }
+        }
+        
+        return builder.toString();
+    }
+}
\ No newline at end of file
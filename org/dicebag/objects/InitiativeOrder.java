@@ -0,0 +1,129 @@
+/*
+ * Title: InitiativeOrder
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * This class is a common resource for the DiceBag module and its add-on modules to use.
+ * It puts a roster of creatures into initiative order. Every creature's total initiative and initiative bonus are read once into a
+ * primitive sort key, the keys are sorted, and only then are ties settled: each group of creatures that tie on both rolls its d20
+ * tie-breakers once, and any of them that also tie on the tie-breaker are put in a random order instead of rolling again. The result is
+ * stored in each creature's tie-breaker, so from then on Creature.compareTo agrees with the order without throwing any dice, and sorting
+ * even thousands of creatures is a single O(n log n) pass over an array of longs.
+ */
+
+package org.dicebag.objects;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.ListIterator;
+
+public final class InitiativeOrder
+{
+    // The low bits of each sort word hold the creature's place in the roster, which keeps the sort stable.
+    private final static int  INDEX_BITS = 20;
+    private final static long INDEX_MASK = ((1L << InitiativeOrder.INDEX_BITS) - 1);
+    public final static int   MAX_SIZE   = (1 << InitiativeOrder.INDEX_BITS);
+    // A stored tie-breaker is the d20 roll shifted left by this many bits, plus the creature's rank among those that rolled the same, so
+    // it still fits one part of the initiative key.
+    private final static int  RANK_BITS  = 15;
+    private final static long RANK_MASK  = ((1L << InitiativeOrder.RANK_BITS) - 1);
+    private final static long ROLL_MASK  = ((1L << ((StatBlock.INIT_KEY_BITS - 1) - InitiativeOrder.RANK_BITS)) - 1);
+    private final static int  ROLL_SHIFT = (2 * InitiativeOrder.INDEX_BITS);
+    
+    // Settles the order of the tied creatures between positions first (inclusive) and last (exclusive) of the sorted words.
+    private final static void breakTies(final Creature[] roster, final long[] order, final int first, final int last, final RandomSource random)
+    {
+        final long[] ties = new long[last - first];
+        
+        for (int i = first; i < last; i++)
+        {
+            final Creature creature = roster[(int)(order[i] & InitiativeOrder.INDEX_MASK)];
+            
+            // A creature without a dice roller keeps a tie-breaker of zero and is ordered by the random draw alone.
+            creature.getStatBlock().setTieBreaker(0);
+            creature.rollInitiative(true);
+            
+            final long roll = Math.max(0, Math.min(InitiativeOrder.ROLL_MASK, creature.getStatBlock().getTieBreaker()));
+            final long draw = random.nextInt(1 << InitiativeOrder.INDEX_BITS);
+            
+            // Highest roll first, then a random draw, then roster order.
+            ties[i - first] = (((InitiativeOrder.ROLL_MASK - roll) << InitiativeOrder.ROLL_SHIFT) | (draw << InitiativeOrder.INDEX_BITS) |
+                (order[i] & InitiativeOrder.INDEX_MASK));
+        }
+        
+        Arrays.sort(ties);
+        
+        for (int i = 0, rank = 0; i < ties.length; i++)
+        {
+            final Creature creature = roster[(int)(ties[i] & InitiativeOrder.INDEX_MASK)];
+            final long roll = (InitiativeOrder.ROLL_MASK - (ties[i] >>> InitiativeOrder.ROLL_SHIFT));
+            
+            if ((i > 0) && ((ties[i] >>> InitiativeOrder.ROLL_SHIFT) == (ties[i - 1] >>> InitiativeOrder.ROLL_SHIFT)))
+            {
+                rank = (int)Math.min(InitiativeOrder.RANK_MASK, rank + 1);
+            }
+            else
+            {
+                rank = 0;
+            }
+            
+            creature.getStatBlock().setTieBreaker((roll << InitiativeOrder.RANK_BITS) | (InitiativeOrder.RANK_MASK - rank));
+            order[first + i] = ties[i];
+        }
+    }
+    
+    // Sorts the creatures into initiative order in place, throwing tie-breakers for the creatures that need them and drawing from the given
+    // source for those that tie on the tie-breaker too.
+    public final static void sort(final List<Creature> creatures, final RandomSource random)
+    {
+        final int size = creatures.size();
+        
+        if (size > InitiativeOrder.MAX_SIZE)
+        {
+            throw new IllegalArgumentException("At most " + InitiativeOrder.MAX_SIZE + " creatures can be put in initiative order.");
+        }
+        
+        final Creature[] roster = creatures.toArray(new Creature[size]);
+        final long[] order = new long[size];
+        final long groupMask = ((1L << (2 * StatBlock.INIT_KEY_BITS)) - 1);
+        
+        for (int i = 0; i < size; i++)
+        {
+            // The total initiative and initiative bonus, inverted so that an ascending sort puts the highest first.
+            final long group = (groupMask - (roster[i].getStatBlock().getInitiativeKey() >>> StatBlock.INIT_KEY_BITS));
+            
+            order[i] = ((group << InitiativeOrder.INDEX_BITS) | i);
+        }
+        
+        Arrays.sort(order);
+        
+        for (int first = 0, last = 1; first < size; first = last++)
+        {
+            while ((last < size) && ((order[last] >>> InitiativeOrder.INDEX_BITS) == (order[first] >>> InitiativeOrder.INDEX_BITS)))
+            {
+                last++;
+            }
+            
+            if ((last - first) > 1)
+            {
+                InitiativeOrder.breakTies(roster, order, first, last, random);
+            }
+            else
+            {
+                roster[(int)(order[first] & InitiativeOrder.INDEX_MASK)].getStatBlock().setTieBreaker(0);
+            }
+        }
+        
+        final ListIterator<Creature> iterator = creatures.listIterator();
+        
+        for (int i = 0; i < size; i++)
+        {
+            iterator.next();
+            iterator.set(roster[(int)(order[i] & InitiativeOrder.INDEX_MASK)]);
+        }
+    }
+    
+    private InitiativeOrder()
+    {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,375 @@
+/*
+ * Title: Metrics
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * This class is a common resource for the DiceBag module and its add-on modules to use.
+ * It holds the counters and latency histograms that DiceBag and the Combat Tracker record as they run: how many throws, how many dice, how
+ * much damage and healing, and how long throws, status updates, turn changes and redraws take. Every metric is published as a JMX MBean
+ * under the "org.dicebag" domain, and a plain text report of all of them can be printed on demand or at a fixed interval.
+ * 
+ * Recording never takes a lock and never allocates: a counter is a single atomic add, and a latency is one atomic increment of a
+ * logarithmic bucket plus the running count, sum and maximum. The metrics can therefore stay on all the time.
+ */
+
+package org.dicebag.objects;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public final class Metrics
+{
+    // A running total, such as the number of throws or the hit points of damage dealt.
+    public final static class Counter implements CounterMBean
+    {
+        private final String     name;
+        private final AtomicLong total = new AtomicLong();
+        
+        private Counter(final String name)
+        {
+            this.name = name;
+        }
+        
+        public final void add(final long amount)
+        {
+            this.total.addAndGet(amount);
+        }
+        
+        public final String getName()
+        {
+            return this.name;
+        }
+        
+        @Override
+        public final long getTotal()
+        {
+            return this.total.get();
+        }
+        
+        public final void increment()
+        {
+            this.total.incrementAndGet();
+        }
+        
+        @Override
+        public final void reset()
+        {
+            this.total.set(0);
+        }
+    }
+    
+    public static interface CounterMBean
+    {
+        public long getTotal();
+        
+        public void reset();
+    }
+    
+    // A histogram of durations in nanoseconds. Each power of two is split into eight buckets, so any reported percentile is within 12.5%
+    // of the true value, and the whole range of a long fits in fewer than 500 buckets.
+    public final static class Latency implements LatencyMBean
+    {
+        private final static int BUCKET_COUNT = 488;
+        private final static int SUB_BITS     = 3;
+        
+        // Returns the bucket of a duration: durations below eight nanoseconds have a bucket each, and every power of two above that is split
+        // into eight by the three bits below its highest set bit.
+        private final static int bucketOf(final long nanos)
+        {
+            if (nanos < (1L << Latency.SUB_BITS))
+            {
+                return (int)Math.max(0, nanos);
+            }
+            
+            final int exponent = (63 - Long.numberOfLeadingZeros(nanos));
+            
+            return ((((exponent - Latency.SUB_BITS) + 1) << Latency.SUB_BITS) + (int)((nanos >>> (exponent - Latency.SUB_BITS)) & 7));
+        }
+        
+        // Returns the smallest duration that falls in the given bucket.
+        private final static long lowerBoundOf(final int bucket)
+        {
+            if (bucket < (1 << Latency.SUB_BITS))
+            {
+                return bucket;
+            }
+            
+            final int exponent = (((bucket >>> Latency.SUB_BITS) - 1) + Latency.SUB_BITS);
+            
+            return ((8L + (bucket & 7)) << (exponent - Latency.SUB_BITS));
+        }
+        
+        private final AtomicLongArray buckets = new AtomicLongArray(Latency.BUCKET_COUNT);
+        private final AtomicLong      count   = new AtomicLong();
+        private final AtomicLong      maximum = new AtomicLong();
+        private final String          name;
+        private final AtomicLong      sum     = new AtomicLong();
+        
+        private Latency(final String name)
+        {
+            this.name = name;
+        }
+        
+        @Override
+        public final double get90thPercentile()
+        {
+            return this.getPercentile(0.9);
+        }
+        
+        @Override
+        public final double get999thPercentile()
+        {
+            return this.getPercentile(0.999);
+        }
+        
+        @Override
+        public final double get99thPercentile()
+        {
+            return this.getPercentile(0.99);
+        }
+        
+        @Override
+        public final long getCount()
+        {
+            return this.count.get();
+        }
+        
+        @Override
+        public final double getMaximum()
+        {
+            return (this.maximum.get() / 1000.0);
+        }
+        
+        @Override
+        public final double getMean()
+        {
+            final long count = this.count.get();
+            
+            return ((count == 0) ? 0.0 : ((this.sum.get() / 1000.0) / count));
+        }
+        
+        @Override
+        public final double getMedian()
+        {
+            return this.getPercentile(0.5);
+        }
+        
+        public final String getName()
+        {
+            return this.name;
+        }
+        
+        // Returns the given percentile in microseconds, as the upper bound of the bucket it falls in (but never more than the maximum).
+        public final double getPercentile(final double percentile)
+        {
+            final long rank = (long)Math.ceil(percentile * this.count.get());
+            long seen = 0;
+            
+            for (int i = 0; i < Latency.BUCKET_COUNT; i++)
+            {
+                seen += this.buckets.get(i);
+                
+                if ((seen >= rank) && (seen > 0))
+                {
+                    final long upperBound = ((i == (Latency.BUCKET_COUNT - 1)) ? Long.MAX_VALUE : (Latency.lowerBoundOf(i + 1) - 1));
+                    
+                    return (Math.min(upperBound, this.maximum.get()) / 1000.0);
+                }
+            }
+            
+            return 0.0;
+        }
+        
+        // Records the time elapsed since the given System.nanoTime() reading.
+        public final void record(final long startNanos)
+        {
+            final long nanos = (System.nanoTime() - startNanos);
+            long maximum = this.maximum.get();
+            
+            this.buckets.incrementAndGet(Latency.bucketOf(nanos));
+            this.count.incrementAndGet();
+            this.sum.addAndGet(nanos);
+            
+            while ((nanos > maximum) && !this.maximum.compareAndSet(maximum, nanos))
+            {
+                maximum = this.maximum.get();
+            }
+        }
+        
+        // Clears the histogram. Durations recorded while the reset is in progress may be split between the old and new figures.
+        @Override
+        public final void reset()
+        {
+            for (int i = 0; i < Latency.BUCKET_COUNT; i++)
+            {
+                this.buckets.set(i, 0);
+            }
+            
+            this.count.set(0);
+            this.sum.set(0);
+            this.maximum.set(0);
+        }
+    }
+    
+    // Every duration is reported in microseconds.
+    public static interface LatencyMBean
+    {
+        public double get90thPercentile();
+        
+        public double get999thPercentile();
+        
+        public double get99thPercentile();
+        
+        public long getCount();
+        
+        public double getMaximum();
+        
+        public double getMean();
+        
+        public double getMedian();
+        
+        public void reset();
+    }
+    
+    public final static Counter             DAMAGE_DEALT        = new Counter("Damage dealt (HP)");
+    public final static Latency             DAMAGE_TIME         = new Latency("Creature.damage");
+    public final static Counter             DICE_THROWN         = new Counter("Dice thrown");
+    private final static String             DOMAIN              = "org.dicebag";
+    private static ScheduledExecutorService dumper              = null;
+    public final static Latency             HEAL_TIME           = new Latency("Creature.heal");
+    public final static Counter             HEALING_DONE        = new Counter("Healing done (HP)");
+    public final static Latency             NEXT_COMBATANT_TIME = new Latency("CombatTracker.nextCombatant");
+    public final static Latency             PROCESS_INPUT_TIME  = new Latency("DiceBag.processInput");
+    public final static Latency             REDRAW_TIME         = new Latency("CombatTracker redraw");
+    public final static Counter             ROUNDS              = new Counter("Rounds");
+    public final static Counter             STATUS_CHANGES      = new Counter("Status changes");
+    public final static Counter             THROWS              = new Counter("Throws");
+    public final static Counter             TURNS               = new Counter("Turns");
+    public final static Latency             UPDATE_STATUS_TIME  = new Latency("Creature.updateStatus");
+    
+    private final static Counter[] getCounters()
+    {
+        return new Counter[] {
+            Metrics.THROWS, Metrics.DICE_THROWN, Metrics.DAMAGE_DEALT, Metrics.HEALING_DONE, Metrics.STATUS_CHANGES, Metrics.TURNS, Metrics.ROUNDS
+        };
+    }
+    
+    private final static Latency[] getLatencies()
+    {
+        return new Latency[] {
+            Metrics.PROCESS_INPUT_TIME, Metrics.DAMAGE_TIME, Metrics.HEAL_TIME, Metrics.UPDATE_STATUS_TIME, Metrics.NEXT_COMBATANT_TIME,
+            Metrics.REDRAW_TIME
+        };
+    }
+    
+    // Publishes every metric with the platform MBean server, where JConsole, VisualVM or any other JMX client can read and reset it.
+    // Metrics that are already registered are left alone, so this can safely be called more than once.
+    public final static void register() throws JMException
+    {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        
+        for (final Counter counter : Metrics.getCounters())
+        {
+            final ObjectName name = new ObjectName(Metrics.DOMAIN + ":type=Counter,name=" + ObjectName.quote(counter.getName()));
+            
+            if (!server.isRegistered(name))
+            {
+                server.registerMBean(counter, name);
+            }
+        }
+        
+        for (final Latency latency : Metrics.getLatencies())
+        {
+            final ObjectName name = new ObjectName(Metrics.DOMAIN + ":type=Latency,name=" + ObjectName.quote(latency.getName()));
+            
+            if (!server.isRegistered(name))
+            {
+                server.registerMBean(latency, name);
+            }
+        }
+    }
+    
+    // Returns a plain text report of every metric, with durations in microseconds.
+    public final static String report()
+    {
+        final StringBuilder report = new StringBuilder(1024);
+        
+        report.append(String.format("%-32s %14s%n", "Counter", "Total"));
+        
+        for (final Counter counter : Metrics.getCounters())
+        {
+            report.append(String.format("%-32s %14d%n", counter.getName(), counter.getTotal()));
+        }
+        
+        report.append(String.format("%n%-32s %10s %12s %12s %12s %12s %12s%n", "Latency (us)", "Count", "Mean", "Median", "99%", "99.9%", "Max"));
+        
+        for (final Latency latency : Metrics.getLatencies())
+        {
+            report.append(String.format("%-32s %10d %12.1f %12.1f %12.1f %12.1f %12.1f%n",
+                latency.getName(),
+                latency.getCount(),
+                latency.getMean(),
+                latency.getMedian(),
+                latency.get99thPercentile(),
+                latency.get999thPercentile(),
+                latency.getMaximum()));
+        }
+        
+        return report.toString();
+    }
+    
+    // Prints the report to the given stream every period seconds from a background daemon thread, replacing any dump already running.
+    public final static synchronized void startDump(final PrintStream out, final long period)
+    {
+        if (period < 1)
+        {
+            throw new IllegalArgumentException("The metrics report period must be at least one second.");
+        }
+        
+        Metrics.stopDump();
+        Metrics.dumper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+        {
+            @Override
+            public final Thread newThread(final Runnable runnable)
+            {
+                final Thread thread = new Thread(runnable, "DiceBag metrics");
+                
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        Metrics.dumper.scheduleAtFixedRate(new Runnable()
+        {
+            @Override
+            public final void run()
+            {
+                out.print(Metrics.report());
+                out.println();
+                out.flush();
+            }
+        }, period, period, TimeUnit.SECONDS);
+    }
+    
+    public final static synchronized void stopDump()
+    {
+        if (Metrics.dumper != null)
+        {
+            Metrics.dumper.shutdownNow();
+            Metrics.dumper = null;
+        }
+    }
+    
+    private Metrics()
+    {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,178 @@
+/*
+ * Title: ParallelRoller
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * This class is a common resource for the DiceBag module and its add-on modules to use.
+ * It throws very large dice pools on every available core using the fork/join framework. Each pool is cut into fixed-size chunks that are
+ * summed (or tallied into face histograms, for pools with keep or drop modifiers) independently and then combined.
+ * Because every die is derived from the throw's seed and its own index, a chunk needs no generator state from the chunks before it, and the
+ * total for a given seed is exactly the same as a single-threaded throw no matter how many threads take part.
+ */
+
+package org.dicebag.objects;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public final class ParallelRoller
+{
+    private final static class SumTask extends RecursiveTask<Long>
+    {
+        private final static long serialVersionUID = 1L;
+        private final int         from;
+        private final long        seed;
+        private final DiceTerm    term;
+        private final int         to;
+        
+        private SumTask(final DiceTerm term, final long seed, final int from, final int to)
+        {
+            this.term = term;
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected final Long compute()
+        {
+            if ((this.to - this.from) <= ParallelRoller.CHUNK_SIZE)
+            {
+                return this.term.sum(this.seed, this.from, this.to);
+            }
+            
+            final int middle = ParallelRoller.split(this.from, this.to);
+            final SumTask left = new SumTask(this.term, this.seed, this.from, middle);
+            
+            left.fork();
+            return (new SumTask(this.term, this.seed, middle, this.to).compute() + left.join());
+        }
+    }
+    
+    private final static class TallyTask extends RecursiveTask<int[]>
+    {
+        private final static long serialVersionUID = 1L;
+        private final int         from;
+        private final long        seed;
+        private final DiceTerm    term;
+        private final int         to;
+        
+        private TallyTask(final DiceTerm term, final long seed, final int from, final int to)
+        {
+            this.term = term;
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected final int[] compute()
+        {
+            if ((this.to - this.from) <= ParallelRoller.CHUNK_SIZE)
+            {
+                final int[] histogram = new int[(int)this.term.getMaximumFace() + 1];
+                
+                this.term.tally(this.seed, this.from, this.to, histogram);
+                return histogram;
+            }
+            
+            final int middle = ParallelRoller.split(this.from, this.to);
+            final TallyTask left = new TallyTask(this.term, this.seed, this.from, middle);
+            
+            left.fork();
+            
+            final int[] histogram = new TallyTask(this.term, this.seed, middle, this.to).compute();
+            final int[] other = left.join();
+            
+            for (int i = 0; i < histogram.length; i++)
+            {
+                histogram[i] += other[i];
+            }
+            
+            return histogram;
+        }
+    }
+    
+    // Dice per leaf task. Large enough to hide the cost of forking, small enough to keep every core busy until the end of the throw.
+    public final static int             CHUNK_SIZE         = (1 << 16);
+    private final static ParallelRoller DEFAULT            = new ParallelRoller(ForkJoinPool.commonPool());
+    // Pools with keep or drop modifiers are tallied into one histogram per chunk, so exploding pools with huge dice stay single-threaded.
+    public final static int             MAX_HISTOGRAM_SIZE = (1 << 16);
+    // Expressions with fewer dice than this are thrown on the calling thread, where they finish faster than the tasks could be scheduled.
+    public final static long            PARALLEL_THRESHOLD = (1 << 20);
+    
+    // Returns a roller backed by the common fork/join pool, which has one worker per available core.
+    public final static ParallelRoller getDefault()
+    {
+        return ParallelRoller.DEFAULT;
+    }
+    
+    // Splits on a multiple of the chunk size, so the leaves are the same chunks however the recursion happens to be scheduled.
+    private final static int split(final int from, final int to)
+    {
+        return (from + (((((to - from) / ParallelRoller.CHUNK_SIZE) + 1) / 2) * ParallelRoller.CHUNK_SIZE));
+    }
+    
+    private final ForkJoinPool pool;
+    
+    public ParallelRoller(final ForkJoinPool pool)
+    {
+        this.pool = pool;
+    }
+    
+    public final ForkJoinPool getPool()
+    {
+        return this.pool;
+    }
+    
+    public final DiceResult roll(final DiceExpression expression, final RandomSource source)
+    {
+        final long seed = source.nextLong();
+        
+        return new DiceResult(expression, seed, this.total(expression, seed));
+    }
+    
+    public final long rollTotal(final DiceExpression expression, final RandomSource source)
+    {
+        return this.total(expression, source.nextLong());
+    }
+    
+    // Returns the same total as DiceExpression.total(seed), computed in parallel when the expression is large enough to benefit.
+    public final long total(final DiceExpression expression, final long seed)
+    {
+        if (expression.getDiceCount() < ParallelRoller.PARALLEL_THRESHOLD)
+        {
+            return expression.total(seed);
+        }
+        
+        long total = expression.getModifier();
+        
+        for (int i = 0; i < expression.getTermCount(); i++)
+        {
+            final DiceTerm term = expression.getTerm(i);
+            final long termSeed = expression.getTermSeed(seed, i);
+            final long subtotal;
+            
+            if (term.getCount() <= ParallelRoller.CHUNK_SIZE)
+            {
+                subtotal = term.total(termSeed);
+            }
+            else if (!term.isKeeping())
+            {
+                subtotal = this.getPool().invoke(new SumTask(term, termSeed, 0, term.getCount()));
+            }
+            else if (term.getMaximumFace() < ParallelRoller.MAX_HISTOGRAM_SIZE)
+            {
+                subtotal = term.sumKept(this.getPool().invoke(new TallyTask(term, termSeed, 0, term.getCount())));
+            }
+            else
+            {
+                subtotal = term.total(termSeed);
+            }
+            
+            total += (term.isNegative() ? -subtotal : subtotal);
+        }
+        
+        return total;
+    }
+}
\ No newline at end of file
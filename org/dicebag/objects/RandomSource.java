@@ -0,0 +1,202 @@
+/*
+ * Title: RandomSource
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * This class is a common resource for the DiceBag module and its add-on modules to use.
+ * It is the single supplier of randomness for every throw of the dice. Implementations can be swapped without touching the code that throws:
+ * the per-thread source is contention-free and is the default, while the seeded sources make a whole session reproducible from one number.
+ * Seeded sources are not thread-safe; give each thread its own instance by calling split().
+ */
+
+package org.dicebag.objects;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+public abstract class RandomSource
+{
+    // Wraps the JDK's SplittableRandom, which is fast, passes BigCrush, and splits into statistically independent children.
+    private final static class SplittableSource extends RandomSource
+    {
+        private final SplittableRandom random;
+        
+        private SplittableSource(final long seed, final SplittableRandom random)
+        {
+            super(seed);
+            this.random = random;
+        }
+        
+        @Override
+        public final long nextLong()
+        {
+            return this.random.nextLong();
+        }
+        
+        @Override
+        public final RandomSource split()
+        {
+            final long seed = this.random.nextLong();
+            
+            return new SplittableSource(seed, new SplittableRandom(seed));
+        }
+        
+        @Override
+        public final String toString()
+        {
+            return "SplittableRandom (seed " + this.getSeed() + ")";
+        }
+    }
+    
+    // Delegates to the ThreadLocalRandom of whichever thread is calling, so it can be shared freely without locks or contention.
+    private final static class ThreadSource extends RandomSource
+    {
+        private ThreadSource()
+        {
+            super(0);
+        }
+        
+        @Override
+        public final boolean isSeeded()
+        {
+            return false;
+        }
+        
+        @Override
+        public final long nextLong()
+        {
+            return ThreadLocalRandom.current().nextLong();
+        }
+        
+        @Override
+        public final RandomSource split()
+        {
+            return this;
+        }
+        
+        @Override
+        public final String toString()
+        {
+            return "ThreadLocalRandom";
+        }
+    }
+    
+    // The xoshiro256** generator by Blackman and Vigna: four words of state, a period of 2^256 - 1, and a handful of shifts per output.
+    private final static class XoshiroSource extends RandomSource
+    {
+        private long s0;
+        private long s1;
+        private long s2;
+        private long s3;
+        
+        private XoshiroSource(final long seed)
+        {
+            super(seed);
+            
+            // The state is expanded from the seed with SplitMix64, as the authors recommend, so that it can never be all zeroes.
+            this.s0 = DiceTerm.mix(seed + RandomSource.GOLDEN_GAMMA);
+            this.s1 = DiceTerm.mix(seed + (2 * RandomSource.GOLDEN_GAMMA));
+            this.s2 = DiceTerm.mix(seed + (3 * RandomSource.GOLDEN_GAMMA));
+            this.s3 = DiceTerm.mix(seed + (4 * RandomSource.GOLDEN_GAMMA));
+        }
+        
+        @Override
+        public final long nextLong()
+        {
+            final long result = (Long.rotateLeft(this.s1 * 5, 7) * 9);
+            final long t = (this.s1 << 17);
+            
+            this.s2 ^= this.s0;
+            this.s3 ^= this.s1;
+            this.s1 ^= this.s2;
+            this.s0 ^= this.s3;
+            this.s2 ^= t;
+            this.s3 = Long.rotateLeft(this.s3, 45);
+            return result;
+        }
+        
+        @Override
+        public final RandomSource split()
+        {
+            return new XoshiroSource(this.nextLong());
+        }
+        
+        @Override
+        public final String toString()
+        {
+            return "xoshiro256** (seed " + this.getSeed() + ")";
+        }
+    }
+    
+    private final static long         GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private final static RandomSource PER_THREAD   = new ThreadSource();
+    
+    // Returns the shared, unseeded source backed by each calling thread's own generator.
+    public final static RandomSource perThread()
+    {
+        return RandomSource.PER_THREAD;
+    }
+    
+    // Returns a seeded source whose seed is itself drawn at random, so that it can still be reported and replayed later.
+    public final static RandomSource splittable()
+    {
+        return RandomSource.splittable(ThreadLocalRandom.current().nextLong());
+    }
+    
+    public final static RandomSource splittable(final long seed)
+    {
+        return new SplittableSource(seed, new SplittableRandom(seed));
+    }
+    
+    public final static RandomSource xoshiro(final long seed)
+    {
+        return new XoshiroSource(seed);
+    }
+    
+    private final long seed;
+    
+    protected RandomSource(final long seed)
+    {
+        this.seed = seed;
+    }
+    
+    public final long getSeed()
+    {
+        return this.seed;
+    }
+    
+    public boolean isSeeded()
+    {
+        return true;
+    }
+    
+    // Returns a uniformly distributed integer in [0, bound) using Lemire's multiply-and-reject method. Unlike the modulo or floating point
+    // approaches it has no bias toward low values, and it only needs a division in the rare case where a rejection is possible at all.
+    public final int nextInt(final int bound)
+    {
+        if (bound < 1)
+        {
+            throw new IllegalArgumentException("The bound must be positive.");
+        }
+        
+        long product = ((this.nextLong() >>> 32) * bound);
+        
+        if ((product & 0xFFFFFFFFL) < bound)
+        {
+            final long threshold = ((1L << 32) % bound);
+            
+            while ((product & 0xFFFFFFFFL) < threshold)
+            {
+                product = ((this.nextLong() >>> 32) * bound);
+            }
+        }
+        
+        return (int)(product >>> 32);
+    }
+    
+    public abstract long nextLong();
+    
+    // Returns an independent source for use on another thread. Seeded children are derived from their parent, so a seeded parent still
+    // reproduces the same children in the same order.
+    public abstract RandomSource split();
+}
\ No newline at end of file
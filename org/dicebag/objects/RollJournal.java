@@ -0,0 +1,267 @@
+/*
+ * Title: RollJournal
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * This class is a common resource for the DiceBag module and its add-on modules to use.
+ * It records every throw as a fixed-size binary record (timestamp, expression id, seed and total) in an append-only, memory-mapped file.
+ * Individual dice are not stored: the seed regenerates them exactly, so any throw can be replayed, checked against its recorded total, and
+ * rendered again at any time. The distinct expression strings are kept once each in a companion file ending in ".expressions".
+ * 
+ * Appending a record is a handful of writes into mapped memory, and reopening a journal only reads its header and the expression table, so
+ * both stay cheap however many millions of throws the journal holds.
+ */
+
+package org.dicebag.objects;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+public final class RollJournal implements Closeable
+{
+    private final static int               HEADER_SIZE      = 64;
+    private final static int               INITIAL_CAPACITY = (1 << 20);
+    private final static int               MAGIC            = 0x44424A31;
+    // A single mapping cannot exceed 2 GB, which still leaves room for more than 67 million throws per journal.
+    public final static long               MAX_RECORDS      = ((Integer.MAX_VALUE - RollJournal.HEADER_SIZE) / RollJournal.RECORD_SIZE);
+    private final static int               OFFSET_COUNT     = 8;
+    private final static int               RECORD_SIZE      = 32;
+    private final static int               VERSION          = 1;
+    private final FileChannel              channel;
+    private final RandomAccessFile         expressionFile;
+    private final HashMap<String, Integer> expressionIds    = new HashMap<String, Integer>();
+    private final ArrayList<String>        expressions      = new ArrayList<String>();
+    private final RandomAccessFile         file;
+    private long                           lastTimestamp    = 0;
+    private MappedByteBuffer               map;
+    private long                           recordCount;
+    
+    // Opens the journal at the given path, creating it if it does not exist yet.
+    public RollJournal(final File path) throws IOException
+    {
+        this.file = new RandomAccessFile(path, "rw");
+        this.channel = this.file.getChannel();
+        this.expressionFile = new RandomAccessFile(path.getPath() + ".expressions", "rw");
+        
+        final boolean isNew = (this.channel.size() < RollJournal.HEADER_SIZE);
+        
+        this.map = this.channel.map(FileChannel.MapMode.READ_WRITE,
+            0,
+            Math.max(this.channel.size(), RollJournal.HEADER_SIZE + ((long)RollJournal.INITIAL_CAPACITY * RollJournal.RECORD_SIZE)));
+        
+        if (isNew)
+        {
+            this.map.putInt(0, RollJournal.MAGIC);
+            this.map.putInt(4, RollJournal.VERSION);
+            this.map.putLong(RollJournal.OFFSET_COUNT, 0);
+        }
+        else if ((this.map.getInt(0) != RollJournal.MAGIC) || (this.map.getInt(4) != RollJournal.VERSION))
+        {
+            this.close();
+            throw new IOException(path + " is not a roll journal this version of DiceBag can read.");
+        }
+        
+        this.recordCount = this.map.getLong(RollJournal.OFFSET_COUNT);
+        
+        if (this.recordCount > 0)
+        {
+            this.lastTimestamp = this.getTimestamp(this.recordCount - 1);
+        }
+        
+        this.readExpressions();
+    }
+    
+    // Records a throw and returns its index in the journal. Timestamps never decrease, even if the system clock is set back, so the
+    // journal can always be searched by time.
+    public final synchronized long append(final DiceResult result) throws IOException
+    {
+        if (this.recordCount >= RollJournal.MAX_RECORDS)
+        {
+            throw new IOException("The roll journal is full.");
+        }
+        
+        final int offset = this.getOffset(this.recordCount);
+        
+        if ((offset + RollJournal.RECORD_SIZE) > this.map.capacity())
+        {
+            // Grow the mapping geometrically so that remapping stays rare.
+            this.map = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.min(Integer.MAX_VALUE, (long)this.map.capacity() * 2));
+        }
+        
+        this.lastTimestamp = Math.max(this.lastTimestamp, System.currentTimeMillis());
+        this.map.putLong(offset, this.lastTimestamp);
+        this.map.putLong(offset + 8, result.getSeed());
+        this.map.putLong(offset + 16, result.getTotal());
+        this.map.putInt(offset + 24, this.getExpressionId(result.getExpression().getSource()));
+        this.map.putInt(offset + 28, 0);
+        // The count is only advanced once the record is complete, so a process that dies mid-write never leaves a half-written record.
+        this.recordCount++;
+        this.map.putLong(RollJournal.OFFSET_COUNT, this.recordCount);
+        return (this.recordCount - 1);
+    }
+    
+    private final void checkIndex(final long index)
+    {
+        if ((index < 0) || (index >= this.recordCount))
+        {
+            throw new IndexOutOfBoundsException("Record " + index + " is not in the journal.");
+        }
+    }
+    
+    @Override
+    public final synchronized void close() throws IOException
+    {
+        if (this.map != null)
+        {
+            this.map.force();
+        }
+        
+        this.channel.close();
+        this.file.close();
+        this.expressionFile.close();
+    }
+    
+    public final synchronized DiceExpression getExpression(final long index)
+    {
+        this.checkIndex(index);
+        return DiceExpression.compile(this.expressions.get(this.map.getInt(this.getOffset(index) + 24)));
+    }
+    
+    // Returns the id of an expression string, adding it to the expression table the first time it is seen.
+    private final int getExpressionId(final String source) throws IOException
+    {
+        Integer id = this.expressionIds.get(source);
+        
+        if (id == null)
+        {
+            final byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+            final ByteBuffer entry = ByteBuffer.allocate(4 + bytes.length);
+            
+            entry.putInt(bytes.length).put(bytes).flip();
+            this.expressionFile.getChannel().write(entry, this.expressionFile.length());
+            id = this.expressions.size();
+            this.expressions.add(source);
+            this.expressionIds.put(source, id);
+        }
+        
+        return id;
+    }
+    
+    private final int getOffset(final long index)
+    {
+        return (int)(RollJournal.HEADER_SIZE + (index * RollJournal.RECORD_SIZE));
+    }
+    
+    public final synchronized long getRecordCount()
+    {
+        return this.recordCount;
+    }
+    
+    public final synchronized long getSeed(final long index)
+    {
+        this.checkIndex(index);
+        return this.map.getLong(this.getOffset(index) + 8);
+    }
+    
+    public final synchronized long getTimestamp(final long index)
+    {
+        this.checkIndex(index);
+        return this.map.getLong(this.getOffset(index));
+    }
+    
+    public final synchronized long getTotal(final long index)
+    {
+        this.checkIndex(index);
+        return this.map.getLong(this.getOffset(index) + 16);
+    }
+    
+    // Returns the index of the first throw recorded at or after the given time (in milliseconds since the epoch), found by binary search.
+    public final synchronized long indexOfTime(final long timestamp)
+    {
+        long low = 0;
+        long high = this.recordCount;
+        
+        while (low < high)
+        {
+            final long middle = ((low + high) >>> 1);
+            
+            if (this.getTimestamp(middle) < timestamp)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        
+        return low;
+    }
+    
+    // Returns the index of the next throw of the given expression at or after fromIndex, or -1 if there is none. Only the expression ids of the
+    // records are compared, so the scan never decodes a record it does not return.
+    public final synchronized long nextIndexOf(final String source, final long fromIndex)
+    {
+        final Integer id = this.expressionIds.get(DiceExpression.parse(source).getSource());
+        
+        if (id == null)
+        {
+            return -1;
+        }
+        
+        for (long i = Math.max(0, fromIndex); i < this.recordCount; i++)
+        {
+            if (this.map.getInt(this.getOffset(i) + 24) == id)
+            {
+                return i;
+            }
+        }
+        
+        return -1;
+    }
+    
+    // Loads the expression table. A trailing entry cut short by a crash is dropped; no record can refer to it, since records are only
+    // written after their expression.
+    private final void readExpressions() throws IOException
+    {
+        final byte[] table = new byte[(int)this.expressionFile.length()];
+        int position = 0;
+        
+        this.expressionFile.seek(0);
+        this.expressionFile.readFully(table);
+        
+        final ByteBuffer buffer = ByteBuffer.wrap(table);
+        
+        while ((position + 4) <= table.length)
+        {
+            final int length = buffer.getInt(position);
+            
+            if ((length < 0) || ((position + 4 + length) > table.length))
+            {
+                break;
+            }
+            
+            final String source = new String(table, position + 4, length, StandardCharsets.UTF_8);
+            
+            this.expressionIds.put(source, this.expressions.size());
+            this.expressions.add(source);
+            position += (4 + length);
+        }
+        
+        this.expressionFile.setLength(position);
+    }
+    
+    // Regenerates a recorded throw, dice and all, from its seed. The total of the result can be compared with getTotal to verify it.
+    public final synchronized DiceResult replay(final long index)
+    {
+        return this.getExpression(index).roll(this.getSeed(index));
+    }
+}
\ No newline at end of file
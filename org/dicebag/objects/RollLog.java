@@ -0,0 +1,689 @@
+/*
+ * Title: RollLog
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * This class is a common resource for the DiceBag module and its add-on modules to use.
+ * It sits between everything that writes to the DiceBag output and the RichTextPane that displays it. Appends from any thread are queued in
+ * a ring buffer and return immediately; the queue is drained on the event dispatch thread, and everything that arrived since the last drain
+ * is inserted into the styled document with a single append. A combat reset that logs dozens of initiative rolls therefore renders once.
+ * 
+ * Every entry is also written to a journal file on disk, and the document only ever holds a bounded window of entries. Older entries are
+ * evicted from the document as new ones arrive, and are read back from the journal a page at a time when the user scrolls to the top of the
+ * pane (or forward again when they scroll back to the bottom), so memory stays flat however long the session runs.
+ */
+
+package org.dicebag.objects;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.event.AdjustmentEvent;
+import java.awt.event.AdjustmentListener;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import javax.swing.JScrollBar;
+import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.SimpleAttributeSet;
+import javax.swing.text.StyleConstants;
+import javax.swing.text.StyledDocument;
+
+import api.gui.swing.RichTextPane;
+
+public final class RollLog implements AdjustmentListener, Runnable
+{
+    // Starting size of the queue. It doubles whenever a burst of events arrives faster than the event dispatch thread can drain them.
+    public final static int   INITIAL_CAPACITY = 256;
+    // Number of entries read back from the journal each time the user scrolls past either end of the window.
+    public final static int   PAGE_SIZE        = 200;
+    private final static byte TAG_COLOR        = 0;
+    private final static byte TAG_TEXT         = 1;
+    // Number of entries kept in the document. Anything older is only on disk until the user scrolls back to it.
+    public final static int   WINDOW_CAPACITY  = 2000;
+    
+    // Returns the number of characters an entry adds to the document: the text of every segment that is not a colour.
+    private final static int textLength(final Object[] segments)
+    {
+        int length = 0;
+        
+        for (final Object segment : segments)
+        {
+            if (!(segment instanceof Color))
+            {
+                length += String.valueOf(segment).length();
+            }
+        }
+        
+        return length;
+    }
+    
+    private Object[][]                  buffer           = new Object[RollLog.INITIAL_CAPACITY][];
+    private int                         head             = 0;
+    private boolean                     isFlushScheduled = false;
+    private boolean                     isFollowing      = true;
+    private boolean                     isPaging         = false;
+    private RandomAccessFile            journal          = null;
+    private File                        journalFile      = null;
+    private long                        journalLength    = 0;
+    private final Object                lock             = new Object();
+    private final RichTextPane          output;
+    private final ByteArrayOutputStream recordBytes      = new ByteArrayOutputStream(256);
+    private final JScrollBar            scrollBar;
+    private int                         size             = 0;
+    private int                         windowCount      = 0;
+    private long                        windowEnd        = 0;
+    private int                         windowFirst      = 0;
+    private int                         windowLength     = 0;
+    private final int[]                 windowLengths    = new int[RollLog.WINDOW_CAPACITY + RollLog.PAGE_SIZE];
+    private final int[]                 windowSizes      = new int[RollLog.WINDOW_CAPACITY + RollLog.PAGE_SIZE];
+    private long                        windowStart      = 0;
+    
+    public RollLog(final RichTextPane output)
+    {
+        this.output = output;
+        
+        try
+        {
+            this.journalFile = File.createTempFile("dicebag", ".log");
+            this.journalFile.deleteOnExit();
+            this.journal = new RandomAccessFile(this.journalFile, "rw");
+        }
+        catch (final IOException exception)
+        {
+            // Without a journal the window still stays bounded; evicted entries are simply discarded.
+            this.journal = null;
+        }
+        
+        final JScrollPane scrollPane = (JScrollPane)SwingUtilities.getAncestorOfClass(JScrollPane.class, output);
+        
+        this.scrollBar = ((scrollPane == null) ? null : scrollPane.getVerticalScrollBar());
+        
+        if (this.scrollBar != null)
+        {
+            this.scrollBar.addAdjustmentListener(this);
+        }
+    }
+    
+    // Pages older or newer entries in when the user scrolls to either end of the pane. Paging is deferred until the current layout has
+    // settled, and the position of the text the user was reading is restored afterwards, so it never cascades through the whole journal.
+    @Override
+    public final void adjustmentValueChanged(final AdjustmentEvent event)
+    {
+        if (this.isPaging || event.getValueIsAdjusting() || (this.scrollBar.getMaximum() <= this.scrollBar.getVisibleAmount()))
+        {
+            return;
+        }
+        
+        if ((this.scrollBar.getValue() == this.scrollBar.getMinimum()) && (this.windowStart > 0))
+        {
+            this.isPaging = true;
+            SwingUtilities.invokeLater(new Runnable()
+            {
+                @Override
+                public final void run()
+                {
+                    RollLog.this.pageBackward(RollLog.PAGE_SIZE, true);
+                }
+            });
+        }
+        else if (!this.isFollowing && ((this.scrollBar.getValue() + this.scrollBar.getVisibleAmount()) >= this.scrollBar.getMaximum()))
+        {
+            this.isPaging = true;
+            SwingUtilities.invokeLater(new Runnable()
+            {
+                @Override
+                public final void run()
+                {
+                    RollLog.this.pageForward(RollLog.PAGE_SIZE);
+                }
+            });
+        }
+    }
+    
+    // Queues one event, given as the same colour and text segments RichTextPane.append accepts. The caller never waits for rendering; the
+    // first event after a drain schedules the next one, and any events that follow before it runs join the same batch.
+    public final void append(final Object... segments)
+    {
+        synchronized (this.lock)
+        {
+            if (this.size == this.buffer.length)
+            {
+                // Never drop an event or block the caller; the queue only grows while the event dispatch thread is busy elsewhere.
+                final Object[][] larger = new Object[this.buffer.length * 2][];
+                
+                for (int i = 0; i < this.size; i++)
+                {
+                    larger[i] = this.buffer[(this.head + i) % this.buffer.length];
+                }
+                
+                this.buffer = larger;
+                this.head = 0;
+            }
+            
+            this.buffer[(this.head + this.size) % this.buffer.length] = segments;
+            this.size++;
+            
+            if (this.isFlushScheduled)
+            {
+                return;
+            }
+            
+            this.isFlushScheduled = true;
+        }
+        
+        SwingUtilities.invokeLater(this);
+    }
+    
+    // Discards anything still queued, the journal, and the contents of the output pane. Must be called on the event dispatch thread.
+    public final void clear()
+    {
+        this.drain();
+        this.getOutput().clear();
+        this.reset();
+    }
+    
+    // Closes and deletes the journal, so a DiceBag window that is disposed leaves no open file or temporary file behind. Text already in
+    // the pane stays there, and later entries are shown without a journal, as if none could be created. Must be called on the event
+    // dispatch thread.
+    public final void close()
+    {
+        if (this.journal != null)
+        {
+            try
+            {
+                this.journal.close();
+            }
+            catch (final IOException exception)
+            {
+                // The file is deleted regardless.
+            }
+            
+            this.journal = null;
+        }
+        
+        if (this.journalFile != null)
+        {
+            this.journalFile.delete();
+            this.journalFile = null;
+        }
+    }
+    
+    // Removes and returns every queued event in arrival order.
+    private final Object[][] drain()
+    {
+        synchronized (this.lock)
+        {
+            final Object[][] events = new Object[this.size][];
+            
+            for (int i = 0; i < this.size; i++)
+            {
+                final int index = ((this.head + i) % this.buffer.length);
+                
+                events[i] = this.buffer[index];
+                this.buffer[index] = null;
+            }
+            
+            this.head = 0;
+            this.size = 0;
+            this.isFlushScheduled = false;
+            return events;
+        }
+    }
+    
+    // Removes the oldest entry of the window from the document.
+    private final void evictFirst() throws BadLocationException
+    {
+        final StyledDocument document = this.getOutput().getStyledDocument();
+        final int length = this.windowLengths[this.windowFirst];
+        
+        document.remove(document.getLength() - this.windowLength, length);
+        this.windowLength -= length;
+        this.windowStart += this.windowSizes[this.windowFirst];
+        this.windowFirst = ((this.windowFirst + 1) % this.windowLengths.length);
+        this.windowCount--;
+    }
+    
+    // Removes the newest entry of the window from the document.
+    private final void evictLast() throws BadLocationException
+    {
+        final StyledDocument document = this.getOutput().getStyledDocument();
+        final int index = ((this.windowFirst + this.windowCount - 1) % this.windowLengths.length);
+        
+        document.remove(document.getLength() - this.windowLengths[index], this.windowLengths[index]);
+        this.windowLength -= this.windowLengths[index];
+        this.windowEnd -= this.windowSizes[index];
+        this.windowCount--;
+    }
+    
+    // Writes every queued event to the journal and, unless the user is reading older entries, to the output pane in a single append. Must be
+    // called on the event dispatch thread; it is also called directly before the pane is saved, so that the file includes everything logged.
+    public final void flush()
+    {
+        final Object[][] events = this.drain();
+        
+        if (events.length == 0)
+        {
+            return;
+        }
+        
+        final ArrayList<Object> segments = new ArrayList<Object>(events.length * 9);
+        // Entries of an oversized batch that would be evicted straight away are journaled without ever being rendered.
+        final int firstShown = Math.max(0, events.length - RollLog.WINDOW_CAPACITY);
+        
+        if (this.isFollowing && (firstShown > 0))
+        {
+            // The batch replaces the whole window, so empty it first to keep the window a contiguous run of the journal.
+            try
+            {
+                while (this.windowCount > 0)
+                {
+                    this.evictFirst();
+                }
+            }
+            catch (final BadLocationException exception)
+            {
+                this.reset();
+            }
+        }
+        
+        for (int i = 0; i < events.length; i++)
+        {
+            final int recordSize = this.write(events[i]);
+            
+            if (!this.isFollowing)
+            {
+                continue;
+            }
+            
+            if (i < firstShown)
+            {
+                this.windowStart += recordSize;
+                this.windowEnd += recordSize;
+                continue;
+            }
+            
+            for (final Object segment : events[i])
+            {
+                segments.add(segment);
+            }
+            
+            this.push(false, RollLog.textLength(events[i]), recordSize);
+        }
+        
+        if (!segments.isEmpty())
+        {
+            this.getOutput().append(segments.toArray());
+        }
+        
+        try
+        {
+            while (this.windowCount > RollLog.WINDOW_CAPACITY)
+            {
+                this.evictFirst();
+            }
+        }
+        catch (final BadLocationException exception)
+        {
+            // The document was changed behind the log's back (for example by loading a file), so start a fresh window.
+            this.reset();
+        }
+    }
+    
+    // Returns to the newest entries if the user has scrolled back through the journal, and scrolls the pane to the bottom.
+    public final void follow()
+    {
+        if (!this.isFollowing)
+        {
+            try
+            {
+                while (this.windowCount > 0)
+                {
+                    this.evictLast();
+                }
+            }
+            catch (final BadLocationException exception)
+            {
+                this.reset();
+            }
+            
+            this.windowStart = this.journalLength;
+            this.windowEnd = this.journalLength;
+            this.isFollowing = true;
+            this.pageBackward(RollLog.WINDOW_CAPACITY, false);
+        }
+        
+        if (this.scrollBar != null)
+        {
+            this.scrollBar.setValue(this.scrollBar.getMaximum());
+        }
+    }
+    
+    public final RichTextPane getOutput()
+    {
+        return this.output;
+    }
+    
+    // Inserts an entry read back from the journal at the given position of the document and returns the number of characters inserted.
+    private final int insert(final int position, final Object[] segments) throws BadLocationException
+    {
+        final StyledDocument document = this.getOutput().getStyledDocument();
+        Color background = null;
+        Color foreground = null;
+        int length = 0;
+        
+        for (final Object segment : segments)
+        {
+            if (segment instanceof Color)
+            {
+                // Colours come in foreground and background pairs ahead of the text they apply to.
+                if (foreground == null)
+                {
+                    foreground = (Color)segment;
+                }
+                else
+                {
+                    background = (Color)segment;
+                }
+            }
+            else
+            {
+                final SimpleAttributeSet attributes = new SimpleAttributeSet();
+                final String text = String.valueOf(segment);
+                
+                if (foreground != null)
+                {
+                    StyleConstants.setForeground(attributes, foreground);
+                }
+                
+                if (background != null)
+                {
+                    StyleConstants.setBackground(attributes, background);
+                }
+                
+                document.insertString(position + length, text, attributes);
+                length += text.length();
+                foreground = null;
+                background = null;
+            }
+        }
+        
+        return length;
+    }
+    
+    // Reads up to count entries that precede the window from the journal and inserts them above it, evicting the newest entries to keep the
+    // window bounded.
+    private final void pageBackward(final int count, final boolean isKeepingPlace)
+    {
+        try
+        {
+            if ((this.journal == null) || (this.windowStart == 0))
+            {
+                return;
+            }
+            
+            // Never read more than the window has room for before the newest entries are evicted again.
+            final int limit = Math.min(count, this.windowLengths.length - this.windowCount);
+            final ArrayList<Object[]> events = new ArrayList<Object[]>(limit);
+            final ArrayList<Integer> sizes = new ArrayList<Integer>(limit);
+            long position = this.windowStart;
+            
+            while ((events.size() < limit) && (position > 0))
+            {
+                this.journal.seek(position - 4);
+                
+                final int recordSize = (this.journal.readInt() + 4);
+                
+                position -= recordSize;
+                events.add(this.read(position));
+                sizes.add(recordSize);
+            }
+            
+            final StyledDocument document = this.getOutput().getStyledDocument();
+            final int top = (document.getLength() - this.windowLength);
+            int inserted = 0;
+            
+            // The entries were read newest first; insert them oldest first so each lands below the one before.
+            for (int i = events.size() - 1; i >= 0; i--)
+            {
+                final int length = this.insert(top + inserted, events.get(i));
+                
+                inserted += length;
+                this.push(true, length, sizes.get(i));
+            }
+            
+            while (this.windowCount > RollLog.WINDOW_CAPACITY)
+            {
+                this.evictLast();
+                this.isFollowing = false;
+            }
+            
+            if (isKeepingPlace)
+            {
+                this.restoreView(top + inserted, false);
+            }
+        }
+        catch (final BadLocationException | IOException exception)
+        {
+            this.reset();
+        }
+        finally
+        {
+            this.isPaging = false;
+        }
+    }
+    
+    // Reads up to count entries that follow the window from the journal and appends them below it, evicting the oldest entries to keep the
+    // window bounded. Once the end of the journal is reached, new entries are shown as they arrive again.
+    private final void pageForward(final int count)
+    {
+        try
+        {
+            if (this.journal == null)
+            {
+                return;
+            }
+            
+            final StyledDocument document = this.getOutput().getStyledDocument();
+            final int oldEnd = document.getLength();
+            int read = 0;
+            
+            while ((read < count) && (this.windowCount < this.windowLengths.length) && (this.windowEnd < this.journalLength))
+            {
+                final Object[] segments = this.read(this.windowEnd);
+                final int recordSize = (int)(this.journal.getFilePointer() - this.windowEnd);
+                
+                this.push(false, this.insert(document.getLength(), segments), recordSize);
+                read++;
+            }
+            
+            final int lengthBefore = this.windowLength;
+            
+            while (this.windowCount > RollLog.WINDOW_CAPACITY)
+            {
+                this.evictFirst();
+            }
+            
+            this.isFollowing = (this.windowEnd == this.journalLength);
+            this.restoreView(oldEnd - (lengthBefore - this.windowLength), true);
+        }
+        catch (final BadLocationException | IOException exception)
+        {
+            this.reset();
+        }
+        finally
+        {
+            this.isPaging = false;
+        }
+    }
+    
+    // Records a rendered entry at the end of the window (or at the start, when paging backward).
+    private final void push(final boolean isFirst, final int length, final int recordSize)
+    {
+        if (isFirst)
+        {
+            this.windowFirst = (((this.windowFirst - 1) + this.windowLengths.length) % this.windowLengths.length);
+            this.windowLengths[this.windowFirst] = length;
+            this.windowSizes[this.windowFirst] = recordSize;
+            this.windowStart -= recordSize;
+        }
+        else
+        {
+            final int index = ((this.windowFirst + this.windowCount) % this.windowLengths.length);
+            
+            this.windowLengths[index] = length;
+            this.windowSizes[index] = recordSize;
+            this.windowEnd += recordSize;
+        }
+        
+        this.windowLength += length;
+        this.windowCount++;
+    }
+    
+    // Reads the journal record starting at the given offset and leaves the file pointer just past its trailer.
+    private final Object[] read(final long position) throws IOException
+    {
+        this.journal.seek(position);
+        
+        final Object[] segments = new Object[this.journal.readInt()];
+        
+        for (int i = 0; i < segments.length; i++)
+        {
+            if (this.journal.readByte() == RollLog.TAG_COLOR)
+            {
+                segments[i] = new Color(this.journal.readInt(), true);
+            }
+            else
+            {
+                final byte[] bytes = new byte[this.journal.readInt()];
+                
+                this.journal.readFully(bytes);
+                segments[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+        }
+        
+        this.journal.readInt();
+        return segments;
+    }
+    
+    // Forgets the window and the journal without touching the document, so any text already in the pane stays there unmanaged. Called when
+    // the pane is cleared or a saved log is loaded into it.
+    public final void reset()
+    {
+        this.isFollowing = true;
+        this.journalLength = 0;
+        this.windowCount = 0;
+        this.windowEnd = 0;
+        this.windowFirst = 0;
+        this.windowLength = 0;
+        this.windowStart = 0;
+        
+        try
+        {
+            if (this.journal != null)
+            {
+                this.journal.setLength(0);
+            }
+        }
+        catch (final IOException exception)
+        {
+            this.journal = null;
+        }
+    }
+    
+    // Scrolls so that the given document position sits at the top (or bottom) of the viewport once the pending layout has been done.
+    private final void restoreView(final int position, final boolean isAtBottom)
+    {
+        if (this.scrollBar == null)
+        {
+            return;
+        }
+        
+        this.isPaging = true;
+        SwingUtilities.invokeLater(new Runnable()
+        {
+            @Override
+            public final void run()
+            {
+                final RollLog log = RollLog.this;
+                
+                try
+                {
+                    final Rectangle view = log.getOutput().modelToView(position);
+                    
+                    if (view != null)
+                    {
+                        log.scrollBar.setValue(isAtBottom ? ((view.y + view.height) - log.scrollBar.getVisibleAmount()) : view.y);
+                    }
+                }
+                catch (final BadLocationException exception)
+                {
+                    // The document changed again in the meantime; leave the view where it is.
+                }
+                finally
+                {
+                    log.isPaging = false;
+                }
+            }
+        });
+    }
+    
+    // Runs on the event dispatch thread once per batch.
+    @Override
+    public final void run()
+    {
+        this.flush();
+    }
+    
+    // Appends one entry to the journal and returns the size of its record. Each record ends with its own length, so the journal can be read
+    // backward from any record boundary without an index in memory.
+    private final int write(final Object[] segments)
+    {
+        if (this.journal == null)
+        {
+            return 0;
+        }
+        
+        try
+        {
+            final DataOutputStream out = new DataOutputStream(this.recordBytes);
+            
+            this.recordBytes.reset();
+            out.writeInt(segments.length);
+            
+            for (final Object segment : segments)
+            {
+                if (segment instanceof Color)
+                {
+                    out.writeByte(RollLog.TAG_COLOR);
+                    out.writeInt(((Color)segment).getRGB());
+                }
+                else
+                {
+                    final byte[] bytes = String.valueOf(segment).getBytes(StandardCharsets.UTF_8);
+                    
+                    out.writeByte(RollLog.TAG_TEXT);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+            }
+            
+            out.writeInt(this.recordBytes.size());
+            this.journal.seek(this.journalLength);
+            this.journal.write(this.recordBytes.toByteArray());
+            this.journalLength += this.recordBytes.size();
+            return this.recordBytes.size();
+        }
+        catch (final IOException exception)
+        {
+            this.journal = null;
+            return 0;
+        }
+    }
+}
\ No newline at end of file
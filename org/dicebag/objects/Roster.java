@@ -0,0 +1,629 @@
+/*
+ * Title: Roster
+ * Author: Matthew Boyette
+ * Date: 10/17/2026
+ * 
+ * This class is a common resource for the DiceBag module and its add-on modules to use.
+ * It is the list of creatures in an encounter, together with a cursor on the creature whose turn it is. The Combat Tracker keeps its
+ * characters, its monsters and the combined turn order in rosters.
+ * 
+ * A roster is an order-statistic tree: a treap ordered by position, where every node also counts the creatures and the living creatures
+ * below it. Reading any position, finding a creature's position, inserting, removing and moving a creature all take O(log n), so a
+ * creature can delay, act on a readied action or join the fight part way through a round without the turn order being rebuilt. The
+ * cursor is held on the creature's node rather than on a position, so it stays on the same creature however others move around it.
+ * The living counts are kept up to date whenever a creature's status changes, so the next living creature after any position is found
+ * in O(log n) without rescanning the dead, and an encounter where everyone is dead is noticed at once.
+ * 
+ * A roster is also a Swing list model. Every insertion, removal, move and change to a creature is announced to its listeners as an event
+ * covering only the positions affected, so a view bound to it repaints just those rows instead of being rebuilt.
+ */
+
+package org.dicebag.objects;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javax.swing.ListModel;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+public final class Roster extends AbstractList<Creature> implements ListModel<Creature>, Serializable
+{
+    // One creature in the tree, with the number of creatures and of living creatures in the subtree below and including it.
+    private final static class Node
+    {
+        private Creature   creature;
+        private boolean    isAlive;
+        private Node       left   = null;
+        private int        living = 0;
+        private Node       parent = null;
+        private final long priority;
+        private Node       right  = null;
+        private int        size   = 1;
+        
+        private Node(final Creature creature, final long priority)
+        {
+            this.creature = creature;
+            this.priority = priority;
+            this.isAlive = !creature.isDead();
+            this.living = (this.isAlive ? 1 : 0);
+        }
+    }
+    
+    private final static long serialVersionUID = 1L;
+    
+    // Returns the position of the first living creature at or after the given position within the subtree, or -1 if there is none.
+    private final static int firstLiving(final Node node, final int from)
+    {
+        if ((node == null) || (node.living == 0) || (from >= node.size))
+        {
+            return -1;
+        }
+        
+        final int leftSize = Roster.sizeOf(node.left);
+        
+        if (from < leftSize)
+        {
+            final int found = Roster.firstLiving(node.left, from);
+            
+            if (found >= 0)
+            {
+                return found;
+            }
+        }
+        
+        if ((from <= leftSize) && node.isAlive)
+        {
+            return leftSize;
+        }
+        
+        final int found = Roster.firstLiving(node.right, Math.max(0, from - leftSize - 1));
+        
+        return ((found < 0) ? -1 : (leftSize + 1 + found));
+    }
+    
+    private final static Node leftmost(final Node node)
+    {
+        Node leftmost = node;
+        
+        while ((leftmost != null) && (leftmost.left != null))
+        {
+            leftmost = leftmost.left;
+        }
+        
+        return leftmost;
+    }
+    
+    private final static int livingOf(final Node node)
+    {
+        return ((node == null) ? 0 : node.living);
+    }
+    
+    // Joins two trees, every node of the left one coming before every node of the right one.
+    private final static Node merge(final Node left, final Node right)
+    {
+        if (left == null)
+        {
+            return right;
+        }
+        else if (right == null)
+        {
+            return left;
+        }
+        else if (left.priority > right.priority)
+        {
+            left.right = Roster.merge(left.right, right);
+            return Roster.update(left);
+        }
+        else
+        {
+            right.left = Roster.merge(left, right.left);
+            return Roster.update(right);
+        }
+    }
+    
+    private final static int positionOf(final Node node)
+    {
+        int position = Roster.sizeOf(node.left);
+        
+        for (Node child = node; child.parent != null; child = child.parent)
+        {
+            if (child == child.parent.right)
+            {
+                position += (Roster.sizeOf(child.parent.left) + 1);
+            }
+        }
+        
+        return position;
+    }
+    
+    private final static int sizeOf(final Node node)
+    {
+        return ((node == null) ? 0 : node.size);
+    }
+    
+    // Splits a tree into its first count nodes and the rest, which are left in the first and second elements of halves.
+    private final static void split(final Node node, final int count, final Node[] halves)
+    {
+        if (node == null)
+        {
+            halves[0] = null;
+            halves[1] = null;
+        }
+        else if (Roster.sizeOf(node.left) >= count)
+        {
+            Roster.split(node.left, count, halves);
+            node.left = halves[1];
+            halves[1] = Roster.update(node);
+        }
+        else
+        {
+            Roster.split(node.right, count - Roster.sizeOf(node.left) - 1, halves);
+            node.right = halves[0];
+            halves[0] = Roster.update(node);
+        }
+    }
+    
+    private final static Node successor(final Node node)
+    {
+        if (node.right != null)
+        {
+            return Roster.leftmost(node.right);
+        }
+        
+        Node child = node;
+        
+        while ((child.parent != null) && (child == child.parent.right))
+        {
+            child = child.parent;
+        }
+        
+        return child.parent;
+    }
+    
+    // Recounts a node from its children and points the children back at it.
+    private final static Node update(final Node node)
+    {
+        node.size = (Roster.sizeOf(node.left) + Roster.sizeOf(node.right) + 1);
+        node.living = (Roster.livingOf(node.left) + Roster.livingOf(node.right) + (node.isAlive ? 1 : 0));
+        
+        if (node.left != null)
+        {
+            node.left.parent = node;
+        }
+        
+        if (node.right != null)
+        {
+            node.right.parent = node;
+        }
+        
+        return node;
+    }
+    
+    private transient Node                            current   = null;
+    private transient ArrayList<ListDataListener>     listeners = null;
+    private transient IdentityHashMap<Creature, Node> nodes     = new IdentityHashMap<Creature, Node>();
+    private transient Node                            root      = null;
+    private transient long                            sequence  = 0;
+    
+    public Roster()
+    {
+    }
+    
+    public Roster(final Collection<? extends Creature> creatures)
+    {
+        this.addAll(creatures);
+    }
+    
+    // Inserts the creature at the given position. The turn stays with the creature that had it; the first creature added takes it.
+    @Override
+    public final void add(final int index, final Creature creature)
+    {
+        if ((index < 0) || (index > this.size()))
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size());
+        }
+        
+        if (this.nodes.containsKey(creature))
+        {
+            throw new IllegalArgumentException(creature.getStatBlock().getName() + " is already in this roster.");
+        }
+        
+        final Node node = new Node(creature, DiceTerm.mix(++this.sequence));
+        final Node[] halves = new Node[2];
+        
+        this.nodes.put(creature, node);
+        Roster.split(this.root, index, halves);
+        this.setRoot(Roster.merge(Roster.merge(halves[0], node), halves[1]));
+        this.modCount++;
+        
+        if (this.current == null)
+        {
+            this.current = node;
+        }
+        
+        this.fire(ListDataEvent.INTERVAL_ADDED, index, index);
+    }
+    
+    @Override
+    public final void addListDataListener(final ListDataListener listener)
+    {
+        if (this.listeners == null)
+        {
+            this.listeners = new ArrayList<ListDataListener>();
+        }
+        
+        this.listeners.add(listener);
+    }
+    
+    @Override
+    public final void clear()
+    {
+        final int size = this.size();
+        
+        this.current = null;
+        this.nodes.clear();
+        this.root = null;
+        this.modCount++;
+        
+        if (size > 0)
+        {
+            this.fire(ListDataEvent.INTERVAL_REMOVED, 0, size - 1);
+        }
+    }
+    
+    // Tells every listener that the creatures between two positions (both included) were added, removed or changed. Nothing is allocated
+    // when no one is listening.
+    private final void fire(final int type, final int first, final int last)
+    {
+        if ((this.listeners == null) || this.listeners.isEmpty())
+        {
+            return;
+        }
+        
+        final ListDataEvent event = new ListDataEvent(this, type, first, last);
+        
+        // Walk a copy backward, as Swing does, so a listener may remove itself while being told.
+        final ListDataListener[] listeners = this.listeners.toArray(new ListDataListener[this.listeners.size()]);
+        
+        for (int i = (listeners.length - 1); i >= 0; i--)
+        {
+            switch (type)
+            {
+                case ListDataEvent.INTERVAL_ADDED:
+                    
+                    listeners[i].intervalAdded(event);
+                    break;
+                
+                case ListDataEvent.INTERVAL_REMOVED:
+                    
+                    listeners[i].intervalRemoved(event);
+                    break;
+                
+                default:
+                    
+                    listeners[i].contentsChanged(event);
+                    break;
+            }
+        }
+    }
+    
+    @Override
+    public final Creature get(final int index)
+    {
+        return this.nodeAt(index).creature;
+    }
+    
+    // Returns the creature whose turn it is, or null if the roster is empty.
+    public final Creature getCurrent()
+    {
+        return ((this.current == null) ? null : this.current.creature);
+    }
+    
+    @Override
+    public final Creature getElementAt(final int index)
+    {
+        return this.get(index);
+    }
+    
+    public final int getCurrentIndex()
+    {
+        return ((this.current == null) ? 0 : Roster.positionOf(this.current));
+    }
+    
+    // Returns the number of creatures still alive.
+    public final int getLivingCount()
+    {
+        return Roster.livingOf(this.root);
+    }
+    
+    @Override
+    public final int getSize()
+    {
+        return this.size();
+    }
+    
+    @Override
+    public final int indexOf(final Object object)
+    {
+        final Node node = this.nodes.get(object);
+        
+        return ((node == null) ? -1 : Roster.positionOf(node));
+    }
+    
+    // Inserts the creature where its initiative puts it in a roster that is in initiative order, after any creatures it ties with, and
+    // returns its position.
+    public final int insertByInitiative(final Creature creature)
+    {
+        int position = 0;
+        Node node = this.root;
+        
+        while (node != null)
+        {
+            if (creature.compareTo(node.creature) < 0)
+            {
+                node = node.left;
+            }
+            else
+            {
+                position += (Roster.sizeOf(node.left) + 1);
+                node = node.right;
+            }
+        }
+        
+        this.add(position, creature);
+        return position;
+    }
+    
+    public final boolean isAllDead()
+    {
+        return (Roster.livingOf(this.root) == 0);
+    }
+    
+    // Walks the creatures in order, one step at a time, in O(n) for the whole roster.
+    @Override
+    public final Iterator<Creature> iterator()
+    {
+        return new Iterator<Creature>()
+        {
+            private final int expectedModCount = Roster.this.modCount;
+            private Node      next             = Roster.leftmost(Roster.this.root);
+            
+            @Override
+            public final boolean hasNext()
+            {
+                return (this.next != null);
+            }
+            
+            @Override
+            public final Creature next()
+            {
+                if (Roster.this.modCount != this.expectedModCount)
+                {
+                    throw new ConcurrentModificationException();
+                }
+                
+                if (this.next == null)
+                {
+                    throw new NoSuchElementException();
+                }
+                
+                final Node node = this.next;
+                
+                this.next = Roster.successor(node);
+                return node.creature;
+            }
+        };
+    }
+    
+    @Override
+    public final int lastIndexOf(final Object object)
+    {
+        return this.indexOf(object);
+    }
+    
+    // Moves the creature to the given position among the others, which is counted as if it had already been taken out. The turn stays
+    // with whichever creature had it, including the one moved.
+    public final void move(final Creature creature, final int index)
+    {
+        final Node node = this.nodes.get(creature);
+        
+        if (node == null)
+        {
+            throw new IllegalArgumentException(creature.getStatBlock().getName() + " is not in this roster.");
+        }
+        
+        if ((index < 0) || (index >= this.size()))
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (this.size() - 1));
+        }
+        
+        final int from = Roster.positionOf(node);
+        final Node[] halves = new Node[2];
+        final Node[] rest = new Node[2];
+        
+        Roster.split(this.root, from, halves);
+        Roster.split(halves[1], 1, rest);
+        this.setRoot(Roster.merge(halves[0], rest[1]));
+        node.parent = null;
+        Roster.split(this.root, index, halves);
+        this.setRoot(Roster.merge(Roster.merge(halves[0], node), halves[1]));
+        this.modCount++;
+        
+        // Only the creatures between the old and the new position have moved.
+        this.fire(ListDataEvent.CONTENTS_CHANGED, Math.min(from, index), Math.max(from, index));
+    }
+    
+    // Returns the position of the first living creature at or after the given position, or -1 if there is none.
+    public final int nextLiving(final int index)
+    {
+        return Roster.firstLiving(this.root, Math.max(0, index));
+    }
+    
+    private final Node nodeAt(final int index)
+    {
+        if ((index < 0) || (index >= this.size()))
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size());
+        }
+        
+        Node node = this.root;
+        int position = index;
+        
+        while (position != Roster.sizeOf(node.left))
+        {
+            if (position < Roster.sizeOf(node.left))
+            {
+                node = node.left;
+            }
+            else
+            {
+                position -= (Roster.sizeOf(node.left) + 1);
+                node = node.right;
+            }
+        }
+        
+        return node;
+    }
+    
+    private final void readObject(final ObjectInputStream stream) throws IOException, ClassNotFoundException
+    {
+        stream.defaultReadObject();
+        this.nodes = new IdentityHashMap<Creature, Node>();
+        
+        final int size = stream.readInt();
+        
+        for (int i = 0; i < size; i++)
+        {
+            this.add(i, (Creature)stream.readObject());
+        }
+        
+        final int currentIndex = stream.readInt();
+        
+        if (size > 0)
+        {
+            this.setCurrentIndex(currentIndex);
+        }
+    }
+    
+    // Removes the creature at the given position. If it had the turn, the turn passes to the creature that takes its place, or back to the
+    // top of the order if it was last.
+    @Override
+    public final Creature remove(final int index)
+    {
+        final Node node = this.nodeAt(index);
+        final Node[] halves = new Node[2];
+        final Node[] rest = new Node[2];
+        
+        Roster.split(this.root, index, halves);
+        Roster.split(halves[1], 1, rest);
+        this.setRoot(Roster.merge(halves[0], rest[1]));
+        this.nodes.remove(node.creature);
+        this.modCount++;
+        
+        if (this.current == node)
+        {
+            this.current = ((this.root == null) ? null : this.nodeAt((index < this.size()) ? index : 0));
+        }
+        
+        this.fire(ListDataEvent.INTERVAL_REMOVED, index, index);
+        return node.creature;
+    }
+    
+    // Replaces the creature at the given position. When the roster is reordered in place, the creature being replaced has usually
+    // already been written to its new position, so it is only forgotten if it is not.
+    @Override
+    public final Creature set(final int index, final Creature creature)
+    {
+        final Node node = this.nodeAt(index);
+        final Creature previous = node.creature;
+        
+        if (this.nodes.get(previous) == node)
+        {
+            this.nodes.remove(previous);
+        }
+        
+        node.creature = creature;
+        this.nodes.put(creature, node);
+        this.updateLiving(creature);
+        return previous;
+    }
+    
+    public final void setCurrentIndex(final int currentIndex)
+    {
+        this.current = this.nodeAt(currentIndex);
+    }
+    
+    @Override
+    public final void removeListDataListener(final ListDataListener listener)
+    {
+        if (this.listeners != null)
+        {
+            this.listeners.remove(listener);
+        }
+    }
+    
+    private final void setRoot(final Node root)
+    {
+        this.root = root;
+        
+        if (root != null)
+        {
+            root.parent = null;
+        }
+    }
+    
+    @Override
+    public final int size()
+    {
+        return Roster.sizeOf(this.root);
+    }
+    
+    // Re-reads whether the given creature is alive, recounts the nodes above it, and tells the listeners that its row has changed. Call it
+    // whenever anything shown about a creature changes. Creatures that are not in this roster are ignored.
+    public final void updateLiving(final Creature creature)
+    {
+        final Node node = this.nodes.get(creature);
+        
+        if (node != null)
+        {
+            node.isAlive = !creature.isDead();
+            
+            for (Node ancestor = node; ancestor != null; ancestor = ancestor.parent)
+            {
+                ancestor.living = (Roster.livingOf(ancestor.left) + Roster.livingOf(ancestor.right) + (ancestor.isAlive ? 1 : 0));
+            }
+            
+            if (this.listeners != null)
+            {
+                final int position = Roster.positionOf(node);
+                
+                this.fire(ListDataEvent.CONTENTS_CHANGED, position, position);
+            }
+        }
+    }
+    
+    // The tree itself is not serialized: the creatures are written in order, followed by the position of the turn, and the tree is
+    // rebuilt from them when read.
+    private final void writeObject(final ObjectOutputStream stream) throws IOException
+    {
+        stream.defaultWriteObject();
+        stream.writeInt(this.size());
+        
+        for (final Creature creature : this)
+        {
+            stream.writeObject(creature);
+        }
+        
+        stream.writeInt(this.getCurrentIndex());
+    }
+}
\ No newline at end of file
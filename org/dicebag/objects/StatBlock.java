@@ -9,6 +9,10 @@
 
 package org.dicebag.objects;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 
 public abstract class StatBlock implements Serializable
@@ -17,14 +21,34 @@ public abstract class StatBlock implements Serializable
      * Fields
      */
     
-    private final static long serialVersionUID = 1L;
-    private long              curHealth        = 0;
-    private long              initBase         = 0;
-    private long              initBonus        = 0;
-    private long              maxHealth        = 0;
-    private String            name             = "";
-    private String            position         = "";
-    private long              tieBreaker       = 0;
+    // The initiative key packs three parts into this many bits each. Every part is offset by half the range and clamped into it.
+    public final static int                  INIT_KEY_BITS          = 21;
+    private final static long                INIT_KEY_BIAS          = (1L << (StatBlock.INIT_KEY_BITS - 1));
+    private final static long                INIT_KEY_MASK          = ((1L << StatBlock.INIT_KEY_BITS) - 1);
+    // Positions are kept packed in memory but still written as "XX:YY" strings, so stat blocks saved before and after read alike.
+    private final static ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("curHealth", long.class), new ObjectStreamField("initBase", long.class),
+        new ObjectStreamField("initBonus", long.class), new ObjectStreamField("maxHealth", long.class), new ObjectStreamField("name", String.class),
+        new ObjectStreamField("position", String.class), new ObjectStreamField("tieBreaker", long.class)
+    };
+    private final static long                serialVersionUID       = 1L;
+    private long                             curHealth              = 0;
+    private long                             initBase               = 0;
+    private long                             initBonus              = 0;
+    private long                             maxHealth              = 0;
+    private String                           name                   = "";
+    private int                              position               = BattleGrid.NOWHERE;
+    private long                             tieBreaker             = 0;
+    
+    /*
+     * Static Methods
+     */
+    
+    // Offsets a signed part of the initiative key so that it sorts as unsigned, clamping it into the bits it is given.
+    private final static long packInitiative(final long value)
+    {
+        return Math.max(0, Math.min(StatBlock.INIT_KEY_MASK, (value + StatBlock.INIT_KEY_BIAS)));
+    }
     
     /*
      * Constructor Methods
@@ -53,6 +77,12 @@ public abstract class StatBlock implements Serializable
      * Getter Methods
      */
     
+    // Returns the packed position on the battle grid, or BattleGrid.NOWHERE if the creature has none.
+    public final int getCoordinates()
+    {
+        return this.position;
+    }
+    
     public final long getCurHealth()
     {
         return this.curHealth;
@@ -63,6 +93,14 @@ public abstract class StatBlock implements Serializable
         return this.initBase;
     }
     
+    // Returns the total initiative, the initiative bonus and the tie-breaker packed into one non-negative long, most significant first, so
+    // that comparing two keys compares the three in turn: the creature with the greater key acts first.
+    public final long getInitiativeKey()
+    {
+        return ((StatBlock.packInitiative(this.getTotalInit()) << (2 * StatBlock.INIT_KEY_BITS)) |
+            (StatBlock.packInitiative(this.getInitBonus()) << StatBlock.INIT_KEY_BITS) | StatBlock.packInitiative(this.getTieBreaker()));
+    }
+    
     public final long getInitBonus()
     {
         return this.initBonus;
@@ -80,7 +118,7 @@ public abstract class StatBlock implements Serializable
     
     public final String getPosition()
     {
-        return this.position;
+        return BattleGrid.format(this.position);
     }
     
     public final long getTieBreaker()
@@ -97,6 +135,11 @@ public abstract class StatBlock implements Serializable
      * Setter Methods
      */
     
+    public final void setCoordinates(final int position)
+    {
+        this.position = position;
+    }
+    
     public final void setCurHealth(final long curHealth)
     {
         this.curHealth = curHealth;
@@ -124,11 +167,42 @@ public abstract class StatBlock implements Serializable
     
     public final void setPosition(final String position)
     {
-        this.position = position;
+        this.position = BattleGrid.parse(position);
     }
     
     public final void setTieBreaker(final long tieBreaker)
     {
         this.tieBreaker = tieBreaker;
     }
+    
+    /*
+     * Serialization Methods
+     */
+    
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException
+    {
+        final ObjectInputStream.GetField fields = in.readFields();
+        
+        this.curHealth = fields.get("curHealth", 0L);
+        this.initBase = fields.get("initBase", 0L);
+        this.initBonus = fields.get("initBonus", 0L);
+        this.maxHealth = fields.get("maxHealth", 0L);
+        this.name = (String)fields.get("name", "");
+        this.setPosition((String)fields.get("position", ""));
+        this.tieBreaker = fields.get("tieBreaker", 0L);
+    }
+    
+    private void writeObject(final ObjectOutputStream out) throws IOException
+    {
+        final ObjectOutputStream.PutField fields = out.putFields();
+        
+        fields.put("curHealth", this.curHealth);
+        fields.put("initBase", this.initBase);
+        fields.put("initBonus", this.initBonus);
+        fields.put("maxHealth", this.maxHealth);
+        fields.put("name", this.name);
+        fields.put("position", this.getPosition());
+        fields.put("tieBreaker", this.tieBreaker);
+        out.writeFields();
+    }
 }
\ No newline at end of file
@@ -5,26 +5,54 @@
  * 
  * This class is a common resource for the DiceBag module and its add-on modules to use.
  * It is a companion for the Creature35E class. It represents the stat block for a standard D&D 3.5E creature.
+ * A creature's effects (its conditions, such as frightened or prone) are kept as one bit each in a single long, so setting, testing and
+ * clearing one is a single operation; its abilities, feats and skills are kept in EnumSets, which are also bitmasks.
  */
 
 package org.dicebag.objects;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.LinkedList;
 
 import org.dicebag.objects.Constants35E.Abilities;
 import org.dicebag.objects.Constants35E.Effects;
 import org.dicebag.objects.Constants35E.Feats;
+import org.dicebag.objects.Constants35E.Saves;
 import org.dicebag.objects.Constants35E.Skills;
 import org.dicebag.objects.Constants35E.Status;
 
 public final class StatBlock35E extends StatBlock
 {
-    private final static long     serialVersionUID = 1L;
-    private LinkedList<Abilities> abilitiesList    = new LinkedList<Abilities>();
-    private LinkedList<Effects>   effectsList      = new LinkedList<Effects>();
-    private LinkedList<Feats>     featsList        = new LinkedList<Feats>();
-    private LinkedList<Skills>    skillsList       = new LinkedList<Skills>();
-    private Status                status           = null;
+    // The attack profile given to new stat blocks, and to stat blocks saved before attacks were recorded.
+    public final static long                 DEFAULT_ARMOR_CLASS    = 10;
+    public final static String               DEFAULT_DAMAGE         = "1d6";
+    // Abilities, effects, feats and skills are still serialized as linked lists, so stat blocks saved before and after read alike.
+    private final static ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("abilitiesList", LinkedList.class), new ObjectStreamField("armorClass", long.class),
+        new ObjectStreamField("attackBonus", long.class), new ObjectStreamField("damage", String.class),
+        new ObjectStreamField("effectsList", LinkedList.class), new ObjectStreamField("featsList", LinkedList.class),
+        new ObjectStreamField("fortitudeSave", long.class), new ObjectStreamField("reflexSave", long.class),
+        new ObjectStreamField("skillsList", LinkedList.class), new ObjectStreamField("status", Status.class),
+        new ObjectStreamField("willSave", long.class)
+    };
+    private final static long                serialVersionUID       = 1L;
+    private EnumSet<Abilities>               abilities              = EnumSet.noneOf(Abilities.class);
+    private long                             armorClass             = StatBlock35E.DEFAULT_ARMOR_CLASS;
+    private long                             attackBonus            = 0;
+    private String                           damage                 = StatBlock35E.DEFAULT_DAMAGE;
+    // One bit for each effect, by its ordinal. There are fewer than 64 effects.
+    private long                             effects                = 0;
+    private EnumSet<Feats>                   feats                  = EnumSet.noneOf(Feats.class);
+    private long                             fortitudeSave          = 0;
+    private long                             reflexSave             = 0;
+    private EnumSet<Skills>                  skills                 = EnumSet.noneOf(Skills.class);
+    private Status                           status                 = null;
+    private long                             willSave               = 0;
     
     public StatBlock35E()
     {
@@ -41,24 +69,91 @@ public final class StatBlock35E extends StatBlock
         super(initBonus, maxHealth, name, position);
     }
     
-    public final LinkedList<Abilities> getAbilitiesList()
+    // Copies a template for spawning many creatures of one kind: everything but the name, hit points, initiative throw, position and status.
+    public StatBlock35E(final StatBlock35E template, final String name, final int maxHealth)
     {
-        return this.abilitiesList;
+        super((int)template.getInitBonus(), maxHealth, name, "");
+        this.abilities = EnumSet.copyOf(template.abilities);
+        this.armorClass = template.armorClass;
+        this.attackBonus = template.attackBonus;
+        this.damage = template.damage;
+        this.effects = template.effects;
+        this.feats = EnumSet.copyOf(template.feats);
+        this.fortitudeSave = template.fortitudeSave;
+        this.reflexSave = template.reflexSave;
+        this.skills = EnumSet.copyOf(template.skills);
+        this.willSave = template.willSave;
     }
     
-    public final LinkedList<Effects> getEffectsList()
+    public final EnumSet<Abilities> getAbilities()
     {
-        return this.effectsList;
+        return this.abilities;
     }
     
-    public final LinkedList<Feats> getFeatsList()
+    public final long getArmorClass()
     {
-        return this.featsList;
+        return this.armorClass;
     }
     
-    public final LinkedList<Skills> getSkillsList()
+    public final long getAttackBonus()
     {
-        return this.skillsList;
+        return this.attackBonus;
+    }
+    
+    // Returns the dice expression thrown for the damage of one hit, such as "1d8+2".
+    public final String getDamage()
+    {
+        return this.damage;
+    }
+    
+    // Returns the bitmask of the creature's effects, one bit for each by its ordinal.
+    public final long getEffectMask()
+    {
+        return this.effects;
+    }
+    
+    // Returns a copy of the creature's effects. Use hasEffect to test for one.
+    public final EnumSet<Effects> getEffects()
+    {
+        final EnumSet<Effects> effects = EnumSet.noneOf(Effects.class);
+        
+        for (final Effects effect : Effects.values())
+        {
+            if (this.hasEffect(effect))
+            {
+                effects.add(effect);
+            }
+        }
+        
+        return effects;
+    }
+    
+    public final EnumSet<Feats> getFeats()
+    {
+        return this.feats;
+    }
+    
+    public final long getSaveBonus(final Saves save)
+    {
+        switch (save)
+        {
+            case FORTITUDE:
+                
+                return this.fortitudeSave;
+            
+            case REFLEX:
+                
+                return this.reflexSave;
+            
+            default:
+                
+                return this.willSave;
+        }
+    }
+    
+    public final EnumSet<Skills> getSkills()
+    {
+        return this.skills;
     }
     
     public final Status getStatus()
@@ -66,28 +161,146 @@ public final class StatBlock35E extends StatBlock
         return this.status;
     }
     
-    protected final void setAbilitiesList(final LinkedList<Abilities> abilitiesList)
+    public final boolean hasEffect(final Effects effect)
     {
-        this.abilitiesList = abilitiesList;
+        return ((this.effects & (1L << effect.ordinal())) != 0);
     }
     
-    protected final void setEffectsList(final LinkedList<Effects> effectsList)
+    // Stat blocks saved before attacks were recorded have no damage expression, and get the default attack profile instead.
+    @SuppressWarnings("unchecked")
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException
     {
-        this.effectsList = effectsList;
+        final ObjectInputStream.GetField fields = in.readFields();
+        final LinkedList<Abilities> abilities = (LinkedList<Abilities>)fields.get("abilitiesList", null);
+        final LinkedList<Effects> effects = (LinkedList<Effects>)fields.get("effectsList", null);
+        final LinkedList<Feats> feats = (LinkedList<Feats>)fields.get("featsList", null);
+        final LinkedList<Skills> skills = (LinkedList<Skills>)fields.get("skillsList", null);
+        
+        this.abilities = EnumSet.noneOf(Abilities.class);
+        this.armorClass = fields.get("armorClass", StatBlock35E.DEFAULT_ARMOR_CLASS);
+        this.attackBonus = fields.get("attackBonus", 0L);
+        this.damage = (String)fields.get("damage", null);
+        this.feats = EnumSet.noneOf(Feats.class);
+        this.fortitudeSave = fields.get("fortitudeSave", 0L);
+        this.reflexSave = fields.get("reflexSave", 0L);
+        this.skills = EnumSet.noneOf(Skills.class);
+        this.status = (Status)fields.get("status", null);
+        this.willSave = fields.get("willSave", 0L);
+        
+        if (abilities != null)
+        {
+            this.abilities.addAll(abilities);
+        }
+        
+        if (effects != null)
+        {
+            this.setEffects(effects);
+        }
+        
+        if (feats != null)
+        {
+            this.feats.addAll(feats);
+        }
+        
+        if (skills != null)
+        {
+            this.skills.addAll(skills);
+        }
+        
+        if (this.damage == null)
+        {
+            this.armorClass = StatBlock35E.DEFAULT_ARMOR_CLASS;
+            this.damage = StatBlock35E.DEFAULT_DAMAGE;
+        }
     }
     
-    protected final void setFeatsList(final LinkedList<Feats> featsList)
+    public final void setArmorClass(final long armorClass)
     {
-        this.featsList = featsList;
+        this.armorClass = armorClass;
     }
     
-    protected final void setSkillsList(final LinkedList<Skills> skillsList)
+    public final void setAttackBonus(final long attackBonus)
     {
-        this.skillsList = skillsList;
+        this.attackBonus = attackBonus;
+    }
+    
+    // The expression is compiled here, so a malformed one is rejected with an IllegalArgumentException instead of failing mid-combat.
+    public final void setDamage(final String damage)
+    {
+        this.damage = DiceExpression.compile(damage).getSource();
+    }
+    
+    // Gives the creature the effect or takes it away, returning false if it already had it or already did not. A creature fighting in an
+    // encounter should be changed through CombatEngine.setEffect instead, which keeps the encounter's condition index up to date.
+    public final boolean setEffect(final Effects effect, final boolean isOn)
+    {
+        final long effects = (isOn ? (this.effects | (1L << effect.ordinal())) : (this.effects & ~(1L << effect.ordinal())));
+        
+        if (effects == this.effects)
+        {
+            return false;
+        }
+        
+        this.effects = effects;
+        return true;
+    }
+    
+    protected final void setEffectMask(final long effects)
+    {
+        this.effects = effects;
+    }
+    
+    protected final void setEffects(final Collection<Effects> effects)
+    {
+        this.effects = 0;
+        
+        for (final Effects effect : effects)
+        {
+            this.setEffect(effect, true);
+        }
+    }
+    
+    public final void setSaveBonus(final Saves save, final long bonus)
+    {
+        switch (save)
+        {
+            case FORTITUDE:
+                
+                this.fortitudeSave = bonus;
+                break;
+            
+            case REFLEX:
+                
+                this.reflexSave = bonus;
+                break;
+            
+            default:
+                
+                this.willSave = bonus;
+                break;
+        }
     }
     
     protected final void setStatus(final Status status)
     {
         this.status = status;
     }
+    
+    private void writeObject(final ObjectOutputStream out) throws IOException
+    {
+        final ObjectOutputStream.PutField fields = out.putFields();
+        
+        fields.put("abilitiesList", new LinkedList<Abilities>(this.abilities));
+        fields.put("armorClass", this.armorClass);
+        fields.put("attackBonus", this.attackBonus);
+        fields.put("damage", this.damage);
+        fields.put("effectsList", new LinkedList<Effects>(this.getEffects()));
+        fields.put("featsList", new LinkedList<Feats>(this.feats));
+        fields.put("fortitudeSave", this.fortitudeSave);
+        fields.put("reflexSave", this.reflexSave);
+        fields.put("skillsList", new LinkedList<Skills>(this.skills));
+        fields.put("status", this.status);
+        fields.put("willSave", this.willSave);
+        out.writeFields();
+    }
 }
\ No newline at end of file